@@ -0,0 +1,67 @@
+package cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring with virtual nodes. Adding or removing a node only
+ * moves the keys that land on that node's points of the ring.
+ */
+public class ConsistentHashRing<N> {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final TreeMap<Long, N> ring = new TreeMap<>();
+    private final int virtualNodes;
+
+    public ConsistentHashRing() {
+        this(DEFAULT_VIRTUAL_NODES);
+    }
+
+    public ConsistentHashRing(int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Number of virtual nodes must be positive.");
+        }
+        this.virtualNodes = virtualNodes;
+    }
+
+    public void add(String name, N node) {
+        for (int i = 0; i < virtualNodes; i++) {
+            ring.put(hash(name + "#" + i), node);
+        }
+    }
+
+    public void remove(String name) {
+        for (int i = 0; i < virtualNodes; i++) {
+            ring.remove(hash(name + "#" + i));
+        }
+    }
+
+    public boolean isEmpty() {
+        return ring.isEmpty();
+    }
+
+    public N nodeFor(String key) {
+        if (ring.isEmpty()) {
+            throw new IllegalStateException("The hash ring has no nodes.");
+        }
+        Map.Entry<Long, N> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /** 64-bit FNV-1a followed by a murmur3 finalizer to spread short, similar keys. */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,26 @@
+package cluster;
+
+import exceptions.InvalidOperationException;
+import management.ReportAggregate;
+import vehicles.Vehicle;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * One shard of a sharded fleet, either in this JVM or behind a socket.
+ * Remote nodes return copies of their vehicles, not live objects.
+ */
+public interface FleetNode {
+    String getName();
+    void addVehicle(Vehicle vehicle) throws IOException, InvalidOperationException;
+    Vehicle takeVehicle(String id) throws IOException, InvalidOperationException;
+    /** The vehicle without removing it; a copy for remote nodes. */
+    Vehicle getVehicle(String id) throws IOException, InvalidOperationException;
+    void removeVehicle(String id) throws IOException, InvalidOperationException;
+    List<String> vehicleIds() throws IOException;
+    void startAllJourneys(double distance) throws IOException;
+    void maintainAll() throws IOException;
+    List<Vehicle> searchByType(Class<?> type) throws IOException;
+    ReportAggregate reportAggregate() throws IOException;
+}
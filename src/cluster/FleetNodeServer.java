@@ -0,0 +1,152 @@
+package cluster;
+
+import exceptions.InvalidOperationException;
+import registry.VehicleTypeRegistry;
+import vehicles.Vehicle;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Serves one {@link LocalFleetNode} over a socket so that a
+ * {@link ShardedFleetCoordinator} in another process can use it through a
+ * {@link RemoteFleetNode}. Run standalone with
+ * {@code java cluster.FleetNodeServer <name> <port>}; it binds to loopback.
+ */
+public class FleetNodeServer implements Closeable {
+
+    private final LocalFleetNode node;
+    private final ServerSocket serverSocket;
+    private volatile boolean running = true;
+
+    public FleetNodeServer(LocalFleetNode node, int port) throws IOException {
+        this.node = node;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void start() {
+        Thread acceptor = new Thread(this::acceptLoop, "fleet-node-" + node.getName());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread handler = new Thread(() -> serve(socket), "fleet-node-" + node.getName() + "-conn");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (SocketException e) {
+                // Server socket closed.
+                return;
+            } catch (IOException e) {
+                System.err.println("Fleet node " + node.getName() + " failed to accept a connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+            String request;
+            while ((request = in.readLine()) != null) {
+                handle(request, out);
+            }
+        } catch (IOException e) {
+            System.err.println("Fleet node " + node.getName() + " lost a connection: " + e.getMessage());
+        }
+    }
+
+    private void handle(String request, PrintWriter out) {
+        int tab = request.indexOf('\t');
+        String command = tab < 0 ? request : request.substring(0, tab);
+        String argument = tab < 0 ? "" : request.substring(tab + 1);
+        try {
+            List<String> payload;
+            switch (command) {
+                case NodeProtocol.ADD:
+                    node.addVehicle(NodeProtocol.decodeVehicle(argument));
+                    payload = Collections.emptyList();
+                    break;
+                case NodeProtocol.TAKE:
+                    payload = Collections.singletonList(NodeProtocol.encodeVehicle(node.takeVehicle(argument)));
+                    break;
+                case NodeProtocol.GET:
+                    payload = Collections.singletonList(NodeProtocol.encodeVehicle(node.getVehicle(argument)));
+                    break;
+                case NodeProtocol.REMOVE:
+                    node.removeVehicle(argument);
+                    payload = Collections.emptyList();
+                    break;
+                case NodeProtocol.IDS:
+                    payload = node.vehicleIds();
+                    break;
+                case NodeProtocol.JOURNEYS:
+                    node.startAllJourneys(Double.parseDouble(argument));
+                    payload = Collections.emptyList();
+                    break;
+                case NodeProtocol.MAINTAIN:
+                    node.maintainAll();
+                    payload = Collections.emptyList();
+                    break;
+                case NodeProtocol.SEARCH:
+                    payload = new ArrayList<>();
+                    for (Vehicle vehicle : node.searchByType(resolveType(argument))) {
+                        payload.add(NodeProtocol.encodeVehicle(vehicle));
+                    }
+                    break;
+                case NodeProtocol.REPORT:
+                    payload = NodeProtocol.encodeAggregate(node.reportAggregate());
+                    break;
+                default:
+                    NodeProtocol.writeError(out, "Unknown command: " + command);
+                    return;
+            }
+            NodeProtocol.writeOk(out, payload);
+        } catch (InvalidOperationException | IOException | RuntimeException e) {
+            NodeProtocol.writeError(out, e.getMessage());
+        }
+    }
+
+    private static Class<?> resolveType(String name) throws InvalidOperationException {
+        Class<?> type = VehicleTypeRegistry.getDefault().resolveSearchType(name);
+        if (type == null) {
+            throw new InvalidOperationException("Unknown or unsupported type for searching: " + name);
+        }
+        return type;
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: java cluster.FleetNodeServer <name> <port>");
+            System.exit(1);
+        }
+        FleetNodeServer server = new FleetNodeServer(new LocalFleetNode(args[0]), Integer.parseInt(args[1]));
+        System.out.println("Fleet node " + args[0] + " listening on port " + server.getPort());
+        server.acceptLoop();
+    }
+}
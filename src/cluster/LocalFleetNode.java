@@ -0,0 +1,95 @@
+package cluster;
+
+import exceptions.InvalidOperationException;
+import management.FleetManager;
+import management.ReportAggregate;
+import vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A shard that lives in this JVM. Also used by {@link FleetNodeServer} to
+ * serve requests from remote coordinators.
+ */
+public class LocalFleetNode implements FleetNode {
+
+    private final String name;
+    private final FleetManager fleetManager;
+
+    public LocalFleetNode(String name) {
+        this(name, new FleetManager());
+    }
+
+    public LocalFleetNode(String name, FleetManager fleetManager) {
+        this.name = name;
+        this.fleetManager = fleetManager;
+    }
+
+    public FleetManager getFleetManager() {
+        return fleetManager;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void addVehicle(Vehicle vehicle) throws InvalidOperationException {
+        fleetManager.addVehicle(vehicle);
+    }
+
+    @Override
+    public Vehicle takeVehicle(String id) throws InvalidOperationException {
+        Vehicle vehicle = fleetManager.findVehicle(id);
+        if (vehicle == null) {
+            throw new InvalidOperationException("Vehicle with ID " + id + " not found on node " + name + ".");
+        }
+        fleetManager.removeVehicle(id);
+        return vehicle;
+    }
+
+    @Override
+    public Vehicle getVehicle(String id) throws InvalidOperationException {
+        Vehicle vehicle = fleetManager.findVehicle(id);
+        if (vehicle == null) {
+            throw new InvalidOperationException("Vehicle with ID " + id + " not found on node " + name + ".");
+        }
+        return vehicle;
+    }
+
+    @Override
+    public void removeVehicle(String id) throws InvalidOperationException {
+        fleetManager.removeVehicle(id);
+    }
+
+    @Override
+    public List<String> vehicleIds() {
+        List<String> ids = new ArrayList<>();
+        for (Vehicle vehicle : fleetManager.snapshot().getVehicles()) {
+            ids.add(vehicle.getId());
+        }
+        return ids;
+    }
+
+    @Override
+    public void startAllJourneys(double distance) {
+        fleetManager.startAllJourneys(distance);
+    }
+
+    @Override
+    public void maintainAll() {
+        fleetManager.maintainAll();
+    }
+
+    @Override
+    public List<Vehicle> searchByType(Class<?> type) {
+        return fleetManager.searchByType(type);
+    }
+
+    @Override
+    public ReportAggregate reportAggregate() {
+        return ReportAggregate.of(fleetManager.snapshot());
+    }
+}
@@ -0,0 +1,131 @@
+package cluster;
+
+import management.ReportAggregate;
+import registry.VehicleTypeRegistry;
+import vehicles.Vehicle;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Line-based protocol between a coordinator and a {@link FleetNodeServer}.
+ * A request is one line, {@code COMMAND[\targ]}. A reply is either a single
+ * {@code ERR\tmessage} line, or {@code OK}, any payload lines, then {@code END}.
+ */
+final class NodeProtocol {
+
+    static final String ADD = "ADD";
+    static final String TAKE = "TAKE";
+    static final String GET = "GET";
+    static final String REMOVE = "REMOVE";
+    static final String IDS = "IDS";
+    static final String JOURNEYS = "JOURNEYS";
+    static final String MAINTAIN = "MAINTAIN";
+    static final String SEARCH = "SEARCH";
+    static final String REPORT = "REPORT";
+
+    static final String OK = "OK";
+    static final String ERR = "ERR";
+    static final String END = "END";
+
+    private NodeProtocol() {
+    }
+
+    /** A vehicle is sent as its CSV record, which carries its runtime state too. */
+    static String encodeVehicle(Vehicle vehicle) {
+        return VehicleTypeRegistry.getDefault().csv().encode(vehicle);
+    }
+
+    static Vehicle decodeVehicle(String line) throws IOException {
+        return VehicleTypeRegistry.getDefault().csv().decode(line);
+    }
+
+    static List<String> encodeAggregate(ReportAggregate aggregate) {
+        List<String> lines = new ArrayList<>();
+        aggregate.getCountByType().forEach((type, count) -> lines.add("TYPE\t" + type + "\t" + count));
+        lines.add("EFFICIENCY\t" + aggregate.getEfficiencySum() + "\t" + aggregate.getEfficiencyCount());
+        lines.add("MILEAGE\t" + aggregate.getTotalMileage());
+        for (ReportAggregate.MaintenanceEntry entry : aggregate.getNeedsMaintenance()) {
+            lines.add("MAINTENANCE\t" + entry.getId() + "\t" + entry.getMileage());
+        }
+        return lines;
+    }
+
+    static ReportAggregate decodeAggregate(List<String> lines) throws IOException {
+        ReportAggregate aggregate = new ReportAggregate();
+        for (String line : lines) {
+            String[] parts = line.split("\t");
+            try {
+                switch (parts[0]) {
+                    case "TYPE":
+                        aggregate.addTypeCount(parts[1], Long.parseLong(parts[2]));
+                        break;
+                    case "EFFICIENCY":
+                        aggregate.addEfficiency(Double.parseDouble(parts[1]), Long.parseLong(parts[2]));
+                        break;
+                    case "MILEAGE":
+                        aggregate.addMileage(Double.parseDouble(parts[1]));
+                        break;
+                    case "MAINTENANCE":
+                        aggregate.addMaintenanceEntry(parts[1], Double.parseDouble(parts[2]));
+                        break;
+                    default:
+                        throw new IOException("Unknown report line: " + line);
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Malformed report line: " + line, e);
+            }
+        }
+        return aggregate;
+    }
+
+    static void writeOk(PrintWriter out, List<String> payload) {
+        out.println(OK);
+        for (String line : payload) {
+            out.println(line);
+        }
+        out.println(END);
+        out.flush();
+    }
+
+    static void writeError(PrintWriter out, String message) {
+        out.println(ERR + "\t" + (message == null ? "" : message.replace('\n', ' ')));
+        out.flush();
+    }
+
+    /** Reads a reply. Returns the payload, or throws {@link RemoteException} for an {@code ERR} reply. */
+    static List<String> readReply(BufferedReader in) throws IOException {
+        String status = in.readLine();
+        if (status == null) {
+            throw new IOException("Connection closed by fleet node.");
+        }
+        if (status.startsWith(ERR)) {
+            throw new RemoteException(status.length() > ERR.length() ? status.substring(ERR.length() + 1) : "");
+        }
+        if (!status.equals(OK)) {
+            throw new IOException("Unexpected reply from fleet node: " + status);
+        }
+        List<String> payload = new ArrayList<>();
+        String line;
+        while ((line = in.readLine()) != null && !line.equals(END)) {
+            payload.add(line);
+        }
+        if (line == null) {
+            throw new IOException("Connection closed by fleet node.");
+        }
+        return payload;
+    }
+
+    /** An error reported by the node itself, as opposed to a transport failure. */
+    static class RemoteException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        RemoteException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package cluster;
+
+import exceptions.InvalidOperationException;
+import management.ReportAggregate;
+import vehicles.Vehicle;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Client side of a {@link FleetNodeServer}. One connection, one request at a time.
+ */
+public class RemoteFleetNode implements FleetNode, Closeable {
+
+    private final String name;
+    private final Socket socket;
+    private final BufferedReader in;
+    private final PrintWriter out;
+
+    public RemoteFleetNode(String name, String host, int port) throws IOException {
+        this.name = name;
+        this.socket = new Socket(host, port);
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void addVehicle(Vehicle vehicle) throws IOException, InvalidOperationException {
+        requestOrInvalid(NodeProtocol.ADD, NodeProtocol.encodeVehicle(vehicle));
+    }
+
+    @Override
+    public Vehicle takeVehicle(String id) throws IOException, InvalidOperationException {
+        List<String> reply = requestOrInvalid(NodeProtocol.TAKE, id);
+        if (reply.size() != 1) {
+            throw new IOException("Unexpected reply from fleet node " + name + " to TAKE.");
+        }
+        return NodeProtocol.decodeVehicle(reply.get(0));
+    }
+
+    @Override
+    public Vehicle getVehicle(String id) throws IOException, InvalidOperationException {
+        List<String> reply = requestOrInvalid(NodeProtocol.GET, id);
+        if (reply.size() != 1) {
+            throw new IOException("Unexpected reply from fleet node " + name + " to GET.");
+        }
+        return NodeProtocol.decodeVehicle(reply.get(0));
+    }
+
+    @Override
+    public void removeVehicle(String id) throws IOException, InvalidOperationException {
+        requestOrInvalid(NodeProtocol.REMOVE, id);
+    }
+
+    @Override
+    public List<String> vehicleIds() throws IOException {
+        return request(NodeProtocol.IDS, null);
+    }
+
+    @Override
+    public void startAllJourneys(double distance) throws IOException {
+        request(NodeProtocol.JOURNEYS, Double.toString(distance));
+    }
+
+    @Override
+    public void maintainAll() throws IOException {
+        request(NodeProtocol.MAINTAIN, null);
+    }
+
+    @Override
+    public List<Vehicle> searchByType(Class<?> type) throws IOException {
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (String line : request(NodeProtocol.SEARCH, type.getSimpleName())) {
+            vehicles.add(NodeProtocol.decodeVehicle(line));
+        }
+        return vehicles;
+    }
+
+    @Override
+    public ReportAggregate reportAggregate() throws IOException {
+        return NodeProtocol.decodeAggregate(request(NodeProtocol.REPORT, null));
+    }
+
+    private List<String> requestOrInvalid(String command, String argument) throws IOException, InvalidOperationException {
+        try {
+            return request(command, argument);
+        } catch (NodeProtocol.RemoteException e) {
+            throw new InvalidOperationException(e.getMessage());
+        }
+    }
+
+    private synchronized List<String> request(String command, String argument) throws IOException {
+        out.println(argument == null ? command : command + "\t" + argument);
+        out.flush();
+        return NodeProtocol.readReply(in);
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
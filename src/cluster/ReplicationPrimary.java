@@ -0,0 +1,207 @@
+package cluster;
+
+import management.FleetManager;
+import registry.BinaryVehicleWriter;
+import vehicles.Vehicle;
+import vehicles.VehicleState;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ships the state of a {@link FleetManager} to a {@link ReplicationStandby}.
+ * Every {@link #replicate()} compares each vehicle's runtime state with what
+ * was last shipped and sends one compressed, sequence-numbered frame with
+ * only the vehicles and fields that changed. A standby that connects (or
+ * reconnects) with a different sequence number first gets a full snapshot.
+ */
+public class ReplicationPrimary implements Closeable {
+
+    private final FleetManager fleetManager;
+    private final String host;
+    private final int port;
+
+    private Socket socket;
+    private DataOutputStream out;
+    private long sequence;
+    private final Map<String, Vehicle> shippedVehicles = new HashMap<>();
+    private final Map<String, VehicleState> shippedStates = new HashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public ReplicationPrimary(FleetManager fleetManager, String host, int port) {
+        this.fleetManager = fleetManager;
+        this.host = host;
+        this.port = port;
+    }
+
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /** Replicates in the background at a fixed interval until closed. */
+    public synchronized void start(long interval, TimeUnit unit) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "fleet-replication");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                replicate();
+            } catch (IOException e) {
+                System.err.println("Replication to standby failed, will retry: " + e.getMessage());
+            }
+        }, 0, interval, unit);
+    }
+
+    /** Sends one frame with everything that changed since the last one. Returns the bytes sent. */
+    public synchronized int replicate() throws IOException {
+        try {
+            boolean needsSnapshot = connect();
+            List<Vehicle> vehicles = fleetManager.snapshot().getVehicles();
+            return needsSnapshot ? sendSnapshot(vehicles) : sendDelta(vehicles);
+        } catch (IOException e) {
+            disconnect();
+            throw e;
+        }
+    }
+
+    /** Connects if needed. Returns true when the standby has to be sent a snapshot. */
+    private boolean connect() throws IOException {
+        if (socket != null) {
+            return false;
+        }
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        long standbySequence = in.readLong();
+        return standbySequence != sequence || sequence == 0;
+    }
+
+    private int sendSnapshot(List<Vehicle> vehicles) throws IOException {
+        shippedVehicles.clear();
+        shippedStates.clear();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bytes);
+        body.writeInt(vehicles.size());
+        BinaryVehicleWriter writer = new BinaryVehicleWriter(body);
+        for (Vehicle vehicle : vehicles) {
+            VehicleState state = vehicle.captureState();
+            writer.write(vehicle, state);
+            remember(vehicle, state);
+        }
+        return send(ReplicationProtocol.SNAPSHOT, bytes);
+    }
+
+    private int sendDelta(List<Vehicle> vehicles) throws IOException {
+        Map<String, Vehicle> current = new HashMap<>();
+        for (Vehicle vehicle : vehicles) {
+            current.put(key(vehicle.getId()), vehicle);
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (Map.Entry<String, Vehicle> shipped : shippedVehicles.entrySet()) {
+            // A vehicle replaced by a different object under the same ID counts as removed and re-added.
+            if (current.get(shipped.getKey()) != shipped.getValue()) {
+                removed.add(shipped.getValue().getId());
+            }
+        }
+        for (String id : removed) {
+            shippedVehicles.remove(key(id));
+            shippedStates.remove(key(id));
+        }
+
+        ByteArrayOutputStream addedBytes = new ByteArrayOutputStream();
+        BinaryVehicleWriter added = new BinaryVehicleWriter(new DataOutputStream(addedBytes));
+        ByteArrayOutputStream updatedBytes = new ByteArrayOutputStream();
+        DataOutputStream updated = new DataOutputStream(updatedBytes);
+        int addedCount = 0;
+        int updatedCount = 0;
+        for (Vehicle vehicle : vehicles) {
+            VehicleState state = vehicle.captureState();
+            VehicleState previous = shippedStates.get(key(vehicle.getId()));
+            if (previous == null) {
+                added.write(vehicle, state);
+                addedCount++;
+            } else {
+                int mask = ReplicationProtocol.changedFields(previous, state);
+                if (mask == 0) {
+                    continue;
+                }
+                updated.writeUTF(vehicle.getId());
+                ReplicationProtocol.writeFields(updated, state, mask);
+                updatedCount++;
+            }
+            remember(vehicle, state);
+        }
+
+        if (removed.isEmpty() && addedCount == 0 && updatedCount == 0) {
+            return 0;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bytes);
+        body.writeInt(removed.size());
+        for (String id : removed) {
+            body.writeUTF(id);
+        }
+        body.writeInt(addedCount);
+        addedBytes.writeTo(body);
+        body.writeInt(updatedCount);
+        updatedBytes.writeTo(body);
+        return send(ReplicationProtocol.DELTA, bytes);
+    }
+
+    private int send(byte type, ByteArrayOutputStream body) throws IOException {
+        sequence++;
+        int before = out.size();
+        ReplicationProtocol.writeFrame(out, type, sequence, body.toByteArray());
+        return out.size() - before;
+    }
+
+    private void remember(Vehicle vehicle, VehicleState state) {
+        shippedVehicles.put(key(vehicle.getId()), vehicle);
+        shippedStates.put(key(vehicle.getId()), state);
+    }
+
+    private void disconnect() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already broken, nothing else to do.
+            }
+        }
+        socket = null;
+        out = null;
+    }
+
+    private static String key(String id) {
+        return id.toLowerCase();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        disconnect();
+    }
+}
@@ -0,0 +1,136 @@
+package cluster;
+
+import vehicles.VehicleState;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary frames shipped from a {@link ReplicationPrimary} to a
+ * {@link ReplicationStandby}. Each frame is
+ * {@code [type:byte][sequence:long][rawLength:int][compressedLength:int][deflated body]}.
+ *
+ * A snapshot body is a vehicle count followed by full records (written with a
+ * {@link registry.BinaryVehicleWriter}). A delta body is a list of removed
+ * IDs, a list of added full records, and a list of
+ * field updates, each one an ID, a bitmask of changed fields, then only
+ * those fields.
+ */
+final class ReplicationProtocol {
+
+    static final byte SNAPSHOT = 1;
+    static final byte DELTA = 2;
+
+    static final int MILEAGE = 1;
+    static final int FUEL = 1 << 1;
+    static final int CARGO = 1 << 2;
+    static final int PASSENGERS = 1 << 3;
+    static final int MAINTENANCE = 1 << 4;
+    static final int ALL_FIELDS = MILEAGE | FUEL | CARGO | PASSENGERS | MAINTENANCE;
+
+    private ReplicationProtocol() {
+    }
+
+    static int changedFields(VehicleState before, VehicleState after) {
+        int mask = 0;
+        if (Double.compare(before.getMileage(), after.getMileage()) != 0) {
+            mask |= MILEAGE;
+        }
+        if (Double.compare(before.getFuelLevel(), after.getFuelLevel()) != 0) {
+            mask |= FUEL;
+        }
+        if (Double.compare(before.getCurrentCargo(), after.getCurrentCargo()) != 0) {
+            mask |= CARGO;
+        }
+        if (before.getCurrentPassengers() != after.getCurrentPassengers()) {
+            mask |= PASSENGERS;
+        }
+        if (before.isMaintenanceNeeded() != after.isMaintenanceNeeded()) {
+            mask |= MAINTENANCE;
+        }
+        return mask;
+    }
+
+    static void writeFields(DataOutputStream out, VehicleState state, int mask) throws IOException {
+        out.writeByte(mask);
+        if ((mask & MILEAGE) != 0) {
+            out.writeDouble(state.getMileage());
+        }
+        if ((mask & FUEL) != 0) {
+            out.writeDouble(state.getFuelLevel());
+        }
+        if ((mask & CARGO) != 0) {
+            out.writeDouble(state.getCurrentCargo());
+        }
+        if ((mask & PASSENGERS) != 0) {
+            out.writeInt(state.getCurrentPassengers());
+        }
+        if ((mask & MAINTENANCE) != 0) {
+            out.writeBoolean(state.isMaintenanceNeeded());
+        }
+    }
+
+    /** Reads the fields named by the mask that precedes them; the rest come from {@code base}. */
+    static VehicleState readFields(DataInputStream in, VehicleState base, int expectedMask) throws IOException {
+        int mask = in.readUnsignedByte();
+        if ((mask & ~expectedMask) != 0) {
+            throw new IOException("Unexpected field mask in replication stream: " + mask);
+        }
+        double mileage = (mask & MILEAGE) != 0 ? in.readDouble() : base.getMileage();
+        double fuel = (mask & FUEL) != 0 ? in.readDouble() : base.getFuelLevel();
+        double cargo = (mask & CARGO) != 0 ? in.readDouble() : base.getCurrentCargo();
+        int passengers = (mask & PASSENGERS) != 0 ? in.readInt() : base.getCurrentPassengers();
+        boolean maintenance = (mask & MAINTENANCE) != 0 ? in.readBoolean() : base.isMaintenanceNeeded();
+        return new VehicleState(mileage, fuel, cargo, passengers, maintenance);
+    }
+
+    static void writeFrame(DataOutputStream out, byte type, long sequence, byte[] body) throws IOException {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, body.length / 2));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                compressed.write(buffer, 0, n);
+            }
+            out.writeByte(type);
+            out.writeLong(sequence);
+            out.writeInt(body.length);
+            out.writeInt(compressed.size());
+            compressed.writeTo(out);
+            out.flush();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static byte[] readBody(DataInputStream in, int rawLength, int compressedLength) throws IOException {
+        byte[] compressed = new byte[compressedLength];
+        in.readFully(compressed);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] body = new byte[rawLength];
+            int read = 0;
+            while (read < rawLength) {
+                int n = inflater.inflate(body, read, rawLength - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("Truncated replication frame.");
+                }
+                read += n;
+            }
+            return body;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt replication frame.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
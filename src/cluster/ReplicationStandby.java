@@ -0,0 +1,175 @@
+package cluster;
+
+import management.FleetManager;
+import management.FleetSnapshot;
+import registry.BinaryVehicleReader;
+import vehicles.Vehicle;
+import vehicles.VehicleState;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Warm standby fed by a {@link ReplicationPrimary}. It keeps a replica fleet
+ * up to date and serves read-only reports from it. On failover,
+ * {@link #promote()} stops replication and hands the replica over as the new
+ * live fleet.
+ */
+public class ReplicationStandby implements Closeable {
+
+    private final FleetManager replica = new FleetManager();
+    private final Map<String, Vehicle> vehicles = new LinkedHashMap<>();
+    private final ServerSocket serverSocket;
+    private volatile long lastSequence;
+    // Set by close(), and so by promote(); stops the receiver.
+    private volatile boolean closed;
+    private Socket connection;
+
+    public ReplicationStandby(int port) throws IOException {
+        this.serverSocket = new ServerSocket(port, 1, InetAddress.getLoopbackAddress());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public void start() {
+        Thread receiver = new Thread(this::receiveLoop, "fleet-standby");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    public FleetSnapshot snapshot() {
+        return replica.snapshot();
+    }
+
+    public String generateReport() {
+        return replica.generateReport();
+    }
+
+    public List<Vehicle> searchByType(Class<?> type) {
+        return replica.searchByType(type);
+    }
+
+    public List<Vehicle> getVehiclesNeedingMaintenance() {
+        return replica.getVehiclesNeedingMaintenance();
+    }
+
+    /** Stops replicating and returns the replica as a fleet that may now be written to. */
+    public FleetManager promote() throws IOException {
+        close();
+        return replica;
+    }
+
+    private void receiveLoop() {
+        while (!closed) {
+            try (Socket socket = serverSocket.accept()) {
+                synchronized (this) {
+                    connection = socket;
+                }
+                receive(socket);
+            } catch (SocketException | EOFException e) {
+                // Primary went away or we were closed; wait for the next connection.
+            } catch (IOException e) {
+                System.err.println("Standby dropped replication stream: " + e.getMessage());
+            }
+        }
+    }
+
+    private void receive(Socket socket) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeLong(lastSequence);
+        out.flush();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        while (!closed) {
+            byte type = in.readByte();
+            long sequence = in.readLong();
+            int rawLength = in.readInt();
+            int compressedLength = in.readInt();
+            byte[] body = ReplicationProtocol.readBody(in, rawLength, compressedLength);
+            DataInputStream frame = new DataInputStream(new ByteArrayInputStream(body));
+            if (type == ReplicationProtocol.SNAPSHOT) {
+                applySnapshot(frame);
+            } else if (type == ReplicationProtocol.DELTA) {
+                if (sequence != lastSequence + 1) {
+                    // Missed a frame; dropping the connection makes the primary resend a snapshot.
+                    throw new IOException("Replication gap: expected " + (lastSequence + 1) + " but got " + sequence);
+                }
+                applyDelta(frame);
+            } else {
+                throw new IOException("Unknown replication frame type: " + type);
+            }
+            lastSequence = sequence;
+        }
+    }
+
+    private void applySnapshot(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        BinaryVehicleReader reader = new BinaryVehicleReader(in);
+        vehicles.clear();
+        for (int i = 0; i < count; i++) {
+            Vehicle vehicle = reader.read();
+            vehicles.put(key(vehicle.getId()), vehicle);
+        }
+        replica.replaceFleet(new ArrayList<>(vehicles.values()));
+    }
+
+    private void applyDelta(DataInputStream in) throws IOException {
+        int removedCount = in.readInt();
+        for (int i = 0; i < removedCount; i++) {
+            vehicles.remove(key(in.readUTF()));
+        }
+        int addedCount = in.readInt();
+        BinaryVehicleReader reader = new BinaryVehicleReader(in);
+        for (int i = 0; i < addedCount; i++) {
+            Vehicle vehicle = reader.read();
+            vehicles.put(key(vehicle.getId()), vehicle);
+        }
+        int updatedCount = in.readInt();
+        for (int i = 0; i < updatedCount; i++) {
+            String id = in.readUTF();
+            Vehicle vehicle = vehicles.get(key(id));
+            if (vehicle == null) {
+                throw new IOException("Replicated update for unknown vehicle " + id);
+            }
+            VehicleState base = vehicle.captureState();
+            vehicle.restoreState(ReplicationProtocol.readFields(in, base, ReplicationProtocol.ALL_FIELDS));
+        }
+        if (removedCount > 0 || addedCount > 0) {
+            replica.replaceFleet(new ArrayList<>(vehicles.values()));
+        }
+    }
+
+    private static String key(String id) {
+        return id.toLowerCase();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        synchronized (this) {
+            if (connection != null) {
+                connection.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package cluster;
+
+import exceptions.InvalidOperationException;
+import management.ReportAggregate;
+import vehicles.Vehicle;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Spreads one logical fleet over several {@link FleetNode}s. Vehicles are
+ * placed by ID on a consistent-hash ring. Fleet-wide operations fan out to
+ * every node in parallel, and report aggregates are merged. When a node
+ * joins, only the vehicles whose ring position now maps to it are moved.
+ * <p>
+ * A vehicle is moved by adding a copy to its new node and only then
+ * removing it from the old one, so a failed move never loses it. If a move
+ * fails, the vehicles already moved are moved back and the ring is
+ * restored, so every vehicle stays on the node the ring routes it to.
+ * <p>
+ * Adding and removing nodes holds the routing lock exclusively. Single
+ * vehicle adds and removes hold it shared from the ring lookup until the
+ * node has applied the change, so a vehicle never lands on a node that has
+ * just handed its key range to another.
+ */
+public class ShardedFleetCoordinator implements AutoCloseable {
+
+    private final ConsistentHashRing<FleetNode> ring = new ConsistentHashRing<>();
+    private final Map<String, FleetNode> nodes = new LinkedHashMap<>();
+    private final ReadWriteLock routing = new ReentrantReadWriteLock();
+    private final ExecutorService fanOut = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "fleet-coordinator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Adds a node and moves the vehicles it now owns off the other nodes.
+     * Returns how many vehicles were moved.
+     */
+    public int addNode(FleetNode node) throws IOException, InvalidOperationException {
+        routing.writeLock().lock();
+        try {
+            return addNodeLocked(node);
+        } finally {
+            routing.writeLock().unlock();
+        }
+    }
+
+    private int addNodeLocked(FleetNode node) throws IOException, InvalidOperationException {
+        if (nodes.containsKey(node.getName())) {
+            throw new InvalidOperationException("A node named " + node.getName() + " is already part of the fleet.");
+        }
+        List<FleetNode> existing = new ArrayList<>(nodes.values());
+        nodes.put(node.getName(), node);
+        ring.add(node.getName(), node);
+
+        List<Move> moved = new ArrayList<>();
+        try {
+            for (FleetNode other : existing) {
+                for (String id : other.vehicleIds()) {
+                    if (ring.nodeFor(key(id)) == node) {
+                        moved.add(move(id, other, node));
+                    }
+                }
+            }
+        } catch (IOException | InvalidOperationException e) {
+            undo(moved, e);
+            nodes.remove(node.getName());
+            ring.remove(node.getName());
+            throw e;
+        }
+        return moved.size();
+    }
+
+    /**
+     * Removes a node and hands its vehicles to the remaining nodes.
+     * Returns how many vehicles were moved.
+     */
+    public int removeNode(String name) throws IOException, InvalidOperationException {
+        routing.writeLock().lock();
+        try {
+            return removeNodeLocked(name);
+        } finally {
+            routing.writeLock().unlock();
+        }
+    }
+
+    private int removeNodeLocked(String name) throws IOException, InvalidOperationException {
+        FleetNode node = nodes.get(name);
+        if (node == null) {
+            throw new InvalidOperationException("No node named " + name + " is part of the fleet.");
+        }
+        List<String> ids = node.vehicleIds();
+        if (!ids.isEmpty() && nodes.size() == 1) {
+            throw new InvalidOperationException("Cannot remove the last node while it still holds vehicles.");
+        }
+        Map<String, FleetNode> before = new LinkedHashMap<>(nodes);
+        nodes.remove(name);
+        ring.remove(name);
+        List<Move> moved = new ArrayList<>();
+        try {
+            for (String id : ids) {
+                moved.add(move(id, node, ring.nodeFor(key(id))));
+            }
+        } catch (IOException | InvalidOperationException e) {
+            undo(moved, e);
+            nodes.clear();
+            nodes.putAll(before);
+            ring.add(name, node);
+            throw e;
+        }
+        return ids.size();
+    }
+
+    /** Copies the vehicle to the target, then removes it from the source; on failure it stays where it was. */
+    private static Move move(String id, FleetNode from, FleetNode to) throws IOException, InvalidOperationException {
+        to.addVehicle(from.getVehicle(id));
+        try {
+            from.removeVehicle(id);
+        } catch (IOException | InvalidOperationException e) {
+            try {
+                to.removeVehicle(id);
+            } catch (IOException | InvalidOperationException undo) {
+                e.addSuppressed(undo);
+            }
+            throw e;
+        }
+        return new Move(id, from, to);
+    }
+
+    /** Moves vehicles back, newest first. Failures are attached to the original error. */
+    private static void undo(List<Move> moved, Exception failure) {
+        for (int i = moved.size() - 1; i >= 0; i--) {
+            Move m = moved.get(i);
+            try {
+                move(m.id, m.to, m.from);
+            } catch (IOException | InvalidOperationException e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    public int getNodeCount() {
+        routing.readLock().lock();
+        try {
+            return nodes.size();
+        } finally {
+            routing.readLock().unlock();
+        }
+    }
+
+    /** The node the vehicle is routed to now; a rebalance may move it at any time after this returns. */
+    public FleetNode nodeFor(String vehicleId) {
+        routing.readLock().lock();
+        try {
+            return ring.nodeFor(key(vehicleId));
+        } finally {
+            routing.readLock().unlock();
+        }
+    }
+
+    public void addVehicle(Vehicle vehicle) throws IOException, InvalidOperationException {
+        routing.readLock().lock();
+        try {
+            ring.nodeFor(key(vehicle.getId())).addVehicle(vehicle);
+        } finally {
+            routing.readLock().unlock();
+        }
+    }
+
+    public Vehicle removeVehicle(String id) throws IOException, InvalidOperationException {
+        routing.readLock().lock();
+        try {
+            return ring.nodeFor(key(id)).takeVehicle(id);
+        } finally {
+            routing.readLock().unlock();
+        }
+    }
+
+    public void startAllJourneys(double distance) throws IOException {
+        forEachNode(node -> {
+            node.startAllJourneys(distance);
+            return null;
+        });
+    }
+
+    public void maintainAll() throws IOException {
+        forEachNode(node -> {
+            node.maintainAll();
+            return null;
+        });
+    }
+
+    public List<Vehicle> searchByType(Class<?> type) throws IOException {
+        List<Vehicle> results = new ArrayList<>();
+        for (List<Vehicle> partial : forEachNode(node -> node.searchByType(type))) {
+            results.addAll(partial);
+        }
+        return results;
+    }
+
+    public ReportAggregate reportAggregate() throws IOException {
+        ReportAggregate merged = new ReportAggregate();
+        for (ReportAggregate partial : forEachNode(FleetNode::reportAggregate)) {
+            merged.merge(partial);
+        }
+        return merged;
+    }
+
+    public String generateReport() throws IOException {
+        return reportAggregate().render();
+    }
+
+    private <T> List<T> forEachNode(NodeCall<T> call) throws IOException {
+        List<Future<T>> futures = new ArrayList<>();
+        routing.readLock().lock();
+        try {
+            for (FleetNode node : nodes.values()) {
+                futures.add(fanOut.submit((Callable<T>) () -> call.apply(node)));
+            }
+        } finally {
+            routing.readLock().unlock();
+        }
+        List<T> results = new ArrayList<>();
+        IOException failure = null;
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                IOException cause = e.getCause() instanceof IOException
+                        ? (IOException) e.getCause()
+                        : new IOException(e.getCause());
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for fleet nodes.", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    private static String key(String vehicleId) {
+        return vehicleId.toLowerCase();
+    }
+
+    @Override
+    public void close() {
+        fanOut.shutdown();
+    }
+
+    private static final class Move {
+
+        final String id;
+        final FleetNode from;
+        final FleetNode to;
+
+        Move(String id, FleetNode from, FleetNode to) {
+            this.id = id;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private interface NodeCall<T> {
+        T apply(FleetNode node) throws IOException;
+    }
+}
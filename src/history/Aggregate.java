@@ -0,0 +1,128 @@
+package history;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Summary of one metric over a time range. Besides the usual minimum,
+ * maximum and average it tracks how much the value rose and fell between
+ * consecutive samples, so "fuel used" is {@link #getDecrease()} even when the
+ * vehicle was refueled in between. Aggregates of adjacent ranges merge
+ * exactly, which is what lets stored rollups answer range queries.
+ */
+public final class Aggregate {
+
+    private int count;
+    private double first = Double.NaN;
+    private double last = Double.NaN;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private double sum;
+    private double fall;
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getFirst() {
+        return first;
+    }
+
+    public double getLast() {
+        return last;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getAverage() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    /** Sum of all rises between consecutive samples, e.g. distance driven for mileage. */
+    public double getIncrease() {
+        return count == 0 ? 0 : last - first + fall;
+    }
+
+    /** Sum of all drops between consecutive samples, e.g. fuel used for fuel level. */
+    public double getDecrease() {
+        return fall;
+    }
+
+    /** Adds the next sample in time order; NaN values are skipped. */
+    void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (count == 0) {
+            first = value;
+            min = value;
+            max = value;
+        } else {
+            if (value < last) {
+                fall += last - value;
+            }
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        last = value;
+        sum += value;
+        count++;
+    }
+
+    /** Appends an aggregate of the range directly after this one. */
+    void merge(Aggregate next) {
+        if (next.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            first = next.first;
+            min = next.min;
+            max = next.max;
+        } else {
+            if (next.first < last) {
+                fall += last - next.first;
+            }
+            min = Math.min(min, next.min);
+            max = Math.max(max, next.max);
+        }
+        last = next.last;
+        sum += next.sum;
+        fall += next.fall;
+        count += next.count;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(count);
+        out.writeDouble(first);
+        out.writeDouble(last);
+        out.writeDouble(min);
+        out.writeDouble(max);
+        out.writeDouble(sum);
+        out.writeDouble(fall);
+    }
+
+    static Aggregate readFrom(ByteBuffer in) {
+        Aggregate aggregate = new Aggregate();
+        aggregate.count = in.getInt();
+        aggregate.first = in.getDouble();
+        aggregate.last = in.getDouble();
+        aggregate.min = in.getDouble();
+        aggregate.max = in.getDouble();
+        aggregate.sum = in.getDouble();
+        aggregate.fall = in.getDouble();
+        return aggregate;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d min=%.2f max=%.2f avg=%.2f first=%.2f last=%.2f up=%.2f down=%.2f",
+                count, min, max, getAverage(), first, last, getIncrease(), getDecrease());
+    }
+}
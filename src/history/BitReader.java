@@ -0,0 +1,54 @@
+package history;
+
+import java.nio.ByteBuffer;
+
+/** Reads back what a {@link BitWriter} wrote, from any position of a buffer. */
+final class BitReader {
+
+    private final ByteBuffer buffer;
+    private int position;
+    private long pending;
+    private int pendingBits;
+
+    BitReader(ByteBuffer buffer, int position) {
+        this.buffer = buffer;
+        this.position = position;
+    }
+
+    boolean readBit() {
+        return read(1) != 0;
+    }
+
+    long read(int bits) {
+        if (bits > 32) {
+            long high = readChunk(bits - 32);
+            return (high << 32) | readChunk(32);
+        }
+        return readChunk(bits);
+    }
+
+    long readDelta() {
+        if (!readBit()) {
+            return 0;
+        }
+        if (!readBit()) {
+            return read(7) - 63;
+        }
+        if (!readBit()) {
+            return read(9) - 255;
+        }
+        if (!readBit()) {
+            return read(12) - 2047;
+        }
+        return read(64);
+    }
+
+    private long readChunk(int bits) {
+        while (pendingBits < bits) {
+            pending = (pending << 8) | (buffer.get(position++) & 0xFF);
+            pendingBits += 8;
+        }
+        pendingBits -= bits;
+        return (pending >>> pendingBits) & (-1L >>> (64 - bits));
+    }
+}
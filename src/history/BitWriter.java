@@ -0,0 +1,74 @@
+package history;
+
+import java.util.Arrays;
+
+/** Appends values of 1 to 64 bits, most significant bit first. */
+final class BitWriter {
+
+    private byte[] bytes = new byte[32];
+    private int length;
+    private long pending;
+    private int pendingBits;
+
+    void writeBit(boolean bit) {
+        write(bit ? 1 : 0, 1);
+    }
+
+    void write(long value, int bits) {
+        if (bits > 32) {
+            writeChunk(value >>> 32, bits - 32);
+            writeChunk(value, 32);
+        } else {
+            writeChunk(value, bits);
+        }
+    }
+
+    /**
+     * Writes a delta-of-delta with the variable-length buckets from the
+     * Gorilla paper: a zero costs one bit, small values a short prefix plus
+     * 7, 9 or 12 bits, anything else a four-bit prefix plus all 64 bits.
+     */
+    void writeDelta(long value) {
+        if (value == 0) {
+            write(0b0, 1);
+        } else if (value >= -63 && value <= 64) {
+            write(0b10, 2);
+            write(value + 63, 7);
+        } else if (value >= -255 && value <= 256) {
+            write(0b110, 3);
+            write(value + 255, 9);
+        } else if (value >= -2047 && value <= 2048) {
+            write(0b1110, 4);
+            write(value + 2047, 12);
+        } else {
+            write(0b1111, 4);
+            write(value, 64);
+        }
+    }
+
+    long bitLength() {
+        return length * 8L + pendingBits;
+    }
+
+    /** The bits written so far, zero-padded to a whole byte. */
+    byte[] toByteArray() {
+        byte[] result = Arrays.copyOf(bytes, length + (pendingBits > 0 ? 1 : 0));
+        if (pendingBits > 0) {
+            result[length] = (byte) (pending << (8 - pendingBits));
+        }
+        return result;
+    }
+
+    private void writeChunk(long value, int bits) {
+        // At most 7 bits are left over from earlier writes, so 7 + 32 bits always fit.
+        pending = (pending << bits) | (value & (-1L >>> (64 - bits)));
+        pendingBits += bits;
+        while (pendingBits >= 8) {
+            pendingBits -= 8;
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[length++] = (byte) (pending >>> pendingBits);
+        }
+    }
+}
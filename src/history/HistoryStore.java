@@ -0,0 +1,273 @@
+package history;
+
+import management.FleetSnapshot;
+import vehicles.Vehicle;
+import vehicles.VehicleState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Embedded, append-only history of vehicle mileage and fuel level.
+ * <p>
+ * Time is cut into fixed blocks (two hours by default). Samples of the
+ * current block are compressed in memory as they arrive: timestamps as
+ * delta-of-deltas and values with Gorilla-style XOR encoding (see
+ * {@link ValueColumn}). Each block is stored as one segment file named
+ * after its start time, and sealed segments are read through memory
+ * mappings. Every segment also holds per-vehicle rollups at a coarser step
+ * (an hour by default), so aggregates over long ranges only decode the
+ * samples at the two ends of the range.
+ * <p>
+ * Mileage and fuel level are rounded to a fixed number of decimals
+ * ({@link #DEFAULT_PRECISION}, i.e. 10 m and 10 ml, unless configured)
+ * before they are encoded. That is finer than odometers and fuel gauges
+ * report, and it is what keeps samples small: values computed by the
+ * vehicles carry arbitrary low-order bits that would otherwise go through
+ * the XOR path at 6-7 bytes each. {@link #LOSSLESS} keeps every bit.
+ * <p>
+ * The open block is lost on a crash unless {@link #flush()} has written it.
+ * {@link #close()} always writes it. A block that already has a segment
+ * file can still be appended to; it is loaded back and rewritten.
+ */
+public class HistoryStore implements Closeable {
+
+    public static final long DEFAULT_BLOCK_MILLIS = 2 * 60 * 60 * 1000L;
+    public static final long DEFAULT_ROLLUP_MILLIS = 60 * 60 * 1000L;
+    /** Decimals kept of mileage (km) and fuel level (l). */
+    public static final int DEFAULT_PRECISION = 2;
+    /** Precision that stores values exactly as given. */
+    public static final int LOSSLESS = -1;
+    private static final int MAX_PRECISION = 6;
+
+    private static final String SUFFIX = ".seg";
+    /** Sealed segments kept mapped at most; the least recently read is closed first. */
+    private static final int MAX_OPEN_SEGMENTS = 64;
+    private static final long NO_BLOCK = Long.MIN_VALUE;
+
+    private final Path directory;
+    private final long blockMillis;
+    private final long rollupMillis;
+    private final int precision;
+    private final NavigableMap<Long, Path> segmentFiles = new TreeMap<>();
+    private final Map<Long, Segment> openSegments = new LinkedHashMap<Long, Segment>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Segment> eldest) {
+            if (size() <= MAX_OPEN_SEGMENTS) {
+                return false;
+            }
+            eldest.getValue().close();
+            return true;
+        }
+    };
+
+    private long openBlock = NO_BLOCK;
+    private Map<String, Series> openSeries = new LinkedHashMap<>();
+
+    public HistoryStore(String directory) throws IOException {
+        this(directory, DEFAULT_BLOCK_MILLIS, DEFAULT_ROLLUP_MILLIS);
+    }
+
+    public HistoryStore(String directory, long blockMillis, long rollupMillis) throws IOException {
+        this(directory, blockMillis, rollupMillis, DEFAULT_PRECISION);
+    }
+
+    /**
+     * {@code precision} is the number of decimals kept of each value, from 0
+     * to 6, or {@link #LOSSLESS}. It applies to what is appended from now
+     * on; existing segments are read with the precision they were written with.
+     */
+    public HistoryStore(String directory, long blockMillis, long rollupMillis, int precision) throws IOException {
+        if (rollupMillis <= 0 || blockMillis % rollupMillis != 0) {
+            throw new IllegalArgumentException("The block length must be a multiple of the rollup step.");
+        }
+        if (precision != LOSSLESS && (precision < 0 || precision > MAX_PRECISION)) {
+            throw new IllegalArgumentException("Precision must be between 0 and " + MAX_PRECISION + " decimals.");
+        }
+        this.directory = Paths.get(directory);
+        this.blockMillis = blockMillis;
+        this.rollupMillis = rollupMillis;
+        this.precision = precision;
+        Files.createDirectories(this.directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segmentFiles.put(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    System.err.println("Ignoring unexpected file in history directory: " + name);
+                }
+            }
+        }
+    }
+
+    /** Records the current mileage and fuel level of a vehicle. */
+    public void record(Vehicle vehicle, long timestamp) throws IOException {
+        VehicleState state = vehicle.captureState();
+        append(vehicle.getId(), timestamp, state.getMileage(), state.getFuelLevel());
+    }
+
+    public void recordFleet(FleetSnapshot fleet, long timestamp) throws IOException {
+        for (Vehicle vehicle : fleet.getVehicles()) {
+            record(vehicle, timestamp);
+        }
+    }
+
+    /**
+     * Appends one sample. Samples of a vehicle must arrive in time order,
+     * and nothing can be appended to a block older than the newest one.
+     */
+    public synchronized void append(String vehicleId, long timestamp, double mileage, double fuelLevel)
+            throws IOException {
+        long block = timestamp - Math.floorMod(timestamp, blockMillis);
+        if (block != openBlock) {
+            long newest = Math.max(openBlock, segmentFiles.isEmpty() ? NO_BLOCK : segmentFiles.lastKey());
+            if (block < newest) {
+                throw new IllegalArgumentException("Sample at " + timestamp + " falls in an already sealed block.");
+            }
+            seal();
+            openBlock(block);
+        }
+        Series series = openSeries.get(vehicleId);
+        if (series == null) {
+            series = newSeries(block);
+            openSeries.put(vehicleId, series);
+        } else if (timestamp < series.getLastTimestamp()) {
+            throw new IllegalArgumentException("Sample at " + timestamp + " for " + vehicleId
+                    + " is older than the last one recorded.");
+        }
+        series.append(timestamp, mileage, fuelLevel);
+    }
+
+    /** Samples of one vehicle with from <= timestamp < to, oldest first. */
+    public synchronized List<Sample> samples(String vehicleId, long from, long to) throws IOException {
+        List<Sample> result = new ArrayList<>();
+        for (SeriesView series : seriesInRange(vehicleId, from, to)) {
+            result.addAll(series.samples(from, to));
+        }
+        return result;
+    }
+
+    /** One metric of one vehicle aggregated over from <= timestamp < to. */
+    public synchronized Aggregate aggregate(String vehicleId, Metric metric, long from, long to) throws IOException {
+        Aggregate result = new Aggregate();
+        for (SeriesView series : seriesInRange(vehicleId, from, to)) {
+            series.aggregateInto(result, metric, from, to);
+        }
+        return result;
+    }
+
+    /** Consecutive aggregates of {@code stepMillis} each, e.g. one point per hour for a chart. */
+    public synchronized List<Aggregate> downsample(String vehicleId, Metric metric, long from, long to,
+                                                   long stepMillis) throws IOException {
+        if (stepMillis <= 0) {
+            throw new IllegalArgumentException("Step must be positive.");
+        }
+        List<Aggregate> result = new ArrayList<>();
+        for (long start = from; start < to; start += stepMillis) {
+            result.add(aggregate(vehicleId, metric, start, Math.min(start + stepMillis, to)));
+        }
+        return result;
+    }
+
+    /** Writes the open block to its segment file; it stays open for further appends. */
+    public synchronized void flush() throws IOException {
+        if (openBlock != NO_BLOCK && !openSeries.isEmpty()) {
+            Path file = segmentFile(openBlock);
+            Segment.write(file, openBlock, blockMillis, rollupMillis,
+                    precision == LOSSLESS ? ValueColumn.LEGACY_DECIMALS : precision, openSeries);
+            segmentFiles.put(openBlock, file);
+            closeSegment(openBlock);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        seal();
+        for (Segment segment : openSegments.values()) {
+            segment.close();
+        }
+        openSegments.clear();
+    }
+
+    private void seal() throws IOException {
+        flush();
+        openBlock = NO_BLOCK;
+        openSeries = new LinkedHashMap<>();
+    }
+
+    private void openBlock(long block) throws IOException {
+        openBlock = block;
+        if (segmentFiles.containsKey(block)) {
+            // Reopened after a restart or a flush: continue from what is on disk.
+            Segment segment = segment(block);
+            for (Map.Entry<String, ? extends SeriesView> e : segment.getSeries().entrySet()) {
+                Series series = newSeries(block);
+                for (Sample sample : e.getValue().samples(Long.MIN_VALUE, Long.MAX_VALUE)) {
+                    series.append(sample.getTimestamp(), sample.getMileage(), sample.getFuelLevel());
+                }
+                openSeries.put(e.getKey(), series);
+            }
+            closeSegment(block);
+        }
+    }
+
+    private Series newSeries(long block) {
+        return new Series(block, rollupMillis, (int) (blockMillis / rollupMillis), precision);
+    }
+
+    private List<SeriesView> seriesInRange(String vehicleId, long from, long to) throws IOException {
+        List<SeriesView> result = new ArrayList<>();
+        if (from >= to) {
+            return result;
+        }
+        Long firstBlock = segmentFiles.floorKey(from);
+        for (long block : segmentFiles.subMap(firstBlock != null ? firstBlock : from, true, to, false).keySet()) {
+            if (block == openBlock) {
+                continue;
+            }
+            SeriesView series = segment(block).find(vehicleId);
+            if (series != null) {
+                result.add(series);
+            }
+        }
+        if (openBlock != NO_BLOCK && openBlock < to && openBlock + blockMillis > from && openSeries.containsKey(vehicleId)) {
+            result.add(openSeries.get(vehicleId));
+        }
+        return result;
+    }
+
+    private Segment segment(long block) throws IOException {
+        Segment segment = openSegments.get(block);
+        if (segment == null) {
+            segment = Segment.open(segmentFiles.get(block));
+            if (segment.getBlockMillis() != blockMillis) {
+                throw new IOException("Segment " + segmentFiles.get(block) + " was written with a block length of "
+                        + segment.getBlockMillis() + " ms, not " + blockMillis + " ms.");
+            }
+            openSegments.put(block, segment);
+        }
+        return segment;
+    }
+
+    private void closeSegment(long block) {
+        Segment segment = openSegments.remove(block);
+        if (segment != null) {
+            segment.close();
+        }
+    }
+
+    private Path segmentFile(long block) {
+        return directory.resolve(block + SUFFIX);
+    }
+}
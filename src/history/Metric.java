@@ -0,0 +1,11 @@
+package history;
+
+/** The values recorded in each sample. */
+public enum Metric {
+    MILEAGE,
+    FUEL_LEVEL;
+
+    double of(Sample sample) {
+        return this == MILEAGE ? sample.getMileage() : sample.getFuelLevel();
+    }
+}
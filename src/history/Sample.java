@@ -0,0 +1,32 @@
+package history;
+
+/** One recorded state of a vehicle. */
+public final class Sample {
+
+    private final long timestamp;
+    private final double mileage;
+    private final double fuelLevel;
+
+    public Sample(long timestamp, double mileage, double fuelLevel) {
+        this.timestamp = timestamp;
+        this.mileage = mileage;
+        this.fuelLevel = fuelLevel;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public double getMileage() {
+        return mileage;
+    }
+
+    public double getFuelLevel() {
+        return fuelLevel;
+    }
+
+    @Override
+    public String toString() {
+        return timestamp + ": " + mileage + " km, " + fuelLevel + " L";
+    }
+}
@@ -0,0 +1,208 @@
+package history;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One sealed block on disk, read through a memory mapping. Layout:
+ * <pre>
+ * header     MAGIC, blockStart, blockMillis, rollupMillis, value decimals
+ * data       the compressed bits of each series, back to back
+ * directory  per series: ID, sample count, first/last timestamp, data
+ *            offset and length, then the non-empty rollup buckets
+ * footer     directory offset, MAGIC
+ * </pre>
+ * Segments of the first format carry {@link #LEGACY_MAGIC}, count values
+ * in thousandths and use the older value layout (see {@link ValueColumn}).
+ */
+final class Segment {
+
+    static final int MAGIC = 0x46485332; // "FHS2"
+    static final int LEGACY_MAGIC = 0x46485331; // "FHS1"
+
+    private final long blockStart;
+    private final long blockMillis;
+    private final long rollupMillis;
+    private final int decimals;
+    private final boolean legacy;
+    private final Map<String, Entry> series = new HashMap<>();
+
+    private Segment(long blockStart, long blockMillis, long rollupMillis, int decimals, boolean legacy) {
+        this.blockStart = blockStart;
+        this.blockMillis = blockMillis;
+        this.rollupMillis = rollupMillis;
+        this.decimals = decimals;
+        this.legacy = legacy;
+    }
+
+    long getBlockMillis() {
+        return blockMillis;
+    }
+
+    SeriesView find(String vehicleId) {
+        return series.get(vehicleId);
+    }
+
+    Map<String, ? extends SeriesView> getSeries() {
+        return series;
+    }
+
+    /**
+     * Drops the series, and with them the last references to the mapping.
+     * Java has no supported call to unmap a buffer; the mapping goes away
+     * when the buffer is collected, which a closed segment no longer prevents.
+     */
+    void close() {
+        series.clear();
+    }
+
+    static Segment open(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int magic = buffer.capacity() < 40 ? 0 : buffer.getInt(0);
+        if ((magic != MAGIC && magic != LEGACY_MAGIC) || buffer.getInt(buffer.capacity() - 4) != magic) {
+            throw new IOException("Not a history segment: " + file);
+        }
+        int decimals = magic == MAGIC ? buffer.getInt(28) : ValueColumn.LEGACY_DECIMALS;
+        Segment segment = new Segment(buffer.getLong(4), buffer.getLong(12), buffer.getLong(20), decimals,
+                magic == LEGACY_MAGIC);
+        int bucketCount = (int) (segment.blockMillis / segment.rollupMillis);
+
+        ByteBuffer directory = buffer.duplicate();
+        directory.position((int) buffer.getLong(buffer.capacity() - 12));
+        int seriesCount = directory.getInt();
+        for (int i = 0; i < seriesCount; i++) {
+            byte[] id = new byte[directory.getInt()];
+            directory.get(id);
+            int count = directory.getInt();
+            long firstTimestamp = directory.getLong();
+            long lastTimestamp = directory.getLong();
+            int offset = directory.getInt();
+            directory.getInt(); // data length; the count says where the series ends
+            Entry entry = new Entry(segment, buffer, count, firstTimestamp, lastTimestamp, offset, bucketCount);
+            int rollupCount = directory.getInt();
+            for (int r = 0; r < rollupCount; r++) {
+                int bucket = directory.getInt();
+                entry.rollups[bucket] = new Aggregate[] { Aggregate.readFrom(directory), Aggregate.readFrom(directory) };
+            }
+            segment.series.put(new String(id, StandardCharsets.UTF_8), entry);
+        }
+        return segment;
+    }
+
+    /** Writes a block to a temporary file and renames it into place, so readers never see half a segment. */
+    static void write(Path file, long blockStart, long blockMillis, long rollupMillis, int decimals,
+                      Map<String, Series> series) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeLong(blockStart);
+            out.writeLong(blockMillis);
+            out.writeLong(rollupMillis);
+            out.writeInt(decimals);
+
+            Map<String, Integer> offsets = new HashMap<>();
+            Map<String, Integer> lengths = new HashMap<>();
+            for (Map.Entry<String, Series> e : series.entrySet()) {
+                byte[] data = e.getValue().toByteArray();
+                offsets.put(e.getKey(), out.size());
+                lengths.put(e.getKey(), data.length);
+                out.write(data);
+            }
+
+            long directoryOffset = out.size();
+            out.writeInt(series.size());
+            for (Map.Entry<String, Series> e : series.entrySet()) {
+                Series s = e.getValue();
+                byte[] id = e.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(id.length);
+                out.write(id);
+                out.writeInt(s.getCount());
+                out.writeLong(s.getFirstTimestamp());
+                out.writeLong(s.getLastTimestamp());
+                out.writeInt(offsets.get(e.getKey()));
+                out.writeInt(lengths.get(e.getKey()));
+                int rollupCount = 0;
+                for (int bucket = 0; bucket < s.getBucketCount(); bucket++) {
+                    if (s.getRollup(bucket, Metric.MILEAGE) != null) {
+                        rollupCount++;
+                    }
+                }
+                out.writeInt(rollupCount);
+                for (int bucket = 0; bucket < s.getBucketCount(); bucket++) {
+                    if (s.getRollup(bucket, Metric.MILEAGE) != null) {
+                        out.writeInt(bucket);
+                        s.getRollup(bucket, Metric.MILEAGE).writeTo(out);
+                        s.getRollup(bucket, Metric.FUEL_LEVEL).writeTo(out);
+                    }
+                }
+            }
+            out.writeLong(directoryOffset);
+            out.writeInt(MAGIC);
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static final class Entry extends SeriesView {
+
+        private final ByteBuffer buffer;
+        private final int count;
+        private final long firstTimestamp;
+        private final long lastTimestamp;
+        private final int offset;
+        private final Aggregate[][] rollups;
+
+        Entry(Segment segment, ByteBuffer buffer, int count, long firstTimestamp, long lastTimestamp,
+              int offset, int bucketCount) {
+            super(segment.blockStart, segment.rollupMillis, segment.decimals, segment.legacy);
+            this.buffer = buffer;
+            this.count = count;
+            this.firstTimestamp = firstTimestamp;
+            this.lastTimestamp = lastTimestamp;
+            this.offset = offset;
+            this.rollups = new Aggregate[bucketCount][];
+        }
+
+        @Override
+        int getCount() {
+            return count;
+        }
+
+        @Override
+        long getFirstTimestamp() {
+            return firstTimestamp;
+        }
+
+        @Override
+        long getLastTimestamp() {
+            return lastTimestamp;
+        }
+
+        @Override
+        Aggregate getRollup(int bucket, Metric metric) {
+            return rollups[bucket] == null ? null : rollups[bucket][metric.ordinal()];
+        }
+
+        @Override
+        BitReader openBits() {
+            return new BitReader(buffer, offset);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package history;
+
+import java.nio.ByteBuffer;
+
+/** The samples of one vehicle in the open block, compressed as they arrive. */
+final class Series extends SeriesView {
+
+    private final BitWriter bits = new BitWriter();
+    private final boolean quantize;
+    private final ValueColumn mileage;
+    private final ValueColumn fuel;
+    private final Aggregate[][] rollups;
+    private int count;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long previousDelta;
+
+    /** {@code precision} is the number of decimals kept, or {@link HistoryStore#LOSSLESS}. */
+    Series(long blockStart, long rollupMillis, int bucketCount, int precision) {
+        super(blockStart, rollupMillis, precision == HistoryStore.LOSSLESS ? ValueColumn.LEGACY_DECIMALS : precision,
+                false);
+        this.quantize = precision != HistoryStore.LOSSLESS;
+        this.mileage = new ValueColumn(decimals, false);
+        this.fuel = new ValueColumn(decimals, false);
+        this.rollups = new Aggregate[bucketCount][];
+        this.lastTimestamp = blockStart;
+    }
+
+    void append(long timestamp, double mileageValue, double fuelValue) {
+        if (quantize) {
+            // Rollups see the stored values too, so they agree with the samples read back.
+            mileageValue = ValueColumn.quantize(mileageValue, decimals);
+            fuelValue = ValueColumn.quantize(fuelValue, decimals);
+        }
+        long delta = timestamp - lastTimestamp;
+        bits.writeDelta(delta - previousDelta);
+        previousDelta = delta;
+        mileage.write(mileageValue, bits);
+        fuel.write(fuelValue, bits);
+
+        int bucket = bucketOf(timestamp);
+        if (rollups[bucket] == null) {
+            rollups[bucket] = new Aggregate[] { new Aggregate(), new Aggregate() };
+        }
+        rollups[bucket][Metric.MILEAGE.ordinal()].add(mileageValue);
+        rollups[bucket][Metric.FUEL_LEVEL.ordinal()].add(fuelValue);
+
+        if (count == 0) {
+            firstTimestamp = timestamp;
+        }
+        lastTimestamp = timestamp;
+        count++;
+    }
+
+    byte[] toByteArray() {
+        return bits.toByteArray();
+    }
+
+    int getBucketCount() {
+        return rollups.length;
+    }
+
+    @Override
+    int getCount() {
+        return count;
+    }
+
+    @Override
+    long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    @Override
+    long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    @Override
+    Aggregate getRollup(int bucket, Metric metric) {
+        return rollups[bucket] == null ? null : rollups[bucket][metric.ordinal()];
+    }
+
+    @Override
+    BitReader openBits() {
+        return new BitReader(ByteBuffer.wrap(bits.toByteArray()), 0);
+    }
+}
@@ -0,0 +1,93 @@
+package history;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** The samples and rollups of one vehicle within one block, whether the block is still open or sealed. */
+abstract class SeriesView {
+
+    final long blockStart;
+    final long rollupMillis;
+    // Scale of the value columns: their integer path counts in units of 10^-decimals.
+    final int decimals;
+    // Whether the values use the layout of the first segment format.
+    final boolean legacy;
+
+    SeriesView(long blockStart, long rollupMillis, int decimals, boolean legacy) {
+        this.blockStart = blockStart;
+        this.rollupMillis = rollupMillis;
+        this.decimals = decimals;
+        this.legacy = legacy;
+    }
+
+    abstract int getCount();
+
+    abstract long getFirstTimestamp();
+
+    abstract long getLastTimestamp();
+
+    /** The rollup of one bucket, or null if no sample fell into it. */
+    abstract Aggregate getRollup(int bucket, Metric metric);
+
+    abstract BitReader openBits();
+
+    List<Sample> samples(long from, long to) {
+        List<Sample> samples = new ArrayList<>();
+        BitReader in = openBits();
+        ValueColumn mileage = new ValueColumn(decimals, legacy);
+        ValueColumn fuel = new ValueColumn(decimals, legacy);
+        long timestamp = blockStart;
+        long delta = 0;
+        for (int i = 0; i < getCount(); i++) {
+            delta += in.readDelta();
+            timestamp += delta;
+            double m = mileage.read(in);
+            double f = fuel.read(in);
+            if (timestamp >= to) {
+                break;
+            }
+            if (timestamp >= from) {
+                samples.add(new Sample(timestamp, m, f));
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Adds this series' part of [from, to) to the result. Buckets that lie
+     * entirely inside the range come from their rollups; only the buckets at
+     * the edges of the range are decoded.
+     */
+    void aggregateInto(Aggregate result, Metric metric, long from, long to) {
+        if (getCount() == 0 || to <= getFirstTimestamp() || from > getLastTimestamp()) {
+            return;
+        }
+        int firstBucket = bucketOf(Math.max(from, getFirstTimestamp()));
+        int lastBucket = bucketOf(Math.min(to - 1, getLastTimestamp()));
+        List<Sample> edges = null;
+        for (int bucket = firstBucket; bucket <= lastBucket; bucket++) {
+            Aggregate rollup = getRollup(bucket, metric);
+            if (rollup == null) {
+                continue;
+            }
+            long start = blockStart + bucket * rollupMillis;
+            long end = start + rollupMillis;
+            if (from <= start && end <= to) {
+                result.merge(rollup);
+            } else {
+                if (edges == null) {
+                    edges = samples(from, to);
+                }
+                for (Sample sample : edges) {
+                    if (sample.getTimestamp() >= start && sample.getTimestamp() < end) {
+                        result.add(metric.of(sample));
+                    }
+                }
+            }
+        }
+    }
+
+    int bucketOf(long timestamp) {
+        return (int) ((timestamp - blockStart) / rollupMillis);
+    }
+}
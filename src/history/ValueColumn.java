@@ -0,0 +1,196 @@
+package history;
+
+/**
+ * Compression state for one column of doubles. The writer and the reader
+ * each keep a copy and update it identically, so nothing but the encoded
+ * bits has to be stored.
+ * <p>
+ * Values go through Gorilla's XOR encoding, with one addition: a value that
+ * is an exact multiple of the column's unit (0.01 unless the store says
+ * otherwise) and follows another such value is stored as the delta-of-delta
+ * of its scaled integer instead. A steadily climbing odometer then costs a
+ * bit per sample, and a noisy reading 6-10, rather than the 30-50 its XOR
+ * would need. Both paths are lossless; {@link #quantize} is what rounds raw
+ * readings onto the unit first, so that they take the integer path.
+ */
+final class ValueColumn {
+
+    // Scale of segments written before the store had a precision setting.
+    static final int LEGACY_DECIMALS = 3;
+
+    private static final double DECIMAL_LIMIT = 1e12;
+    private static final long NOT_DECIMAL = Long.MIN_VALUE;
+    // Prefix of a value that leaves the integer path; see writeDelta.
+    private static final int TO_XOR = 0b11111;
+
+    private final double scale;
+    private final boolean legacy;
+    private long previousBits;
+    private long previousScaled;
+    private long previousDelta;
+    private int leading = -1;
+    private int trailing;
+
+    /**
+     * A column whose integer path counts in units of 10^-decimals. Legacy
+     * columns use the layout of the first segment format: a path bit before
+     * every value and the timestamp buckets for the delta-of-delta.
+     */
+    ValueColumn(int decimals, boolean legacy) {
+        this.scale = Math.pow(10, decimals);
+        this.legacy = legacy;
+    }
+
+    /** Rounds a value to the nearest multiple of 10^-decimals; values too large to scale are kept as they are. */
+    static double quantize(double value, int decimals) {
+        double scale = Math.pow(10, decimals);
+        return Math.abs(value) < DECIMAL_LIMIT ? Math.round(value * scale) / scale : value;
+    }
+
+    void write(double value, BitWriter out) {
+        long bits = Double.doubleToRawLongBits(value);
+        long scaled = scaled(value);
+        if (scaled != NOT_DECIMAL && previousScaled != NOT_DECIMAL) {
+            long delta = scaled - previousScaled;
+            if (legacy) {
+                out.write(0, 1);
+                out.writeDelta(delta - previousDelta);
+            } else {
+                writeDelta(delta - previousDelta, out);
+            }
+            previousDelta = delta;
+        } else {
+            // After a value off the integer path the reader expects XOR without being told.
+            if (legacy) {
+                out.write(1, 1);
+            } else if (previousScaled != NOT_DECIMAL) {
+                out.write(TO_XOR, 5);
+            }
+            writeXor(bits ^ previousBits, out);
+            previousDelta = 0;
+        }
+        previousBits = bits;
+        previousScaled = scaled;
+    }
+
+    double read(BitReader in) {
+        double value;
+        long scaled;
+        long dod = NOT_DECIMAL;
+        if (legacy) {
+            if (!in.readBit()) {
+                dod = in.readDelta();
+            }
+        } else if (previousScaled != NOT_DECIMAL) {
+            dod = readDelta(in);
+        }
+        if (dod != NOT_DECIMAL) {
+            long delta = previousDelta + dod;
+            scaled = previousScaled + delta;
+            value = scaled / scale;
+            previousDelta = delta;
+        } else {
+            value = Double.longBitsToDouble(previousBits ^ readXor(in));
+            scaled = scaled(value);
+            previousDelta = 0;
+        }
+        previousBits = Double.doubleToRawLongBits(value);
+        previousScaled = scaled;
+        return value;
+    }
+
+    /**
+     * Writes a delta-of-delta of scaled values. Unlike timestamps, which
+     * are mostly exact, quantized readings jitter by a unit or two, so
+     * there is a 4-bit bucket for that:
+     * <pre>
+     * 0                 0
+     * 10    + 4 bits    -7..8
+     * 110   + 7 bits    -63..64
+     * 1110  + 12 bits   -2047..2048
+     * 11110 + 64 bits   anything else
+     * 11111             the value follows XOR-encoded
+     * </pre>
+     */
+    private static void writeDelta(long value, BitWriter out) {
+        if (value == 0) {
+            out.write(0b0, 1);
+        } else if (value >= -7 && value <= 8) {
+            out.write(0b10, 2);
+            out.write(value + 7, 4);
+        } else if (value >= -63 && value <= 64) {
+            out.write(0b110, 3);
+            out.write(value + 63, 7);
+        } else if (value >= -2047 && value <= 2048) {
+            out.write(0b1110, 4);
+            out.write(value + 2047, 12);
+        } else {
+            out.write(0b11110, 5);
+            out.write(value, 64);
+        }
+    }
+
+    /** Reads what {@link #writeDelta} wrote, or returns NOT_DECIMAL for the XOR escape. */
+    private static long readDelta(BitReader in) {
+        if (!in.readBit()) {
+            return 0;
+        }
+        if (!in.readBit()) {
+            return in.read(4) - 7;
+        }
+        if (!in.readBit()) {
+            return in.read(7) - 63;
+        }
+        if (!in.readBit()) {
+            return in.read(12) - 2047;
+        }
+        return in.readBit() ? NOT_DECIMAL : in.read(64);
+    }
+
+    private void writeXor(long xor, BitWriter out) {
+        if (xor == 0) {
+            out.write(0, 1);
+            return;
+        }
+        out.write(1, 1);
+        int lead = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int trail = Long.numberOfTrailingZeros(xor);
+        if (leading >= 0 && lead >= leading && trail >= trailing) {
+            // Fits the previous window of meaningful bits.
+            out.write(0, 1);
+            out.write(xor >>> trailing, 64 - leading - trailing);
+        } else {
+            leading = lead;
+            trailing = trail;
+            int length = 64 - lead - trail;
+            out.write(1, 1);
+            out.write(lead, 5);
+            out.write(length & 63, 6);
+            out.write(xor >>> trail, length);
+        }
+    }
+
+    private long readXor(BitReader in) {
+        if (!in.readBit()) {
+            return 0;
+        }
+        if (in.readBit()) {
+            leading = (int) in.read(5);
+            int length = (int) in.read(6);
+            if (length == 0) {
+                length = 64;
+            }
+            trailing = 64 - leading - length;
+        }
+        return in.read(64 - leading - trailing) << trailing;
+    }
+
+    /** The value in units of the column if that is an exact integer which maps back to the same double. */
+    private long scaled(double value) {
+        if (!(Math.abs(value) < DECIMAL_LIMIT)) {
+            return NOT_DECIMAL;
+        }
+        long scaled = Math.round(value * scale);
+        return Double.doubleToRawLongBits(scaled / scale) == Double.doubleToRawLongBits(value) ? scaled : NOT_DECIMAL;
+    }
+}
@@ -7,5 +7,6 @@ import exceptions.InvalidOperationException;
 public interface FuelConsumable {
     void refuel(double amount) throws InvalidOperationException;
     double getFuelLevel();
+    double getFuelCapacity();
     double consumeFuel(double distance) throws InsufficientFuelException;
 }
\ No newline at end of file
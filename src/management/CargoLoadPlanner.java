@@ -0,0 +1,206 @@
+package management;
+
+import exceptions.OverloadException;
+import interfaces.CargoCarrier;
+import vehicles.Truck;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Assigns a batch of shipments to cargo carriers using first-fit-decreasing.
+ * Free capacity is kept in a max segment tree, so finding the first carrier
+ * with room for a shipment is O(log n) instead of a scan over the fleet.
+ * Trucks are only filled to half their capacity in the first pass, so they
+ * keep their full fuel efficiency unless the rest of the fleet is full.
+ */
+public class CargoLoadPlanner {
+
+    private static final double TRUCK_EFFICIENT_LOAD_RATIO = 0.5;
+    // How far, relative to capacity, a summed load may overshoot from rounding alone.
+    private static final double ROUNDING_TOLERANCE = 1e-9;
+
+    public CargoPlan plan(List<? extends CargoCarrier> carriers, double[] shipments) {
+        int[] assignment = new int[shipments.length];
+        Arrays.fill(assignment, CargoPlan.UNASSIGNED);
+
+        Integer[] order = new Integer[shipments.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(shipments[b], shipments[a]));
+
+        FreeCapacityTree tree = new FreeCapacityTree(carriers.size());
+        for (int i = 0; i < carriers.size(); i++) {
+            tree.set(i, freeCapacity(carriers.get(i), true));
+        }
+        int unplaced = place(order, order.length, shipments, assignment, tree);
+
+        if (unplaced > 0) {
+            for (int i = 0; i < carriers.size(); i++) {
+                CargoCarrier carrier = carriers.get(i);
+                if (carrier instanceof Truck) {
+                    double extra = freeCapacity(carrier, false) - freeCapacity(carrier, true);
+                    tree.set(i, tree.get(i) + extra);
+                }
+            }
+            unplaced = place(order, unplaced, shipments, assignment, tree);
+        }
+        return new CargoPlan(carriers, shipments, assignment);
+    }
+
+    /**
+     * Places the first {@code count} shipments of {@code order} and compacts the
+     * ones that did not fit to the front of the array. Returns how many are left.
+     */
+    private int place(Integer[] order, int count, double[] shipments, int[] assignment, FreeCapacityTree tree) {
+        int left = 0;
+        for (int i = 0; i < count; i++) {
+            int shipment = order[i];
+            double weight = shipments[shipment];
+            int bin = weight > 0 ? tree.firstFit(weight) : CargoPlan.UNASSIGNED;
+            if (bin == CargoPlan.UNASSIGNED) {
+                order[left++] = shipment;
+            } else {
+                assignment[shipment] = bin;
+                tree.set(bin, tree.get(bin) - weight);
+            }
+        }
+        return left;
+    }
+
+    private double freeCapacity(CargoCarrier carrier, boolean avoidPenalty) {
+        double limit = carrier.getCargoCapacity();
+        if (avoidPenalty && carrier instanceof Truck) {
+            limit *= TRUCK_EFFICIENT_LOAD_RATIO;
+        }
+        return Math.max(0, limit - carrier.getCurrentCargo());
+    }
+
+    public static class CargoPlan {
+
+        public static final int UNASSIGNED = -1;
+
+        private final List<? extends CargoCarrier> carriers;
+        private final double[] shipments;
+        private final int[] assignment;
+
+        CargoPlan(List<? extends CargoCarrier> carriers, double[] shipments, int[] assignment) {
+            this.carriers = carriers;
+            this.shipments = shipments;
+            this.assignment = assignment;
+        }
+
+        /** Index into the carrier list for the given shipment, or {@link #UNASSIGNED}. */
+        public int getAssignment(int shipment) {
+            return assignment[shipment];
+        }
+
+        public CargoCarrier getCarrier(int shipment) {
+            int bin = assignment[shipment];
+            return bin == UNASSIGNED ? null : carriers.get(bin);
+        }
+
+        public int getUnassignedCount() {
+            int count = 0;
+            for (int bin : assignment) {
+                if (bin == UNASSIGNED) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Loads the planned cargo, one {@code loadCargo} call per carrier.
+         * If a carrier rejects its load, its shipments become unassigned.
+         * Returns the total weight loaded.
+         */
+        public double apply() {
+            double[] perCarrier = new double[carriers.size()];
+            for (int i = 0; i < assignment.length; i++) {
+                if (assignment[i] != UNASSIGNED) {
+                    perCarrier[assignment[i]] += shipments[i];
+                }
+            }
+            double loaded = 0;
+            for (int bin = 0; bin < perCarrier.length; bin++) {
+                if (perCarrier[bin] == 0) {
+                    continue;
+                }
+                CargoCarrier carrier = carriers.get(bin);
+                double load = trimRounding(carrier, perCarrier[bin]);
+                try {
+                    carrier.loadCargo(load);
+                    loaded += load;
+                } catch (OverloadException e) {
+                    for (int i = 0; i < assignment.length; i++) {
+                        if (assignment[i] == bin) {
+                            assignment[i] = UNASSIGNED;
+                        }
+                    }
+                }
+            }
+            return loaded;
+        }
+
+        /**
+         * The plan fits shipments by subtracting them from the free room one
+         * at a time, while the load is their sum, which can round a hair
+         * above the room left. Such a load is trimmed to exactly fill the
+         * carrier; a load that really does not fit is left to be rejected.
+         */
+        private static double trimRounding(CargoCarrier carrier, double load) {
+            double capacity = carrier.getCargoCapacity();
+            double current = carrier.getCurrentCargo();
+            if (current + load <= capacity || current + load - capacity > ROUNDING_TOLERANCE * capacity) {
+                return load;
+            }
+            double trimmed = Math.min(load, capacity - current);
+            while (trimmed > 0 && current + trimmed > capacity) {
+                trimmed = Math.nextDown(trimmed);
+            }
+            return trimmed;
+        }
+    }
+
+    private static final class FreeCapacityTree {
+
+        private final int size;
+        private final double[] max;
+
+        FreeCapacityTree(int count) {
+            int n = 1;
+            while (n < Math.max(1, count)) {
+                n <<= 1;
+            }
+            this.size = n;
+            this.max = new double[2 * n];
+            Arrays.fill(max, -1);
+        }
+
+        double get(int bin) {
+            return max[size + bin];
+        }
+
+        void set(int bin, double free) {
+            int node = size + bin;
+            max[node] = free;
+            for (node >>= 1; node > 0; node >>= 1) {
+                max[node] = Math.max(max[2 * node], max[2 * node + 1]);
+            }
+        }
+
+        /** Leftmost bin with at least {@code weight} free, or {@link CargoPlan#UNASSIGNED}. */
+        int firstFit(double weight) {
+            if (max[1] < weight) {
+                return CargoPlan.UNASSIGNED;
+            }
+            int node = 1;
+            while (node < size) {
+                node = max[2 * node] >= weight ? 2 * node : 2 * node + 1;
+            }
+            return node - size;
+        }
+    }
+}
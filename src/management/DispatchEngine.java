@@ -0,0 +1,479 @@
+package management;
+
+import exceptions.InsufficientFuelException;
+import exceptions.InvalidOperationException;
+import exceptions.OverloadException;
+import interfaces.CargoCarrier;
+import interfaces.FuelConsumable;
+import interfaces.PassengerCarrier;
+import vehicles.FuelModel;
+import vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns trip requests to the vehicle that can make the trip for the least
+ * fuel. A vehicle qualifies if it has the seats and cargo room left, enough
+ * fuel in the tank and an estimated journey time within the deadline. Fuel
+ * is estimated at the efficiency the vehicle has with the trip's passengers
+ * and cargo on board, which is what {@link Assignment#execute()} burns.
+ * <p>
+ * Available vehicles are indexed by dispatch class: vehicles of the same
+ * estimate class, load, fuel model and cruise speed have the same seats and
+ * cargo room left and need the same fuel and time for any trip, so only
+ * their fuel levels differ. Each class has a segment tree holding the
+ * maximum fuel of every subtree. A dispatch checks each class by its free
+ * capacity, journey time and the fuel the trip needs against its tree root,
+ * takes the cheapest class that passes and descends its tree to the first
+ * vehicle with enough fuel. Any subtree whose maximum is enough holds such a
+ * vehicle, so the descent never backtracks and a dispatch costs
+ * O(classes + log n) rather than a scan of the fleet. Vehicles are normally
+ * released empty, which keeps the classes to a handful per vehicle type.
+ * <p>
+ * The index is built from the vehicles' state at the time they are added or
+ * released. An assigned vehicle is unavailable until {@link #release(Vehicle)}
+ * puts it back with its state re-read.
+ */
+public class DispatchEngine {
+
+    private final Map<DispatchKey, VehicleClass> classesByKey = new HashMap<>();
+    private final List<VehicleClass> classes = new ArrayList<>();
+    private final Map<Vehicle, Entry> entries = new IdentityHashMap<>();
+    private int assignedCount;
+
+    public DispatchEngine(List<Vehicle> vehicles) {
+        Map<DispatchKey, List<Vehicle>> grouped = new HashMap<>();
+        for (Vehicle vehicle : vehicles) {
+            grouped.computeIfAbsent(DispatchKey.of(vehicle), k -> new ArrayList<>()).add(vehicle);
+        }
+        for (Map.Entry<DispatchKey, List<Vehicle>> group : grouped.entrySet()) {
+            VehicleClass vehicleClass = new VehicleClass(group.getKey(), group.getValue().get(0), group.getValue().size());
+            classesByKey.put(group.getKey(), vehicleClass);
+            classes.add(vehicleClass);
+            for (Vehicle vehicle : group.getValue()) {
+                place(vehicleClass, vehicle);
+            }
+        }
+    }
+
+    /** Assigns the cheapest capable vehicle to the trip, or returns null if no available vehicle can make it. */
+    public synchronized Assignment dispatch(TripRequest request) {
+        double distance = request.getDistance();
+        VehicleClass best = null;
+        double bestFuel = 0;
+        double bestHours = 0;
+        for (VehicleClass vehicleClass : classes) {
+            DispatchKey key = vehicleClass.key;
+            if (request.getPassengers() > key.freeSeats || request.getCargo() > key.freeCargo
+                    || !vehicleClass.tree.anyAvailable()) {
+                continue;
+            }
+            double hours = vehicleClass.representative.estimateJourneyTime(distance);
+            if (hours > request.getDeadlineHours()) {
+                continue;
+            }
+            double fuel = vehicleClass.fuelNeeded(request);
+            if (!vehicleClass.tree.anyWith(fuel)) {
+                continue;
+            }
+            // Cheapest first; between equally cheap classes the faster one.
+            if (best == null || fuel < bestFuel
+                    || (fuel == bestFuel && key.estimate.maxSpeed > best.key.estimate.maxSpeed)) {
+                best = vehicleClass;
+                bestFuel = fuel;
+                bestHours = hours;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        int slot = best.tree.firstFit(bestFuel);
+        Vehicle vehicle = best.vehicles[slot];
+        best.tree.clear(slot);
+        entries.get(vehicle).assigned = true;
+        assignedCount++;
+        return new Assignment(request, vehicle, bestFuel, bestHours);
+    }
+
+    /** Dispatches the requests in order. The list holds null where a request could not be assigned. */
+    public List<Assignment> dispatchAll(Iterable<TripRequest> requests) {
+        List<Assignment> assignments = new ArrayList<>();
+        for (TripRequest request : requests) {
+            assignments.add(dispatch(request));
+        }
+        return assignments;
+    }
+
+    /** Makes a vehicle available again, indexed by its current load and fuel. Unknown vehicles are added. */
+    public synchronized void release(Vehicle vehicle) {
+        Entry entry = entries.get(vehicle);
+        DispatchKey key = DispatchKey.of(vehicle);
+        if (entry != null) {
+            if (entry.assigned) {
+                entry.assigned = false;
+                assignedCount--;
+            }
+            if (entry.vehicleClass.key.equals(key)) {
+                entry.vehicleClass.tree.set(entry.slot, vehicle);
+                return;
+            }
+            unplace(entry);
+        }
+        VehicleClass target = classesByKey.get(key);
+        if (target == null) {
+            target = new VehicleClass(key, vehicle, 1);
+            classesByKey.put(key, target);
+            classes.add(target);
+        }
+        place(target, vehicle);
+    }
+
+    /** Takes a vehicle out of dispatch altogether, e.g. when it leaves the fleet. */
+    public synchronized void remove(Vehicle vehicle) {
+        Entry entry = entries.remove(vehicle);
+        if (entry != null) {
+            unplace(entry);
+            if (entry.assigned) {
+                assignedCount--;
+            }
+        }
+    }
+
+    public synchronized boolean isAssigned(Vehicle vehicle) {
+        Entry entry = entries.get(vehicle);
+        return entry != null && entry.assigned;
+    }
+
+    public synchronized int getAvailableCount() {
+        return entries.size() - assignedCount;
+    }
+
+    private void place(VehicleClass vehicleClass, Vehicle vehicle) {
+        Entry entry = entries.computeIfAbsent(vehicle, v -> new Entry());
+        entry.vehicleClass = vehicleClass;
+        entry.slot = vehicleClass.add(vehicle);
+    }
+
+    // Classes left without vehicles are dropped, so loads seen once do not slow every dispatch.
+    private void unplace(Entry entry) {
+        VehicleClass vehicleClass = entry.vehicleClass;
+        vehicleClass.remove(entry.slot);
+        if (vehicleClass.isEmpty()) {
+            classesByKey.remove(vehicleClass.key);
+            classes.remove(vehicleClass);
+        }
+    }
+
+    /** Where a vehicle sits in the index. */
+    private static final class Entry {
+        VehicleClass vehicleClass;
+        int slot;
+        boolean assigned;
+    }
+
+    public static class TripRequest {
+
+        private final double distance;
+        private final int passengers;
+        private final double cargo;
+        private final double deadlineHours;
+
+        public TripRequest(double distance, int passengers, double cargo, double deadlineHours) {
+            if (distance <= 0) {
+                throw new IllegalArgumentException("Distance must be positive.");
+            }
+            if (passengers < 0 || cargo < 0) {
+                throw new IllegalArgumentException("Passengers and cargo cannot be negative.");
+            }
+            this.distance = distance;
+            this.passengers = passengers;
+            this.cargo = cargo;
+            this.deadlineHours = deadlineHours;
+        }
+
+        public double getDistance() {
+            return distance;
+        }
+
+        public int getPassengers() {
+            return passengers;
+        }
+
+        public double getCargo() {
+            return cargo;
+        }
+
+        public double getDeadlineHours() {
+            return deadlineHours;
+        }
+    }
+
+    public static class Assignment {
+
+        private final TripRequest request;
+        private final Vehicle vehicle;
+        private final double fuel;
+        private final double hours;
+
+        Assignment(TripRequest request, Vehicle vehicle, double fuel, double hours) {
+            this.request = request;
+            this.vehicle = vehicle;
+            this.fuel = fuel;
+            this.hours = hours;
+        }
+
+        public TripRequest getRequest() {
+            return request;
+        }
+
+        public Vehicle getVehicle() {
+            return vehicle;
+        }
+
+        /** Estimated fuel for the trip in liters; 0 for vehicles that burn none. */
+        public double getFuel() {
+            return fuel;
+        }
+
+        public double getHours() {
+            return hours;
+        }
+
+        /**
+         * Runs the trip: boards the passengers and loads the cargo, travels the
+         * distance, then unloads at the destination.
+         */
+        public void execute() throws InvalidOperationException, InsufficientFuelException, OverloadException {
+            if (request.getPassengers() > 0) {
+                ((PassengerCarrier) vehicle).boardPassengers(request.getPassengers());
+            }
+            if (request.getCargo() > 0) {
+                ((CargoCarrier) vehicle).loadCargo(request.getCargo());
+            }
+            try {
+                vehicle.move(request.getDistance());
+            } finally {
+                if (request.getPassengers() > 0) {
+                    ((PassengerCarrier) vehicle).disembarkPassengers(request.getPassengers());
+                }
+                if (request.getCargo() > 0) {
+                    ((CargoCarrier) vehicle).unloadCargo(request.getCargo());
+                }
+            }
+        }
+    }
+
+    /**
+     * An estimate class narrowed down to one load, fuel model and cruise
+     * speed: every vehicle with the same key has the same seats and cargo
+     * room left and the same efficiency with any trip's load on board.
+     */
+    private static final class DispatchKey {
+
+        final EstimateClass estimate;
+        final FuelModel fuelModel;
+        final double cruiseSpeed;
+        final int passengers;
+        final int freeSeats;
+        final double cargo;
+        final double freeCargo;
+
+        private DispatchKey(Vehicle vehicle) {
+            this.estimate = EstimateClass.of(vehicle);
+            this.fuelModel = vehicle.getFuelModel();
+            this.cruiseSpeed = vehicle.getCruiseSpeed();
+            if (vehicle instanceof PassengerCarrier) {
+                PassengerCarrier carrier = (PassengerCarrier) vehicle;
+                this.passengers = carrier.getCurrentPassengers();
+                this.freeSeats = carrier.getPassengerCapacity() - passengers;
+            } else {
+                this.passengers = 0;
+                this.freeSeats = 0;
+            }
+            if (vehicle instanceof CargoCarrier) {
+                CargoCarrier carrier = (CargoCarrier) vehicle;
+                this.cargo = carrier.getCurrentCargo();
+                this.freeCargo = carrier.getCargoCapacity() - cargo;
+            } else {
+                this.cargo = 0;
+                this.freeCargo = 0;
+            }
+        }
+
+        static DispatchKey of(Vehicle vehicle) {
+            return new DispatchKey(vehicle);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof DispatchKey)) {
+                return false;
+            }
+            DispatchKey other = (DispatchKey) o;
+            return estimate.equals(other.estimate)
+                    && fuelModel == other.fuelModel
+                    && Double.compare(cruiseSpeed, other.cruiseSpeed) == 0
+                    && passengers == other.passengers
+                    && freeSeats == other.freeSeats
+                    && Double.compare(cargo, other.cargo) == 0
+                    && Double.compare(freeCargo, other.freeCargo) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = estimate.hashCode();
+            h = h * 31 + System.identityHashCode(fuelModel);
+            h = h * 31 + Double.hashCode(cruiseSpeed);
+            h = h * 31 + passengers;
+            h = h * 31 + freeSeats;
+            h = h * 31 + Double.hashCode(cargo);
+            return h * 31 + Double.hashCode(freeCargo);
+        }
+    }
+
+    /** The vehicles of one dispatch class, in slots of a fuel tree. Freed slots are reused. */
+    private static final class VehicleClass {
+
+        final DispatchKey key;
+        final Vehicle representative;
+        Vehicle[] vehicles;
+        FuelTree tree;
+        int used;
+        int[] freeSlots = new int[4];
+        int freeCount;
+
+        VehicleClass(DispatchKey key, Vehicle representative, int expected) {
+            this.key = key;
+            this.representative = representative;
+            this.vehicles = new Vehicle[Math.max(1, expected)];
+            this.tree = new FuelTree(vehicles.length);
+        }
+
+        /** Fuel any vehicle of the class burns on the trip, with the trip's passengers and cargo on board. */
+        double fuelNeeded(TripRequest request) {
+            if (!key.estimate.fuelConsumable) {
+                return 0;
+            }
+            double efficiency = representative.estimateFuelEfficiency(
+                    key.passengers + request.getPassengers(), key.cargo + request.getCargo());
+            return efficiency > 0 ? request.getDistance() / efficiency : 0;
+        }
+
+        int add(Vehicle vehicle) {
+            int slot;
+            if (freeCount > 0) {
+                slot = freeSlots[--freeCount];
+            } else {
+                if (used == vehicles.length) {
+                    grow();
+                }
+                slot = used++;
+            }
+            vehicles[slot] = vehicle;
+            tree.set(slot, vehicle);
+            return slot;
+        }
+
+        void remove(int slot) {
+            vehicles[slot] = null;
+            tree.clear(slot);
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+        }
+
+        boolean isEmpty() {
+            return freeCount == used;
+        }
+
+        private void grow() {
+            vehicles = Arrays.copyOf(vehicles, vehicles.length * 2);
+            FuelTree larger = new FuelTree(vehicles.length);
+            larger.copyLeaves(tree);
+            tree = larger;
+        }
+    }
+
+    /**
+     * Max segment tree over the fuel of each slot; a slot with no available
+     * vehicle holds -1. Seats and cargo room need no tree, as they are the
+     * same for every vehicle of a class.
+     */
+    private static final class FuelTree {
+
+        private final int size;
+        private final double[] fuel;
+
+        FuelTree(int count) {
+            int n = 1;
+            while (n < count) {
+                n <<= 1;
+            }
+            this.size = n;
+            this.fuel = new double[2 * n];
+            Arrays.fill(fuel, -1);
+        }
+
+        boolean anyAvailable() {
+            return fuel[1] >= 0;
+        }
+
+        /** Whether an available slot has at least the given fuel. */
+        boolean anyWith(double needFuel) {
+            return fuel[1] >= needFuel && fuel[1] >= 0;
+        }
+
+        void set(int slot, Vehicle vehicle) {
+            int node = size + slot;
+            fuel[node] = vehicle instanceof FuelConsumable
+                    ? ((FuelConsumable) vehicle).getFuelLevel()
+                    : Double.POSITIVE_INFINITY;
+            update(node);
+        }
+
+        void clear(int slot) {
+            int node = size + slot;
+            fuel[node] = -1;
+            update(node);
+        }
+
+        void copyLeaves(FuelTree other) {
+            System.arraycopy(other.fuel, other.size, fuel, size, other.size);
+            for (int node = size - 1; node > 0; node--) {
+                pull(node);
+            }
+        }
+
+        /**
+         * Lowest slot with at least the given fuel, or -1. Every subtree
+         * whose maximum is enough holds such a slot, so the descent goes
+         * straight down one path.
+         */
+        int firstFit(double needFuel) {
+            if (!anyWith(needFuel)) {
+                return -1;
+            }
+            int node = 1;
+            while (node < size) {
+                node = fuel[2 * node] >= needFuel && fuel[2 * node] >= 0 ? 2 * node : 2 * node + 1;
+            }
+            return node - size;
+        }
+
+        private void update(int node) {
+            for (node >>= 1; node > 0; node >>= 1) {
+                pull(node);
+            }
+        }
+
+        private void pull(int node) {
+            fuel[node] = Math.max(fuel[2 * node], fuel[2 * node + 1]);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package management;
+
+import interfaces.FuelConsumable;
+import vehicles.Vehicle;
+
+/**
+ * Everything a built-in estimate depends on: vehicles of the same type, fuel
+ * efficiency and top speed need the same fuel and time for any distance.
+ * The efficiency already reflects each vehicle's {@link vehicles.FuelModel}
+ * at its load and cruise speed.
+ */
+final class EstimateClass {
+
+    final Class<?> type;
+    final double efficiency;
+    final double maxSpeed;
+    final boolean fuelConsumable;
+
+    private EstimateClass(Class<?> type, double efficiency, double maxSpeed, boolean fuelConsumable) {
+        this.type = type;
+        this.efficiency = efficiency;
+        this.maxSpeed = maxSpeed;
+        this.fuelConsumable = fuelConsumable;
+    }
+
+    static EstimateClass of(Vehicle vehicle) {
+        return new EstimateClass(vehicle.getClass(), vehicle.calculateFuelEfficiency(), vehicle.getMaxSpeed(),
+                vehicle instanceof FuelConsumable);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof EstimateClass)) {
+            return false;
+        }
+        EstimateClass other = (EstimateClass) o;
+        return type == other.type
+                && Double.compare(efficiency, other.efficiency) == 0
+                && Double.compare(maxSpeed, other.maxSpeed) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return (type.hashCode() * 31 + Double.hashCode(efficiency)) * 31 + Double.hashCode(maxSpeed);
+    }
+}
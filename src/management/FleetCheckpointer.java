@@ -0,0 +1,96 @@
+package management;
+
+import registry.CsvVehicleCodec;
+import registry.VehicleTypeRegistry;
+import storage.AsyncChannelOutputStream;
+import storage.AtomicFile;
+import storage.BlockOutputStream;
+import vehicles.Vehicle;
+import vehicles.VehicleState;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Writes fleet checkpoints in the background. The caller only captures the
+ * snapshot and each vehicle's state; encoding and writing happen on one
+ * I/O thread shared by all fleet managers, so checkpoints run one after
+ * another in the order they were requested.
+ */
+final class FleetCheckpointer {
+
+    private static final String TEMP_SUFFIX = ".checkpoint";
+
+    private FleetCheckpointer() {
+    }
+
+    /** Started on first use, so processes that never checkpoint have no I/O thread. */
+    private static final class Io {
+        static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "fleet-checkpoint");
+            // A checkpoint cut short by exit only leaves a temporary file behind.
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    static CompletableFuture<Integer> checkpoint(FleetSnapshot snapshot, Path target, boolean compressed) {
+        List<Vehicle> vehicles = snapshot.getVehicles();
+        VehicleState[] states = new VehicleState[vehicles.size()];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = vehicles.get(i).captureState();
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                write(vehicles, states, target, compressed);
+                return states.length;
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, Io.EXECUTOR);
+    }
+
+    private static void write(List<Vehicle> vehicles, VehicleState[] states, Path target, boolean compressed)
+            throws IOException {
+        // Not the name saveToFile uses, so a synchronous save of the same file cannot collide with this one.
+        Path temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+        CsvVehicleCodec codec = VehicleTypeRegistry.getDefault().csv();
+        String separator = System.lineSeparator();
+        StringBuilder line = new StringBuilder(128);
+        char[] chars = new char[128];
+        try {
+            AsynchronousFileChannel channel = AsynchronousFileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            OutputStream file = new AsyncChannelOutputStream(channel);
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                    compressed ? new BlockOutputStream(file) : file), 1 << 16)) {
+                for (int i = 0; i < states.length; i++) {
+                    line.setLength(0);
+                    codec.encode(vehicles.get(i), states[i], line);
+                    line.append(separator);
+                    if (chars.length < line.length()) {
+                        chars = new char[line.length() * 2];
+                    }
+                    line.getChars(0, line.length(), chars, 0);
+                    out.write(chars, 0, line.length());
+                }
+            }
+            AtomicFile.replace(temp, target);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package management;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Runs bulk operations over a fleet inline, on a fork-join pool or on
+ * virtual threads, whichever suits the operation and the fleet size.
+ * <p>
+ * Every run starts inline on a small sample of the elements and times it,
+ * which keeps a running estimate of the per-element cost of each named
+ * operation. The rest of the run is then:
+ * <ul>
+ *   <li>inline, if the estimated remaining work is too small to repay
+ *       handing it to other threads;</li>
+ *   <li>on virtual threads, if the operation mostly waits rather than
+ *       computes (wall time well above CPU time), so many can wait at once;</li>
+ *   <li>on the fork-join pool otherwise, split into leaves of roughly
+ *       {@value #LEAF_NANOS} ns of work each, or inline again if there is
+ *       only one processor.</li>
+ * </ul>
+ * Virtual threads need Java 21; on older runtimes waiting operations go to
+ * the fork-join pool. The decisions and estimates are available per
+ * operation from {@link #getMetrics()}.
+ */
+public class FleetExecutor {
+
+    public enum Strategy { INLINE, FORK_JOIN, VIRTUAL_THREADS }
+
+    /** Computes a partial result over the elements in [from, to). */
+    public interface RangeTask<R> {
+        R apply(int from, int to);
+    }
+
+    static final int SAMPLE_SIZE = 32;
+    static final long PARALLEL_THRESHOLD_NANOS = 200_000;
+    static final long LEAF_NANOS = 50_000;
+    static final double BLOCKING_RATIO = 2.0;
+    static final int MAX_VIRTUAL_TASKS = 1024;
+    // CPU time is read on every Nth run only, it costs about as much as a small operation.
+    private static final int CPU_SAMPLE_INTERVAL = 16;
+
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private static final FleetExecutor SHARED = new FleetExecutor();
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final ExecutorService virtualThreads;
+    private final Map<String, OperationMetrics> metrics = new ConcurrentHashMap<>();
+
+    public FleetExecutor() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public FleetExecutor(ForkJoinPool pool) {
+        this.pool = pool;
+        // The common pool leaves one processor to the caller, which works on the task too.
+        this.parallelism = pool == ForkJoinPool.commonPool()
+                ? Runtime.getRuntime().availableProcessors()
+                : pool.getParallelism();
+        this.virtualThreads = createVirtualThreadExecutor();
+    }
+
+    /**
+     * The executor managers use unless they are given one: one fork-join
+     * pool, one virtual-thread executor and one set of metrics for the
+     * whole process.
+     */
+    public static FleetExecutor shared() {
+        return SHARED;
+    }
+
+    public boolean hasVirtualThreads() {
+        return virtualThreads != null;
+    }
+
+    public <T> void forEach(String operation, List<T> items, Consumer<? super T> action) {
+        execute(operation, items.size(), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                action.accept(items.get(i));
+            }
+            return null;
+        }, (a, b) -> null);
+    }
+
+    public <T> int count(String operation, List<T> items, Predicate<? super T> predicate) {
+        return execute(operation, items.size(), (from, to) -> {
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(items.get(i))) {
+                    count++;
+                }
+            }
+            return count;
+        }, Integer::sum);
+    }
+
+    /**
+     * Like {@link #count}, but always inline on the calling thread and in
+     * element order, for operations whose side effects must stay in order,
+     * such as vehicles reporting on the console. The run is recorded in the
+     * operation's metrics like any other. CPU time is not sampled, since
+     * such an operation waits on its output rather than on its work.
+     */
+    public <T> int countInOrder(String operation, List<T> items, Predicate<? super T> predicate) {
+        OperationMetrics stats = metrics.computeIfAbsent(operation, OperationMetrics::new);
+        long start = System.nanoTime();
+        int count = 0;
+        for (T item : items) {
+            if (predicate.test(item)) {
+                count++;
+            }
+        }
+        stats.sampled(items.size(), System.nanoTime() - start, -1);
+        stats.ran(Strategy.INLINE, items.size());
+        return count;
+    }
+
+    public <T> double sum(String operation, List<T> items, ToDoubleFunction<? super T> function) {
+        return execute(operation, items.size(), (from, to) -> {
+            double sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += function.applyAsDouble(items.get(i));
+            }
+            return sum;
+        }, Double::sum);
+    }
+
+    /** The matching elements in their original order. */
+    public <T> List<T> filter(String operation, List<T> items, Predicate<? super T> predicate) {
+        return execute(operation, items.size(), (from, to) -> {
+            List<T> matches = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                T item = items.get(i);
+                if (predicate.test(item)) {
+                    matches.add(item);
+                }
+            }
+            return matches;
+        }, (a, b) -> {
+            a.addAll(b);
+            return a;
+        });
+    }
+
+    /**
+     * Runs the task over {@code size} elements and combines the partial
+     * results in element order.
+     */
+    public <R> R execute(String operation, int size, RangeTask<R> task, BinaryOperator<R> combine) {
+        OperationMetrics stats = metrics.computeIfAbsent(operation, OperationMetrics::new);
+        int sample = Math.min(size, SAMPLE_SIZE);
+        boolean measureCpu = stats.nextRunMeasuresCpu() && threads.isCurrentThreadCpuTimeSupported();
+        long cpuStart = measureCpu ? threads.getCurrentThreadCpuTime() : 0;
+        long start = System.nanoTime();
+        R result = task.apply(0, sample);
+        long elapsed = System.nanoTime() - start;
+        long cpu = measureCpu ? threads.getCurrentThreadCpuTime() - cpuStart : -1;
+        stats.sampled(sample, elapsed, cpu);
+
+        Strategy strategy = choose(stats, size - sample);
+        if (sample < size) {
+            R rest;
+            switch (strategy) {
+                case FORK_JOIN:
+                    rest = pool.invoke(new RangeJob<>(task, combine, sample, size, leafSize(stats, size - sample, false)));
+                    break;
+                case VIRTUAL_THREADS:
+                    rest = runOnVirtualThreads(task, combine, sample, size, leafSize(stats, size - sample, true));
+                    break;
+                default:
+                    rest = task.apply(sample, size);
+            }
+            result = combine.apply(result, rest);
+        }
+        stats.ran(strategy, size);
+        return result;
+    }
+
+    public Map<String, OperationMetrics> getMetrics() {
+        return Collections.unmodifiableMap(new TreeMap<>(metrics));
+    }
+
+    private Strategy choose(OperationMetrics stats, int remaining) {
+        if (remaining <= 0 || stats.getNanosPerElement() * remaining < PARALLEL_THRESHOLD_NANOS) {
+            return Strategy.INLINE;
+        }
+        // Waiting overlaps even on a single processor; computation needs more than one.
+        if (virtualThreads != null && stats.getBlockingRatio() >= BLOCKING_RATIO) {
+            return Strategy.VIRTUAL_THREADS;
+        }
+        return parallelism < 2 ? Strategy.INLINE : Strategy.FORK_JOIN;
+    }
+
+    /**
+     * Elements per task. Computation gets leaves worth the hand-off but at
+     * least one per worker; waiting operations get as many tasks as allowed.
+     */
+    private int leafSize(OperationMetrics stats, int remaining, boolean blocking) {
+        if (blocking) {
+            return Math.max(1, (remaining + MAX_VIRTUAL_TASKS - 1) / MAX_VIRTUAL_TASKS);
+        }
+        int leaf = (int) Math.min(Integer.MAX_VALUE, LEAF_NANOS / Math.max(1, stats.getNanosPerElement()));
+        return Math.max(1, Math.min(leaf, (remaining + parallelism - 1) / parallelism));
+    }
+
+    private <R> R runOnVirtualThreads(RangeTask<R> task, BinaryOperator<R> combine, int from, int to, int leaf) {
+        List<Future<R>> parts = new ArrayList<>();
+        for (int start = from; start < to; start += leaf) {
+            int lo = start;
+            int hi = Math.min(to, start + leaf);
+            parts.add(virtualThreads.submit(() -> task.apply(lo, hi)));
+        }
+        R result = null;
+        try {
+            for (Future<R> part : parts) {
+                R value = part.get();
+                result = result == null ? value : combine.apply(result, value);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + parts.size() + " tasks.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return result;
+    }
+
+    /** {@code Executors.newVirtualThreadPerTaskExecutor()} where the runtime has it, else null. */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private static final class RangeJob<R> extends RecursiveTask<R> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final RangeTask<R> task;
+        private final BinaryOperator<R> combine;
+        private final int from;
+        private final int to;
+        private final int leaf;
+
+        RangeJob(RangeTask<R> task, BinaryOperator<R> combine, int from, int to, int leaf) {
+            this.task = task;
+            this.combine = combine;
+            this.from = from;
+            this.to = to;
+            this.leaf = leaf;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from <= leaf) {
+                return task.apply(from, to);
+            }
+            int mid = (from + to) >>> 1;
+            RangeJob<R> right = new RangeJob<>(task, combine, mid, to, leaf);
+            right.fork();
+            R left = new RangeJob<>(task, combine, from, mid, leaf).compute();
+            return combine.apply(left, right.join());
+        }
+    }
+
+    /** Running estimates and decision counts for one named operation. */
+    public static final class OperationMetrics {
+
+        private static final double SMOOTHING = 0.3;
+
+        private final String operation;
+        private long runs;
+        private final long[] runsByStrategy = new long[Strategy.values().length];
+        private double nanosPerElement = Double.NaN;
+        private double blockingRatio = 1.0;
+        private Strategy lastStrategy;
+        private int lastSize;
+
+        OperationMetrics(String operation) {
+            this.operation = operation;
+        }
+
+        synchronized boolean nextRunMeasuresCpu() {
+            return runs % CPU_SAMPLE_INTERVAL == 0;
+        }
+
+        synchronized void sampled(int elements, long elapsedNanos, long cpuNanos) {
+            if (elements == 0) {
+                return;
+            }
+            double perElement = (double) elapsedNanos / elements;
+            nanosPerElement = Double.isNaN(nanosPerElement)
+                    ? perElement
+                    : nanosPerElement + SMOOTHING * (perElement - nanosPerElement);
+            if (cpuNanos > 0) {
+                blockingRatio = (double) elapsedNanos / cpuNanos;
+            }
+        }
+
+        synchronized void ran(Strategy strategy, int size) {
+            runs++;
+            runsByStrategy[strategy.ordinal()]++;
+            lastStrategy = strategy;
+            lastSize = size;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public synchronized long getRuns() {
+            return runs;
+        }
+
+        public synchronized long getRuns(Strategy strategy) {
+            return runsByStrategy[strategy.ordinal()];
+        }
+
+        /** Smoothed wall time per element from the inline samples; 0 until the first sample. */
+        public synchronized double getNanosPerElement() {
+            return Double.isNaN(nanosPerElement) ? 0 : nanosPerElement;
+        }
+
+        /** Wall time over CPU time of the last measured sample; about 1 for pure computation. */
+        public synchronized double getBlockingRatio() {
+            return blockingRatio;
+        }
+
+        public synchronized Strategy getLastStrategy() {
+            return lastStrategy;
+        }
+
+        public synchronized int getLastSize() {
+            return lastSize;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("%s: %d runs (inline %d, fork-join %d, virtual %d), %.0f ns/element, "
+                            + "blocking ratio %.1f, last %s over %d",
+                    operation, runs, runsByStrategy[0], runsByStrategy[1], runsByStrategy[2],
+                    getNanosPerElement(), blockingRatio, lastStrategy, lastSize);
+        }
+    }
+}
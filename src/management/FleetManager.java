@@ -1,52 +1,336 @@
 package management;
 
 import exceptions.InvalidOperationException;
+import interfaces.CargoCarrier;
 import interfaces.FuelConsumable;
 import interfaces.Maintainable;
+import registry.BinaryVehicleReader;
+import registry.BinaryVehicleWriter;
+import registry.CsvVehicleCodec;
+import registry.VehicleTypeRegistry;
+import storage.AtomicFile;
+import storage.BlockInputStream;
+import storage.BlockOutputStream;
 import vehicles.*;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 public class FleetManager {
 
-    private final List<Vehicle> fleet;
+    private static final int IMAGE_MAGIC = 0x464C5431; // "FLT1"
+
+    /** CSV files with this suffix are written deflated in checksummed blocks. */
+    public static final String COMPRESSED_SUFFIX = ".z";
+
+    // Readers take the current snapshot without locking; writers replace it under writeLock.
+    private volatile FleetSnapshot fleet = FleetSnapshot.EMPTY;
+    private final Map<String, Vehicle> vehiclesById = new ConcurrentHashMap<>();
+    // Each vehicle's key in the current snapshot, so removing one needs no search; guarded by writeLock.
+    private final Map<Vehicle, Long> fleetKeys = new IdentityHashMap<>();
+    private final Object writeLock = new Object();
+    // Bumped whenever the efficiency of a vehicle in this fleet may have changed.
+    private final AtomicLong efficiencyVersion = new AtomicLong();
+    private final Vehicle.EfficiencyListener efficiencyListener = vehicle -> efficiencyVersion.incrementAndGet();
+    private RouteNetwork routeNetwork;
+    private final JourneyProjectionCache projections = new JourneyProjectionCache(this);
+    private final FleetReportWriter reportWriter = new FleetReportWriter();
+    private final FleetExecutor executor;
 
     public FleetManager() {
-        this.fleet = new ArrayList<>();
+        this(FleetExecutor.shared());
+    }
+
+    /** A manager whose bulk operations run on the given executor, which may be shared between managers. */
+    public FleetManager(FleetExecutor executor) {
+        this.executor = executor;
     }
 
     public void addVehicle(Vehicle v) throws InvalidOperationException {
-        for (Vehicle vehicle : fleet) {
-            if (vehicle.getId().equalsIgnoreCase(v.getId())) {
+        synchronized (writeLock) {
+            if (vehiclesById.containsKey(idKey(v.getId()))) {
                 throw new InvalidOperationException("Duplicate vehicle ID: " + v.getId() + ". Cannot add vehicle.");
             }
+            vehiclesById.put(idKey(v.getId()), v);
+            attach(v);
+            fleetKeys.put(v, fleet.nextKey());
+            fleet = fleet.withAdded(v);
         }
-        fleet.add(v);
         System.out.println("Vehicle " + v.getId() + " added to the fleet.");
     }
 
+    /** Adds several vehicles with a single fleet update. Returns the IDs rejected as duplicates. */
+    public List<String> addVehicles(List<Vehicle> vehicles) {
+        List<String> rejected = new ArrayList<>();
+        List<Vehicle> added = new ArrayList<>(vehicles.size());
+        synchronized (writeLock) {
+            for (Vehicle v : vehicles) {
+                if (vehiclesById.putIfAbsent(idKey(v.getId()), v) != null) {
+                    rejected.add(v.getId());
+                } else {
+                    attach(v);
+                    added.add(v);
+                }
+            }
+            if (!added.isEmpty()) {
+                long key = fleet.nextKey();
+                for (Vehicle v : added) {
+                    fleetKeys.put(v, key++);
+                }
+                fleet = fleet.withAdded(added);
+            }
+        }
+        for (Vehicle v : added) {
+            System.out.println("Vehicle " + v.getId() + " added to the fleet.");
+        }
+        return rejected;
+    }
+
     public void removeVehicle(String id) throws InvalidOperationException {
-        boolean removed = fleet.removeIf(vehicle -> vehicle.getId().equalsIgnoreCase(id));
-        if (!removed) {
-            throw new InvalidOperationException("Vehicle with ID " + id + " not found. Cannot remove.");
+        synchronized (writeLock) {
+            Vehicle vehicle = vehiclesById.remove(idKey(id));
+            if (vehicle == null) {
+                throw new InvalidOperationException("Vehicle with ID " + id + " not found. Cannot remove.");
+            }
+            detach(vehicle);
+            fleet = fleet.withRemoved(fleetKeys.remove(vehicle));
         }
         System.out.println("Vehicle " + id + " removed from the fleet.");
     }
 
-    public void startAllJourneys(double distance) {
+    /** Removes several vehicles with a single fleet update. Returns the IDs that were not found. */
+    public List<String> removeVehicles(List<String> ids) {
+        List<String> missing = new ArrayList<>();
+        List<String> removed = new ArrayList<>(ids.size());
+        synchronized (writeLock) {
+            long[] keys = new long[ids.size()];
+            for (String id : ids) {
+                Vehicle vehicle = vehiclesById.remove(idKey(id));
+                if (vehicle == null) {
+                    missing.add(id);
+                } else {
+                    detach(vehicle);
+                    keys[removed.size()] = fleetKeys.remove(vehicle);
+                    removed.add(id);
+                }
+            }
+            if (!removed.isEmpty()) {
+                fleet = fleet.withRemoved(Arrays.copyOf(keys, removed.size()));
+            }
+        }
+        for (String id : removed) {
+            System.out.println("Vehicle " + id + " removed from the fleet.");
+        }
+        return missing;
+    }
+
+    /** The current fleet version. Taking a snapshot is O(1) and never blocks writers. */
+    public FleetSnapshot snapshot() {
+        return fleet;
+    }
+
+    public Vehicle findVehicle(String id) {
+        return vehiclesById.get(idKey(id));
+    }
+
+    /** Replaces the whole fleet in one step, e.g. when a replica applies a snapshot. */
+    public void replaceFleet(List<Vehicle> vehicles) {
+        synchronized (writeLock) {
+            for (Vehicle vehicle : vehiclesById.values()) {
+                detach(vehicle);
+            }
+            vehiclesById.clear();
+            for (Vehicle vehicle : vehicles) {
+                vehiclesById.put(idKey(vehicle.getId()), vehicle);
+                attach(vehicle);
+            }
+            publish(vehicles.toArray(new Vehicle[0]));
+        }
+    }
+
+    /**
+     * Applies a batch of records from an external source of truth in one
+     * fleet update. Records are matched to the fleet by ID: new IDs are
+     * added; vehicles whose configuration is unchanged are kept as they are,
+     * runtime state included; vehicles whose configuration changed are
+     * rebuilt from the record and keep their mileage, fuel and load. IDs in
+     * {@code deletes} are removed, even if the batch also has a record for
+     * them. Applying the same batch twice changes nothing the second time.
+     */
+    public SyncSummary upsert(List<Vehicle> records, List<String> deletes) {
+        return applyBatch(records, deletes, false);
+    }
+
+    /** Like {@link #upsert}, but vehicles without a record in the batch are removed as well. */
+    public SyncSummary synchronize(List<Vehicle> records) {
+        return applyBatch(records, Collections.emptyList(), true);
+    }
+
+    private SyncSummary applyBatch(List<Vehicle> records, List<String> deletes, boolean removeMissing) {
+        SyncSummary summary = new SyncSummary();
+        VehicleTypeRegistry registry = VehicleTypeRegistry.getDefault();
+        synchronized (writeLock) {
+            Map<String, Vehicle> batch = new HashMap<>(records.size() * 4 / 3 + 16);
+            for (Vehicle record : records) {
+                if (batch.put(idKey(record.getId()), record) != null) {
+                    summary.duplicate(record.getId());
+                }
+            }
+            Set<Vehicle> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (String id : deletes) {
+                String key = idKey(id);
+                Vehicle existing = vehiclesById.get(key);
+                batch.remove(key);
+                if (existing == null) {
+                    summary.notFound(id);
+                } else if (removed.add(existing)) {
+                    summary.removed(existing.getId());
+                }
+            }
+
+            Map<Vehicle, Vehicle> replacements = new IdentityHashMap<>();
+            List<Vehicle> additions = new ArrayList<>();
+            for (Vehicle record : records) {
+                String key = idKey(record.getId());
+                if (batch.get(key) != record) {
+                    continue; // Deleted, or superseded by a later record with the same ID.
+                }
+                Vehicle existing = vehiclesById.get(key);
+                if (existing == null) {
+                    additions.add(record);
+                    summary.added(record.getId());
+                } else if (existing.getClass() != record.getClass()) {
+                    replacements.put(existing, record);
+                    summary.replaced(record.getId());
+                } else if (registry.forVehicle(existing).sameConfig(existing, record)) {
+                    summary.unchanged();
+                } else {
+                    record.restoreState(existing.captureState());
+                    replacements.put(existing, record);
+                    summary.updated(record.getId());
+                }
+            }
+            if (removeMissing) {
+                for (Vehicle v : fleet.getVehicles()) {
+                    if (!batch.containsKey(idKey(v.getId())) && removed.add(v)) {
+                        summary.removed(v.getId());
+                    }
+                }
+            }
+
+            if (summary.hasChanges()) {
+                Vehicle[] next = new Vehicle[fleet.size() - removed.size() + additions.size()];
+                int n = 0;
+                for (Vehicle v : fleet.getVehicles()) {
+                    if (removed.contains(v)) {
+                        vehiclesById.remove(idKey(v.getId()));
+                        detach(v);
+                        continue;
+                    }
+                    Vehicle replacement = replacements.get(v);
+                    if (replacement != null) {
+                        vehiclesById.put(idKey(v.getId()), replacement);
+                        detach(v);
+                        attach(replacement);
+                        v = replacement;
+                    }
+                    next[n++] = v;
+                }
+                for (Vehicle v : additions) {
+                    vehiclesById.put(idKey(v.getId()), v);
+                    attach(v);
+                    next[n++] = v;
+                }
+                publish(next);
+            }
+        }
+        System.out.println("Fleet synchronized: " + summary + ".");
+        return summary;
+    }
+
+    /**
+     * Changes whenever the efficiency of a vehicle in this fleet may have
+     * changed, e.g. a load crossing a step of its fuel model, so cached fuel
+     * figures can be invalidated. Changes to other fleets' vehicles leave it
+     * alone.
+     */
+    public long getEfficiencyVersion() {
+        return efficiencyVersion.get();
+    }
+
+    // A vehicle reports efficiency changes to the fleet it was last added to.
+    private void attach(Vehicle vehicle) {
+        vehicle.setEfficiencyListener(efficiencyListener);
+    }
+
+    private void detach(Vehicle vehicle) {
+        if (vehicle.getEfficiencyListener() == efficiencyListener) {
+            vehicle.setEfficiencyListener(null);
+        }
+    }
+
+    private static String idKey(String id) {
+        return id.toLowerCase();
+    }
+
+    /** Moves every vehicle the given distance; returns how many completed the journey. */
+    public int startAllJourneys(double distance) {
         System.out.println("\n--- Starting all journeys for " + distance + " km ---");
-        for (Vehicle vehicle : fleet) {
+        // Vehicles report their journeys on the console, so they move one at a time and in fleet order.
+        int completed = executor.countInOrder("startAllJourneys", fleet.getVehicles(), vehicle -> {
             try {
                 vehicle.move(distance);
+                return true;
+            } catch (Exception e) {
+                System.err.printf("Could not complete journey for vehicle %s: %s\n", vehicle.getId(), e.getMessage());
+                return false;
+            }
+        });
+        System.out.println("--- All journeys concluded ---");
+        return completed;
+    }
+
+    public void setRouteNetwork(RouteNetwork routeNetwork) {
+        this.routeNetwork = routeNetwork;
+    }
+
+    public RouteNetwork getRouteNetwork() {
+        return routeNetwork;
+    }
+
+    public void startAllJourneys(String from, String to) throws InvalidOperationException {
+        if (routeNetwork == null) {
+            throw new InvalidOperationException("No route network has been loaded.");
+        }
+        if (from.equals(to)) {
+            // Otherwise every vehicle would be asked to move 0 km and fail one by one.
+            throw new InvalidOperationException("Start and destination are both " + from + ". No journeys started.");
+        }
+        System.out.println("\n--- Starting all journeys from " + from + " to " + to + " ---");
+        for (Vehicle vehicle : fleet.getVehicles()) {
+            try {
+                vehicle.move(routeNetwork.shortestDistance(vehicle, from, to));
             } catch (Exception e) {
                 System.err.printf("Could not complete journey for vehicle %s: %s\n", vehicle.getId(), e.getMessage());
             }
@@ -54,130 +338,259 @@ public class FleetManager {
         System.out.println("--- All journeys concluded ---");
     }
 
+    public double refuelAll(RefuelPolicy policy) {
+        return executor.sum("refuelAll", fleet.getVehicles(),
+                v -> v instanceof FuelConsumable ? refuelVehicle((FuelConsumable) v, policy) : 0);
+    }
+
+    private double refuelVehicle(FuelConsumable vehicle, RefuelPolicy policy) {
+        double amount = policy.amountFor(vehicle.getFuelLevel(), vehicle.getFuelCapacity());
+        if (amount <= 0) {
+            return 0;
+        }
+        try {
+            vehicle.refuel(amount);
+            return amount;
+        } catch (InvalidOperationException e) {
+            return 0;
+        }
+    }
+
+    public CargoLoadPlanner.CargoPlan loadShipments(double[] shipments) {
+        List<CargoCarrier> carriers = fleet.stream()
+                .filter(v -> v instanceof CargoCarrier)
+                .map(v -> (CargoCarrier) v)
+                .collect(Collectors.toList());
+        CargoLoadPlanner.CargoPlan plan = new CargoLoadPlanner().plan(carriers, shipments);
+        plan.apply();
+        return plan;
+    }
+
     public double getTotalFuelConsumption(double distance) {
-        return fleet.stream()
-                .filter(v -> v instanceof FuelConsumable)
-                .mapToDouble(v -> distance / v.calculateFuelEfficiency())
-                .sum();
+        return projections.getTotalFuelConsumption(distance);
     }
 
-    public void maintainAll() {
+    /** The execution layer bulk operations run on, with its per-operation metrics. */
+    public FleetExecutor getExecutor() {
+        return executor;
+    }
+
+    /** Memoized journey and fuel estimates for this fleet. */
+    public JourneyProjectionCache getProjections() {
+        return projections;
+    }
+
+    /** Performs maintenance where needed; returns how many vehicles were maintained. */
+    public int maintainAll() {
         System.out.println("\n--- Checking for and performing maintenance ---");
-        for (Vehicle vehicle : fleet) {
+        // Maintenance is reported on the console, so it runs in fleet order.
+        int maintained = executor.countInOrder("maintainAll", fleet.getVehicles(), vehicle -> {
             if (vehicle instanceof Maintainable) {
                 Maintainable maintainableVehicle = (Maintainable) vehicle;
                 if (maintainableVehicle.needsMaintenance()) {
                     maintainableVehicle.performMaintenance();
+                    return true;
                 }
             }
-        }
+            return false;
+        });
         System.out.println("--- Maintenance checks complete ---");
+        return maintained;
     }
 
     public List<Vehicle> searchByType(Class<?> type) {
-        return fleet.stream()
-                .filter(type::isInstance)
-                .collect(Collectors.toList());
+        return searchByType(fleet, type);
     }
 
-    public void sortFleetByEfficiency() {
-        Collections.sort(fleet);
+    public List<Vehicle> searchByType(FleetSnapshot fleet, Class<?> type) {
+        return executor.filter("searchByType", fleet.getVehicles(), type::isInstance);
     }
 
-    public String generateReport() {
-        if (fleet.isEmpty()) {
-            return "Fleet Report: The fleet is currently empty.";
+    public void sortFleetByEfficiency() {
+        synchronized (writeLock) {
+            Vehicle[] sorted = fleet.toArray();
+            Arrays.sort(sorted);
+            publish(sorted);
         }
+    }
 
-        StringBuilder report = new StringBuilder();
-        report.append("================ FLEET REPORT ================\n");
-        report.append("Total Vehicles: ").append(fleet.size()).append("\n\n");
-
-        Map<String, Long> countByType = fleet.stream()
-                .collect(Collectors.groupingBy(v -> v.getClass().getSimpleName(), Collectors.counting()));
-        report.append("Vehicles by Type:\n");
-        countByType.forEach((type, count) -> report.append(String.format("  - %s: %d\n", type, count)));
+    /** Replaces the fleet with exactly these vehicles, in this order. Callers hold writeLock. */
+    private void publish(Vehicle[] vehicles) {
+        fleet = fleet.withVehicles(vehicles);
+        fleetKeys.clear();
+        for (int i = 0; i < vehicles.length; i++) {
+            fleetKeys.put(vehicles[i], (long) i);
+        }
+    }
 
-        double avgEfficiency = fleet.stream()
-                .filter(v -> v instanceof FuelConsumable && v.calculateFuelEfficiency() > 0)
-                .mapToDouble(Vehicle::calculateFuelEfficiency)
-                .average()
-                .orElse(0.0);
-        report.append(String.format("\nAverage Fuel Efficiency: %.2f km/l\n", avgEfficiency));
+    public String generateReport() {
+        return generateReport(fleet);
+    }
 
-        double totalMileage = fleet.stream().mapToDouble(Vehicle::getCurrentMileage).sum();
-        report.append(String.format("Total Fleet Mileage: %.1f km\n\n", totalMileage));
+    public String generateReport(FleetSnapshot fleet) {
+        synchronized (reportWriter) {
+            return reportWriter.render(fleet).toString();
+        }
+    }
 
-        List<Vehicle> needsMaintenance = getVehiclesNeedingMaintenance();
-        report.append("Maintenance Status:\n");
-        if (needsMaintenance.isEmpty()) {
-            report.append("  All vehicles are in good condition.\n");
-        } else {
-            report.append("  Vehicles needing maintenance: ").append(needsMaintenance.size()).append("\n");
-            needsMaintenance.forEach(v -> report.append(String.format("    - ID: %s, Mileage: %.1f km\n", v.getId(), v.getCurrentMileage())));
+    /** Streams the report of the current fleet to the channel without building it as a string. */
+    public void writeReport(WritableByteChannel channel) throws IOException {
+        synchronized (reportWriter) {
+            reportWriter.writeTo(fleet, channel);
         }
-        report.append("==============================================");
-        return report.toString();
     }
 
     public List<Vehicle> getVehiclesNeedingMaintenance() {
-        return fleet.stream()
-                .filter(v -> v instanceof Maintainable)
-                .filter(v -> ((Maintainable) v).needsMaintenance())
-                .collect(Collectors.toList());
+        return getVehiclesNeedingMaintenance(fleet);
+    }
+
+    public List<Vehicle> getVehiclesNeedingMaintenance(FleetSnapshot fleet) {
+        return executor.filter("getVehiclesNeedingMaintenance", fleet.getVehicles(),
+                v -> v instanceof Maintainable && ((Maintainable) v).needsMaintenance());
     }
 
+    /**
+     * Writes the fleet as CSV, compressed in checksummed blocks if the name
+     * ends with {@link #COMPRESSED_SUFFIX}.
+     */
     public void saveToFile(String filename) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
-            for (Vehicle vehicle : fleet) {
-                writer.println(vehicle.toCsvString());
-            }
+        saveToFile(filename, filename.endsWith(COMPRESSED_SUFFIX));
+    }
+
+    /**
+     * Writes the fleet as CSV, optionally deflated in checksummed blocks.
+     * The file is replaced only once it is completely written.
+     */
+    public void saveToFile(String filename, boolean compressed) {
+        try {
+            writeCsv(filename, compressed);
             System.out.println("Fleet successfully saved to " + filename);
         } catch (IOException e) {
             System.err.println("Error saving fleet to file: " + e.getMessage());
         }
     }
 
+    /** Like {@link #saveToFile(String)}, but quietly, and a failure is the caller's to handle. */
+    public void writeCsv(String filename) throws IOException {
+        writeCsv(filename, filename.endsWith(COMPRESSED_SUFFIX));
+    }
+
+    /** Like {@link #saveToFile(String, boolean)}, but quietly, and a failure is the caller's to handle. */
+    public void writeCsv(String filename, boolean compressed) throws IOException {
+        FleetSnapshot snapshot = fleet;
+        CsvVehicleCodec codec = VehicleTypeRegistry.getDefault().csv();
+        AtomicFile.write(Paths.get(filename), file -> {
+            try (Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(compressed ? new BlockOutputStream(file) : file), 1 << 16)) {
+                for (Vehicle vehicle : snapshot.getVehicles()) {
+                    writer.write(codec.encode(vehicle));
+                    writer.write(System.lineSeparator());
+                }
+            }
+        });
+    }
+
+    /**
+     * Saves the fleet in the background, in the same format as
+     * {@link #saveToFile(String)}. Only the point-in-time capture runs on
+     * the calling thread: the current snapshot and each vehicle's state,
+     * a few milliseconds even for large fleets. Encoding and writing happen
+     * on a dedicated I/O thread through an asynchronous file channel, so
+     * journeys and reports carry on meanwhile. The future completes with
+     * the number of vehicles written once the file is on disk and in place.
+     */
+    public CompletableFuture<Integer> saveAsync(String filename) {
+        return FleetCheckpointer.checkpoint(fleet, Paths.get(filename), filename.endsWith(COMPRESSED_SUFFIX));
+    }
+
+    /**
+     * Loads a fleet from plain or compressed CSV. Malformed lines are
+     * skipped, but if the file cannot be read to the end, or a compressed
+     * file turns out truncated or corrupt, the current fleet is kept.
+     */
     public void loadFromFile(String filename) {
-        fleet.clear();
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+        try {
+            readCsv(filename);
+        } catch (IOException e) {
+            System.err.println("Error loading fleet from file: " + e.getMessage() + " The current fleet was kept.");
+            return;
+        }
+        System.out.println("Fleet successfully loaded from " + filename);
+    }
+
+    /**
+     * Like {@link #loadFromFile(String)}, but a failure to read the file is
+     * the caller's to handle; the current fleet is then kept. Malformed lines
+     * are still skipped with a message. Returns the number of vehicles loaded.
+     */
+    public int readCsv(String filename) throws IOException {
+        List<Vehicle> loaded = new ArrayList<>();
+        CsvVehicleCodec codec = VehicleTypeRegistry.getDefault().csv();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(BlockInputStream.open(Paths.get(filename))))) {
             String line;
             while ((line = reader.readLine()) != null) {
                 try {
-                    String[] data = line.split(",");
-                    Vehicle vehicle = createVehicleFromCsv(data);
-                    fleet.add(vehicle);
+                    loaded.add(codec.decode(line));
                 } catch (Exception e) {
                     System.err.println("Skipping malformed line in " + filename + ": " + line + " (" + e.getMessage() + ")");
                 }
             }
-            System.out.println("Fleet successfully loaded from " + filename);
+        }
+        replaceFleet(loaded);
+        return loaded.size();
+    }
+
+    /**
+     * Writes the fleet as a binary image, which loads much faster than CSV
+     * because nothing has to be parsed from text. The image is deflated in
+     * checksummed blocks and replaces the file only once complete.
+     */
+    public void saveImage(String filename) {
+        try {
+            writeImage(filename);
+            System.out.println("Fleet image successfully saved to " + filename);
         } catch (IOException e) {
-            System.err.println("Error loading fleet from file: " + e.getMessage());
-        }
-    }
-
-    private Vehicle createVehicleFromCsv(String[] data) {
-        String type = data[0];
-        String id = data[1];
-        String model = data[2];
-        double maxSpeed = Double.parseDouble(data[3]);
-
-        switch (type) {
-            case "Car":
-                return new Car(id, model, maxSpeed);
-            case "Truck":
-                return new Truck(id, model, maxSpeed);
-            case "Bus":
-                return new Bus(id, model, maxSpeed);
-            case "Airplane":
-                double maxAltitude = Double.parseDouble(data[4]);
-                return new Airplane(id, model, maxSpeed, maxAltitude);
-            case "CargoShip":
-                boolean hasSail = Boolean.parseBoolean(data[4]);
-                return new CargoShip(id, model, maxSpeed, hasSail);
-            default:
-                throw new IllegalArgumentException("Unknown vehicle type in file: " + type);
+            System.err.println("Error saving fleet image: " + e.getMessage());
+        }
+    }
+
+    /** Like {@link #saveImage(String)}, but quietly, and a failure is the caller's to handle. */
+    public void writeImage(String filename) throws IOException {
+        FleetSnapshot snapshot = fleet;
+        AtomicFile.write(Paths.get(filename), file -> {
+            try (DataOutputStream out = new DataOutputStream(new BlockOutputStream(file))) {
+                out.writeInt(IMAGE_MAGIC);
+                out.writeInt(snapshot.size());
+                BinaryVehicleWriter writer = new BinaryVehicleWriter(out);
+                for (Vehicle vehicle : snapshot.getVehicles()) {
+                    writer.write(vehicle);
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads a fleet image, compressed or from before images were. The fleet
+     * is only replaced once the whole image has been read and verified.
+     */
+    public void loadImage(String filename) throws IOException {
+        try (DataInputStream in = new DataInputStream(BlockInputStream.open(Paths.get(filename)))) {
+            if (in.readInt() != IMAGE_MAGIC) {
+                throw new IOException(filename + " is not a fleet image.");
+            }
+            int count = in.readInt();
+            List<Vehicle> loaded = new ArrayList<>(count);
+            BinaryVehicleReader reader = new BinaryVehicleReader(in);
+            for (int i = 0; i < count; i++) {
+                loaded.add(reader.read());
+            }
+            // Reading past the last vehicle verifies the trailer of a compressed image.
+            if (in.read() != -1) {
+                throw new IOException(filename + " has data after the last vehicle.");
+            }
+            replaceFleet(loaded);
+        } catch (EOFException e) {
+            throw new IOException(filename + " is truncated.", e);
         }
     }
 }
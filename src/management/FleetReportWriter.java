@@ -0,0 +1,297 @@
+package management;
+
+import interfaces.FuelConsumable;
+import interfaces.Maintainable;
+import vehicles.Vehicle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Renders the fleet report (the same text as {@link ReportAggregate#render()})
+ * without per-line formatting garbage. The text is built in a builder and
+ * byte buffer owned by the writer and reused from one report to the next,
+ * numbers are formatted by hand, and the per-type counts live in arrays
+ * keyed by vehicle class. Once the writer has seen every vehicle type and
+ * its buffers have grown to size, rendering a report allocates nothing.
+ * <p>
+ * {@link #writeTo(FleetSnapshot, WritableByteChannel)} streams the report to
+ * a channel in buffer-sized pieces, so even a maintenance section with
+ * millions of lines never exists in memory as a whole.
+ * <p>
+ * A writer is not thread-safe; give each thread its own or lock around it.
+ */
+public class FleetReportWriter {
+
+    private static final int FLUSH_THRESHOLD = 32 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long[] POWERS_OF_TEN = { 1, 10, 100, 1000 };
+
+    private final StringBuilder text = new StringBuilder(4096);
+    // Allocated on first use; writers that only render text never need it.
+    private ByteBuffer bytes;
+    private final char decimalSeparator =
+            DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)).getDecimalSeparator();
+
+    // Vehicle classes seen so far, sorted by simple name as in the report.
+    private Class<?>[] types = new Class<?>[8];
+    private String[] typeNames = new String[8];
+    private long[] typeCounts = new long[8];
+    private int typeCount;
+
+    private Vehicle[] maintenance = new Vehicle[64];
+    private double[] maintenanceMileage = new double[64];
+    private int maintenanceCount;
+
+    private double efficiencySum;
+    private long efficiencyCount;
+    private double totalMileage;
+
+    /**
+     * Renders the report into the writer's builder. The returned text is only
+     * valid until the next call on this writer.
+     */
+    public CharSequence render(FleetSnapshot fleet) {
+        try {
+            render(fleet, null);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Unreachable without a channel.
+        }
+        return text;
+    }
+
+    /**
+     * Renders the report as UTF-8 into the writer's buffer, which is returned
+     * ready for reading and only valid until the next call on this writer.
+     * The buffer grows to fit the report and keeps its size for the next
+     * ones; use {@link #writeTo} to stream a very large report instead.
+     */
+    public ByteBuffer renderBytes(FleetSnapshot fleet) {
+        render(fleet);
+        clearBuffer();
+        try {
+            encode(0, text.length(), null);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Unreachable without a channel.
+        }
+        bytes.flip();
+        return bytes;
+    }
+
+    /** Streams the report to the channel as UTF-8, one buffer at a time. */
+    public void writeTo(FleetSnapshot fleet, WritableByteChannel channel) throws IOException {
+        clearBuffer();
+        render(fleet, channel);
+        encode(0, text.length(), channel);
+        drain(channel);
+        text.setLength(0);
+    }
+
+    /** Appends the text {@link Vehicle#displayInfo()} prints for the vehicle. */
+    public void appendInfo(StringBuilder out, Vehicle v) {
+        out.append("--- Vehicle Info ---\n");
+        out.append("ID: ").append(v.getId()).append('\n');
+        out.append("Model: ").append(v.getModel()).append('\n');
+        out.append("Max Speed: ");
+        appendFixed(out, v.getMaxSpeed(), 1).append(" km/h\n");
+        out.append("Current Mileage: ");
+        appendFixed(out, v.getCurrentMileage(), 1).append(" km\n");
+    }
+
+    private void render(FleetSnapshot fleet, WritableByteChannel channel) throws IOException {
+        collect(fleet);
+        text.setLength(0);
+        if (fleet.isEmpty()) {
+            text.append("Fleet Report: The fleet is currently empty.");
+            return;
+        }
+
+        text.append("================ FLEET REPORT ================\n");
+        text.append("Total Vehicles: ").append(fleet.size()).append("\n\n");
+
+        text.append("Vehicles by Type:\n");
+        for (int i = 0; i < typeCount; i++) {
+            if (typeCounts[i] > 0) {
+                text.append("  - ").append(typeNames[i]).append(": ").append(typeCounts[i]).append('\n');
+            }
+        }
+
+        text.append("\nAverage Fuel Efficiency: ");
+        appendFixed(text, efficiencyCount == 0 ? 0.0 : efficiencySum / efficiencyCount, 2).append(" km/l\n");
+        text.append("Total Fleet Mileage: ");
+        appendFixed(text, totalMileage, 1).append(" km\n\n");
+
+        text.append("Maintenance Status:\n");
+        if (maintenanceCount == 0) {
+            text.append("  All vehicles are in good condition.\n");
+        } else {
+            text.append("  Vehicles needing maintenance: ").append(maintenanceCount).append('\n');
+            for (int i = 0; i < maintenanceCount; i++) {
+                text.append("    - ID: ").append(maintenance[i].getId()).append(", Mileage: ");
+                appendFixed(text, maintenanceMileage[i], 1).append(" km\n");
+                maintenance[i] = null;
+                if (channel != null && text.length() >= FLUSH_THRESHOLD) {
+                    encode(0, text.length(), channel);
+                    text.setLength(0);
+                }
+            }
+        }
+        text.append("==============================================");
+    }
+
+    /** One pass over the fleet, the same figures {@link ReportAggregate#add(Vehicle)} collects. */
+    private void collect(FleetSnapshot fleet) {
+        Arrays.fill(typeCounts, 0, typeCount, 0);
+        maintenanceCount = 0;
+        efficiencySum = 0;
+        efficiencyCount = 0;
+        totalMileage = 0;
+
+        Class<?> lastType = null;
+        int lastIndex = -1;
+        List<Vehicle> vehicles = fleet.getVehicles();
+        for (int i = 0, n = vehicles.size(); i < n; i++) {
+            Vehicle v = vehicles.get(i);
+            Class<?> type = v.getClass();
+            if (type != lastType) {
+                lastType = type;
+                lastIndex = typeIndex(type);
+            }
+            typeCounts[lastIndex]++;
+
+            double efficiency = v.calculateFuelEfficiency();
+            if (v instanceof FuelConsumable && efficiency > 0) {
+                efficiencySum += efficiency;
+                efficiencyCount++;
+            }
+            double mileage = v.getCurrentMileage();
+            totalMileage += mileage;
+            if (v instanceof Maintainable && ((Maintainable) v).needsMaintenance()) {
+                if (maintenanceCount == maintenance.length) {
+                    maintenance = Arrays.copyOf(maintenance, maintenanceCount * 2);
+                    maintenanceMileage = Arrays.copyOf(maintenanceMileage, maintenanceCount * 2);
+                }
+                maintenance[maintenanceCount] = v;
+                maintenanceMileage[maintenanceCount++] = mileage;
+            }
+        }
+    }
+
+    private int typeIndex(Class<?> type) {
+        for (int i = 0; i < typeCount; i++) {
+            if (types[i] == type) {
+                return i;
+            }
+        }
+        if (typeCount == types.length) {
+            types = Arrays.copyOf(types, typeCount * 2);
+            typeNames = Arrays.copyOf(typeNames, typeCount * 2);
+            typeCounts = Arrays.copyOf(typeCounts, typeCount * 2);
+        }
+        String name = type.getSimpleName();
+        int at = typeCount;
+        while (at > 0 && typeNames[at - 1].compareTo(name) > 0) {
+            types[at] = types[at - 1];
+            typeNames[at] = typeNames[at - 1];
+            typeCounts[at] = typeCounts[at - 1];
+            at--;
+        }
+        types[at] = type;
+        typeNames[at] = name;
+        typeCounts[at] = 0;
+        typeCount++;
+        return at;
+    }
+
+    /**
+     * Appends {@code value} with {@code decimals} digits after the separator,
+     * exactly as {@code String.format("%.<decimals>f")} would: that rounds the
+     * shortest decimal form of the double half-up. Near a rounding boundary
+     * the binary value alone is ambiguous, so the boundary itself is compared
+     * as a double. NaN, infinities and values too large for a long are left to
+     * {@code String.format}.
+     */
+    public StringBuilder appendFixed(StringBuilder out, double value, int decimals) {
+        double magnitude = Math.abs(value);
+        long scale = POWERS_OF_TEN[decimals];
+        double scaled = magnitude * scale;
+        if (!(scaled < 1e15)) {
+            return out.append(String.format("%." + decimals + "f", value));
+        }
+        long whole = (long) scaled;
+        double fraction = scaled - whole;
+        long rounded;
+        if (Math.abs(fraction - 0.5) <= 4 * Math.ulp(scaled)) {
+            // Doubles at or above the one closest to "whole.5" have a shortest form at or above it.
+            rounded = magnitude >= (2 * whole + 1) / (2.0 * scale) ? whole + 1 : whole;
+        } else {
+            rounded = fraction > 0.5 ? whole + 1 : whole;
+        }
+        if (Double.doubleToRawLongBits(value) < 0) {
+            out.append('-');
+        }
+        out.append(rounded / scale);
+        if (decimals > 0) {
+            out.append(decimalSeparator);
+            long digits = rounded % scale;
+            for (long pad = scale / 10; pad > 1 && digits < pad; pad /= 10) {
+                out.append('0');
+            }
+            out.append(digits);
+        }
+        return out;
+    }
+
+    /** UTF-8 encodes text[from, to) into the byte buffer, writing it out whenever it fills up. */
+    private void encode(int from, int to, WritableByteChannel channel) throws IOException {
+        for (int i = from; i < to; i++) {
+            if (bytes.remaining() < 4) {
+                if (channel == null) {
+                    grow();
+                } else {
+                    drain(channel);
+                }
+            }
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes.put((byte) c);
+            } else if (c < 0x800) {
+                bytes.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, text.charAt(++i));
+                bytes.put((byte) (0xF0 | cp >> 18)).put((byte) (0x80 | cp >> 12 & 0x3F))
+                        .put((byte) (0x80 | cp >> 6 & 0x3F)).put((byte) (0x80 | cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                bytes.put((byte) '?');
+            } else {
+                bytes.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    private void clearBuffer() {
+        if (bytes == null) {
+            bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        bytes.clear();
+    }
+
+    private void grow() {
+        ByteBuffer larger = ByteBuffer.allocateDirect(bytes.capacity() * 2);
+        bytes.flip();
+        bytes = larger.put(bytes);
+    }
+
+    private void drain(WritableByteChannel channel) throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
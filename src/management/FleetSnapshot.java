@@ -0,0 +1,352 @@
+package management;
+
+import vehicles.Vehicle;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * An immutable, versioned view of which vehicles are in a fleet.
+ * The vehicles are held in a persistent tree: a new version copies only the
+ * nodes on the path to the change and shares all others with the version it
+ * was made from, so adding or removing one vehicle costs O(log n) however
+ * large the fleet is. Nothing is modified after construction, so a snapshot
+ * can be read from any thread while the fleet keeps changing. Versions
+ * nobody holds any more are simply garbage collected.
+ *
+ * Every vehicle has a key in the tree, and keys increase in fleet order.
+ * Appended vehicles get {@link #nextKey()}; a fleet built from an array gets
+ * the array indexes. The manager keeps each vehicle's key so a removal needs
+ * no search.
+ *
+ * Only fleet membership is frozen; the vehicles themselves are live objects.
+ */
+public final class FleetSnapshot {
+
+    static final FleetSnapshot EMPTY = new FleetSnapshot(0, null, 0);
+
+    // Children per tree node; one change copies at most one node of this size per level.
+    private static final int WIDTH = 32;
+
+    private final long version;
+    private final Node root; // null when the fleet is empty
+    private final long nextKey;
+    // The vehicles in fleet order, flattened by the first read of the whole fleet.
+    private volatile List<Vehicle> view;
+
+    private FleetSnapshot(long version, Node root, long nextKey) {
+        this.version = version;
+        this.root = root;
+        this.nextKey = nextKey;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return root == null ? 0 : root.size;
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public Vehicle get(int index) {
+        Objects.checkIndex(index, size());
+        List<Vehicle> flat = view;
+        return flat != null ? flat.get(index) : root.get(index);
+    }
+
+    public List<Vehicle> getVehicles() {
+        List<Vehicle> flat = view;
+        if (flat == null) {
+            flat = Collections.unmodifiableList(Arrays.asList(toArray()));
+            view = flat;
+        }
+        return flat;
+    }
+
+    public Stream<Vehicle> stream() {
+        return getVehicles().stream();
+    }
+
+    /** The key the next appended vehicle gets. */
+    long nextKey() {
+        return nextKey;
+    }
+
+    FleetSnapshot withAdded(Vehicle vehicle) {
+        return new FleetSnapshot(version + 1, append(root, nextKey, vehicle), nextKey + 1);
+    }
+
+    /** Appends the vehicles in order; they get consecutive keys from {@link #nextKey()} on. */
+    FleetSnapshot withAdded(List<Vehicle> added) {
+        int n = size();
+        if (added.size() * WIDTH < n) {
+            Node next = root;
+            for (int i = 0; i < added.size(); i++) {
+                next = append(next, nextKey + i, added.get(i));
+            }
+            return new FleetSnapshot(version + 1, next, nextKey + added.size());
+        }
+        // Enough vehicles that building a new tree is cheaper than copying a path for each.
+        long[] keys = new long[n + added.size()];
+        Vehicle[] vehicles = new Vehicle[keys.length];
+        if (root != null) {
+            root.copyTo(keys, vehicles, 0);
+        }
+        for (int i = 0; i < added.size(); i++) {
+            keys[n + i] = nextKey + i;
+            vehicles[n + i] = added.get(i);
+        }
+        return new FleetSnapshot(version + 1, build(keys, vehicles, keys.length), nextKey + added.size());
+    }
+
+    FleetSnapshot withRemoved(long key) {
+        return new FleetSnapshot(version + 1, remove(root, key), nextKey);
+    }
+
+    FleetSnapshot withRemoved(long[] removed) {
+        int n = size();
+        if (removed.length * WIDTH < n) {
+            Node next = root;
+            for (long key : removed) {
+                next = remove(next, key);
+            }
+            return new FleetSnapshot(version + 1, next, nextKey);
+        }
+        long[] sorted = removed.clone();
+        Arrays.sort(sorted);
+        long[] keys = new long[n];
+        Vehicle[] vehicles = new Vehicle[n];
+        if (root != null) {
+            root.copyTo(keys, vehicles, 0);
+        }
+        // Both key lists are sorted, so one merge pass drops the removed ones.
+        int kept = 0;
+        for (int i = 0, r = 0; i < n; i++) {
+            while (r < sorted.length && sorted[r] < keys[i]) {
+                r++;
+            }
+            if (r < sorted.length && sorted[r] == keys[i]) {
+                continue;
+            }
+            keys[kept] = keys[i];
+            vehicles[kept++] = vehicles[i];
+        }
+        return new FleetSnapshot(version + 1, build(keys, vehicles, kept), nextKey);
+    }
+
+    /** A fleet of exactly these vehicles, keyed by their index in the array. */
+    FleetSnapshot withVehicles(Vehicle[] replacement) {
+        long[] keys = new long[replacement.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i;
+        }
+        return new FleetSnapshot(version + 1, build(keys, replacement, keys.length), keys.length);
+    }
+
+    Vehicle[] toArray() {
+        Vehicle[] vehicles = new Vehicle[size()];
+        if (root != null) {
+            root.copyTo(null, vehicles, 0);
+        }
+        return vehicles;
+    }
+
+    private static Node append(Node root, long key, Vehicle vehicle) {
+        if (root == null) {
+            return new Leaf(new long[] {key}, new Vehicle[] {vehicle});
+        }
+        Node[] split = root.append(key, vehicle);
+        return split.length == 1 ? split[0] : new Branch(split);
+    }
+
+    private static Node remove(Node root, long key) {
+        Node next = root == null ? null : root.remove(key);
+        // Drop levels left with a single child so lookups do not walk them.
+        while (next instanceof Branch && ((Branch) next).children.length == 1) {
+            next = ((Branch) next).children[0];
+        }
+        return next;
+    }
+
+    /** A tree of the first n keys and vehicles with every node full, or null if n is 0. */
+    private static Node build(long[] keys, Vehicle[] vehicles, int n) {
+        if (n == 0) {
+            return null;
+        }
+        Node[] level = new Node[(n + WIDTH - 1) / WIDTH];
+        for (int i = 0; i < level.length; i++) {
+            int from = i * WIDTH;
+            int to = Math.min(n, from + WIDTH);
+            level[i] = new Leaf(Arrays.copyOfRange(keys, from, to), Arrays.copyOfRange(vehicles, from, to));
+        }
+        while (level.length > 1) {
+            Node[] parents = new Node[(level.length + WIDTH - 1) / WIDTH];
+            for (int i = 0; i < parents.length; i++) {
+                int from = i * WIDTH;
+                parents[i] = new Branch(Arrays.copyOfRange(level, from, Math.min(level.length, from + WIDTH)));
+            }
+            level = parents;
+        }
+        return level[0];
+    }
+
+    private static long[] without(long[] array, int index) {
+        long[] next = Arrays.copyOf(array, array.length - 1);
+        System.arraycopy(array, index + 1, next, index, next.length - index);
+        return next;
+    }
+
+    private static <T> T[] without(T[] array, int index) {
+        T[] next = Arrays.copyOf(array, array.length - 1);
+        System.arraycopy(array, index + 1, next, index, next.length - index);
+        return next;
+    }
+
+    /** A subtree. Keys increase from left to right, and maxKey is the key of its last vehicle. */
+    private abstract static class Node {
+        final int size;
+        final long maxKey;
+
+        Node(int size, long maxKey) {
+            this.size = size;
+            this.maxKey = maxKey;
+        }
+
+        abstract Vehicle get(int index);
+
+        /** Copies the subtree in order from offset on; keys may be null. Returns the offset after it. */
+        abstract int copyTo(long[] keys, Vehicle[] vehicles, int offset);
+
+        /** This subtree with the vehicle appended, or this node and a new right sibling if it is full. */
+        abstract Node[] append(long key, Vehicle vehicle);
+
+        /** This subtree without the key: this node if the key is not in it, null if nothing is left. */
+        abstract Node remove(long key);
+    }
+
+    private static final class Leaf extends Node {
+        final long[] keys;
+        final Vehicle[] vehicles;
+
+        Leaf(long[] keys, Vehicle[] vehicles) {
+            super(keys.length, keys[keys.length - 1]);
+            this.keys = keys;
+            this.vehicles = vehicles;
+        }
+
+        @Override
+        Vehicle get(int index) {
+            return vehicles[index];
+        }
+
+        @Override
+        int copyTo(long[] keys, Vehicle[] vehicles, int offset) {
+            if (keys != null) {
+                System.arraycopy(this.keys, 0, keys, offset, size);
+            }
+            System.arraycopy(this.vehicles, 0, vehicles, offset, size);
+            return offset + size;
+        }
+
+        @Override
+        Node[] append(long key, Vehicle vehicle) {
+            if (size == WIDTH) {
+                return new Node[] {this, new Leaf(new long[] {key}, new Vehicle[] {vehicle})};
+            }
+            long[] nextKeys = Arrays.copyOf(keys, size + 1);
+            nextKeys[size] = key;
+            Vehicle[] nextVehicles = Arrays.copyOf(vehicles, size + 1);
+            nextVehicles[size] = vehicle;
+            return new Node[] {new Leaf(nextKeys, nextVehicles)};
+        }
+
+        @Override
+        Node remove(long key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index < 0) {
+                return this;
+            }
+            return size == 1 ? null : new Leaf(without(keys, index), without(vehicles, index));
+        }
+    }
+
+    private static final class Branch extends Node {
+        final Node[] children;
+
+        Branch(Node[] children) {
+            super(sizeOf(children), children[children.length - 1].maxKey);
+            this.children = children;
+        }
+
+        private static int sizeOf(Node[] children) {
+            int size = 0;
+            for (Node child : children) {
+                size += child.size;
+            }
+            return size;
+        }
+
+        @Override
+        Vehicle get(int index) {
+            int i = 0;
+            while (index >= children[i].size) {
+                index -= children[i++].size;
+            }
+            return children[i].get(index);
+        }
+
+        @Override
+        int copyTo(long[] keys, Vehicle[] vehicles, int offset) {
+            for (Node child : children) {
+                offset = child.copyTo(keys, vehicles, offset);
+            }
+            return offset;
+        }
+
+        @Override
+        Node[] append(long key, Vehicle vehicle) {
+            int last = children.length - 1;
+            Node[] split = children[last].append(key, vehicle);
+            if (split.length == 1) {
+                Node[] next = children.clone();
+                next[last] = split[0];
+                return new Node[] {new Branch(next)};
+            }
+            if (children.length < WIDTH) {
+                Node[] next = Arrays.copyOf(children, children.length + 1);
+                next[last + 1] = split[1];
+                return new Node[] {new Branch(next)};
+            }
+            // A full child only splits off a new sibling, so this node is unchanged too.
+            return new Node[] {this, new Branch(new Node[] {split[1]})};
+        }
+
+        @Override
+        Node remove(long key) {
+            int i = 0;
+            while (i < children.length && children[i].maxKey < key) {
+                i++;
+            }
+            if (i == children.length) {
+                return this;
+            }
+            Node child = children[i].remove(key);
+            if (child == children[i]) {
+                return this;
+            }
+            if (child != null) {
+                Node[] next = children.clone();
+                next[i] = child;
+                return new Branch(next);
+            }
+            return children.length == 1 ? null : new Branch(without(children, i));
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package management;
+
+import vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Memoized journey-time and fuel projections. Vehicles are grouped into
+ * {@link EstimateClass estimate classes} of the same type, fuel efficiency
+ * and top speed, which is everything the estimates depend on.
+ * A projection is computed once per (class, distance) and kept in a
+ * {@link TinyLfuCache}; fleet-wide totals are those figures times the number
+ * of vehicles in each class.
+ * <p>
+ * The class counts are rebuilt only when the fleet changes or a vehicle's
+ * efficiency may have changed (see {@link FleetManager#getEfficiencyVersion()}),
+ * e.g. when a load crosses a step of its fuel model's load table.
+ */
+public class JourneyProjectionCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 4096;
+
+    private enum Projection { FUEL, TIME }
+
+    private final FleetManager fleetManager;
+    private final TinyLfuCache<Key, Double> cache;
+    private volatile ClassCounts counts;
+
+    public JourneyProjectionCache(FleetManager fleetManager) {
+        this(fleetManager, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public JourneyProjectionCache(FleetManager fleetManager, int maximumSize) {
+        this.fleetManager = fleetManager;
+        this.cache = new TinyLfuCache<>(maximumSize);
+    }
+
+    /** Fuel the fleet's fuel-consuming vehicles would use to each travel the distance. */
+    public double getTotalFuelConsumption(double distance) {
+        ClassCounts current = currentCounts();
+        double total = 0;
+        for (int i = 0; i < current.classes.length; i++) {
+            EstimateClass estimateClass = current.classes[i];
+            if (estimateClass.fuelConsumable) {
+                total += current.counts[i] * project(Projection.FUEL, estimateClass, current.representatives[i], distance);
+            }
+        }
+        return total;
+    }
+
+    /** Vehicle-hours for every vehicle in the fleet to travel the distance. */
+    public double getTotalJourneyTime(double distance) {
+        ClassCounts current = currentCounts();
+        double total = 0;
+        for (int i = 0; i < current.classes.length; i++) {
+            total += current.counts[i] * project(Projection.TIME, current.classes[i], current.representatives[i], distance);
+        }
+        return total;
+    }
+
+    /** Hours until the slowest vehicle of the fleet has travelled the distance. */
+    public double getLongestJourneyTime(double distance) {
+        ClassCounts current = currentCounts();
+        double longest = 0;
+        for (int i = 0; i < current.classes.length; i++) {
+            longest = Math.max(longest, project(Projection.TIME, current.classes[i], current.representatives[i], distance));
+        }
+        return longest;
+    }
+
+    public double estimateJourneyTime(Vehicle vehicle, double distance) {
+        return project(Projection.TIME, EstimateClass.of(vehicle), vehicle, distance);
+    }
+
+    public double estimateFuel(Vehicle vehicle, double distance) {
+        return project(Projection.FUEL, EstimateClass.of(vehicle), vehicle, distance);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        counts = null;
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    private double project(Projection projection, EstimateClass estimateClass, Vehicle representative, double distance) {
+        Key key = new Key(projection, estimateClass, distance);
+        Double value = cache.get(key);
+        if (value == null) {
+            // Fuel comes from the class's efficiency rather than the vehicle, which may have changed class since.
+            value = projection == Projection.FUEL
+                    ? distance / estimateClass.efficiency
+                    : representative.estimateJourneyTime(distance);
+            cache.put(key, value);
+        }
+        return value;
+    }
+
+    private ClassCounts currentCounts() {
+        FleetSnapshot fleet = fleetManager.snapshot();
+        long efficiencyVersion = fleetManager.getEfficiencyVersion();
+        ClassCounts current = counts;
+        if (current == null || current.fleetVersion != fleet.getVersion() || current.efficiencyVersion != efficiencyVersion) {
+            current = ClassCounts.of(fleet, efficiencyVersion);
+            counts = current;
+        }
+        return current;
+    }
+
+    private static final class Key {
+
+        final Projection projection;
+        final EstimateClass estimateClass;
+        final double distance;
+
+        Key(Projection projection, EstimateClass estimateClass, double distance) {
+            this.projection = projection;
+            this.estimateClass = estimateClass;
+            this.distance = distance;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return projection == other.projection
+                    && Double.compare(distance, other.distance) == 0
+                    && estimateClass.equals(other.estimateClass);
+        }
+
+        @Override
+        public int hashCode() {
+            return (estimateClass.hashCode() * 31 + Double.hashCode(distance)) * 31 + projection.ordinal();
+        }
+    }
+
+    /** How many vehicles of a fleet version fall into each estimate class. */
+    private static final class ClassCounts {
+
+        final long fleetVersion;
+        final long efficiencyVersion;
+        final EstimateClass[] classes;
+        final Vehicle[] representatives;
+        final int[] counts;
+
+        private ClassCounts(long fleetVersion, long efficiencyVersion, EstimateClass[] classes,
+                            Vehicle[] representatives, int[] counts) {
+            this.fleetVersion = fleetVersion;
+            this.efficiencyVersion = efficiencyVersion;
+            this.classes = classes;
+            this.representatives = representatives;
+            this.counts = counts;
+        }
+
+        static ClassCounts of(FleetSnapshot fleet, long efficiencyVersion) {
+            Map<EstimateClass, Integer> index = new LinkedHashMap<>();
+            List<Vehicle> representatives = new ArrayList<>();
+            List<Integer> counts = new ArrayList<>();
+            for (Vehicle vehicle : fleet.getVehicles()) {
+                EstimateClass estimateClass = EstimateClass.of(vehicle);
+                Integer i = index.get(estimateClass);
+                if (i == null) {
+                    index.put(estimateClass, representatives.size());
+                    representatives.add(vehicle);
+                    counts.add(1);
+                } else {
+                    counts.set(i, counts.get(i) + 1);
+                }
+            }
+            int[] countArray = new int[counts.size()];
+            for (int i = 0; i < countArray.length; i++) {
+                countArray[i] = counts.get(i);
+            }
+            return new ClassCounts(fleet.getVersion(), efficiencyVersion, index.keySet().toArray(new EstimateClass[0]),
+                    representatives.toArray(new Vehicle[0]), countArray);
+        }
+    }
+}
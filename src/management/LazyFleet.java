@@ -0,0 +1,642 @@
+package management;
+
+import exceptions.InvalidOperationException;
+import interfaces.Maintainable;
+import registry.CsvVehicleCodec;
+import registry.VehicleType;
+import registry.VehicleTypeRegistry;
+import vehicles.Vehicle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A fleet file opened without building its vehicles. Opening scans the file
+ * once and keeps only an index: the type and byte range of each line, by ID.
+ * A vehicle is built from its line the first time it is asked for and stays
+ * resident until the estimated memory of the resident vehicles exceeds the
+ * budget, at which point the least recently used ones are evicted. An
+ * evicted vehicle that changed is kept as its CSV line, so no update is lost.
+ * <p>
+ * Reports and maintenance lists decode each vehicle just long enough to
+ * read it and do not fill the resident set. A vehicle is pinned, and never
+ * evicted, while {@link #withVehicle} or {@link #forEach} runs on it; change
+ * vehicles only there. A reference from {@link #findVehicle} is the fleet's
+ * vehicle only until it is evicted, so changes made through it later are
+ * not kept. Use {@link #loadInto(FleetManager)} when the whole fleet is needed.
+ */
+public class LazyFleet implements Closeable {
+
+    /** Work on one vehicle of the fleet. */
+    public interface VehicleOperation<T> {
+        T apply(Vehicle vehicle) throws InvalidOperationException;
+    }
+
+    public static final long DEFAULT_MEMORY_BUDGET = 8L << 20;
+    // Measured heap cost of a resident vehicle besides the characters of its
+    // clean line: the vehicle, the line's String, its map entry and boxed slot.
+    static final long RESIDENT_BYTES = 320;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private final Path file;
+    private final long memoryBudget;
+    private final VehicleTypeRegistry registry = VehicleTypeRegistry.getDefault();
+    private final CsvVehicleCodec codec = registry.csv();
+    private FileChannel channel;
+
+    // The index, one slot per line in file order; vehicles added later get slots at the end.
+    private int count;
+    private VehicleType<?>[] types = new VehicleType<?>[1024];
+    private long[] offsets = new long[1024];
+    private int[] lengths = new int[1024];
+    private String[] overlay = new String[1024];
+    private boolean[] removed = new boolean[1024];
+    private int liveCount;
+
+    // IDs, case-folded, packed into one byte array and found through an
+    // open-addressing table of slot numbers, so a large index does not
+    // cost a String and a map entry per vehicle.
+    private byte[] idBytes = new byte[16 * 1024];
+    private int[] idStarts = new int[1025];
+    private int[] table = new int[2048];
+    private byte[] keyScratch = new byte[64];
+    // Least recently used first.
+    private final LinkedHashMap<Integer, Resident> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private long residentBytes;
+
+    private LazyFleet(Path file, long memoryBudget) {
+        if (memoryBudget < RESIDENT_BYTES) {
+            throw new IllegalArgumentException("The memory budget must hold at least one vehicle.");
+        }
+        this.file = file;
+        this.memoryBudget = memoryBudget;
+    }
+
+    public static LazyFleet open(String filename) throws IOException {
+        return open(filename, DEFAULT_MEMORY_BUDGET);
+    }
+
+    /** {@code memoryBudget} is in bytes of estimated heap for resident vehicles; the index is not counted. */
+    public static LazyFleet open(String filename, long memoryBudget) throws IOException {
+        LazyFleet fleet = new LazyFleet(Paths.get(filename), memoryBudget);
+        fleet.index();
+        return fleet;
+    }
+
+    public synchronized int size() {
+        return liveCount;
+    }
+
+    public synchronized int getResidentCount() {
+        return resident.size();
+    }
+
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    public synchronized boolean contains(String id) {
+        return findSlot(idKey(id)) >= 0;
+    }
+
+    /** The type name of a vehicle, answered from the index; null if there is no such vehicle. */
+    public synchronized String getTypeName(String id) {
+        int slot = findSlot(idKey(id));
+        return slot < 0 ? null : types[slot].getName();
+    }
+
+    /**
+     * The vehicle with the given ID, built from its line if it is not
+     * resident; null if there is none. It may be evicted at any later call,
+     * so use {@link #withVehicle} to change it.
+     */
+    public synchronized Vehicle findVehicle(String id) {
+        int slot = findSlot(idKey(id));
+        if (slot < 0) {
+            return null;
+        }
+        Resident r = hydrate(slot);
+        enforceBudget();
+        return r == null ? null : r.vehicle;
+    }
+
+    /**
+     * Runs the operation on a vehicle, building it first if needed. The
+     * vehicle stays pinned until the operation returns, so every change it
+     * makes is kept, even if the operation itself uses the fleet meanwhile.
+     */
+    public <T> T withVehicle(String id, VehicleOperation<T> operation) throws InvalidOperationException {
+        Resident r;
+        synchronized (this) {
+            int slot = findSlot(idKey(id));
+            r = slot < 0 ? null : hydrate(slot);
+            if (r == null) {
+                throw new InvalidOperationException("Vehicle with ID " + id + " not found.");
+            }
+            r.pins++;
+        }
+        try {
+            return operation.apply(r.vehicle);
+        } finally {
+            synchronized (this) {
+                r.pins--;
+                enforceBudget();
+            }
+        }
+    }
+
+    public synchronized void addVehicle(Vehicle v) throws InvalidOperationException {
+        byte[] key = idKey(v.getId());
+        if (findSlot(key) >= 0) {
+            throw new InvalidOperationException("Duplicate vehicle ID: " + v.getId() + ". Cannot add vehicle.");
+        }
+        int slot = newSlot(registry.forVehicle(v), -1, 0, key, 0, key.length);
+        // No clean line: it has never been written, so eviction always keeps it.
+        admit(slot, new Resident(v, null));
+        enforceBudget();
+        System.out.println("Vehicle " + v.getId() + " added to the fleet.");
+    }
+
+    public synchronized void removeVehicle(String id) throws InvalidOperationException {
+        int slot = findSlot(idKey(id));
+        if (slot < 0) {
+            throw new InvalidOperationException("Vehicle with ID " + id + " not found. Cannot remove.");
+        }
+        removed[slot] = true;
+        liveCount--;
+        overlay[slot] = null;
+        Resident r = resident.remove(slot);
+        if (r != null) {
+            residentBytes -= r.estimatedBytes;
+        }
+        System.out.println("Vehicle " + id + " removed from the fleet.");
+    }
+
+    /**
+     * Visits every vehicle in file order through the resident set, so
+     * changes made by the action are kept. Each vehicle is pinned while
+     * the action runs on it.
+     */
+    public synchronized void forEach(Consumer<Vehicle> action) {
+        for (int slot = 0; slot < count; slot++) {
+            if (!removed[slot]) {
+                Resident r = hydrate(slot);
+                if (r != null) {
+                    r.pins++;
+                    try {
+                        action.accept(r.vehicle);
+                    } finally {
+                        r.pins--;
+                    }
+                    enforceBudget();
+                }
+            }
+        }
+    }
+
+    public synchronized String generateReport() {
+        ReportAggregate aggregate = new ReportAggregate();
+        scan(Vehicle.class, aggregate::add);
+        return aggregate.render();
+    }
+
+    /** Vehicles of a class or capability; types that cannot match are skipped without being built. */
+    public synchronized List<Vehicle> searchByType(Class<?> type) {
+        List<Vehicle> result = new ArrayList<>();
+        scan(type, result::add);
+        return result;
+    }
+
+    public synchronized List<Vehicle> getVehiclesNeedingMaintenance() {
+        List<Vehicle> result = new ArrayList<>();
+        scan(Maintainable.class, v -> {
+            if (((Maintainable) v).needsMaintenance()) {
+                result.add(v);
+            }
+        });
+        return result;
+    }
+
+    /** Builds every vehicle and makes them the fleet of the given manager. */
+    public synchronized void loadInto(FleetManager fleetManager) {
+        List<Vehicle> vehicles = new ArrayList<>(liveCount);
+        scan(Vehicle.class, vehicles::add);
+        fleetManager.replaceFleet(vehicles);
+    }
+
+    /**
+     * Writes the fleet, copying the lines of untouched vehicles straight
+     * from the source file. Saving over the source file re-indexes it.
+     */
+    public synchronized void saveToFile(String filename) {
+        Path target = Paths.get(filename).toAbsolutePath().normalize();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (SourceLines source = new SourceLines();
+                 OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE)) {
+                for (int slot = 0; slot < count; slot++) {
+                    if (removed[slot]) {
+                        continue;
+                    }
+                    Resident r = resident.get(slot);
+                    if (r != null || overlay[slot] != null) {
+                        String text = r != null ? codec.encode(r.vehicle) : overlay[slot];
+                        out.write(text.getBytes(StandardCharsets.UTF_8));
+                    } else {
+                        out.write(source.read(slot), 0, lengths[slot]);
+                    }
+                    out.write(LINE_SEPARATOR);
+                }
+            }
+            boolean overwritingSource = target.equals(file.toAbsolutePath().normalize());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (overwritingSource) {
+                reindex();
+            }
+            System.out.println("Fleet successfully saved to " + filename);
+        } catch (IOException e) {
+            System.err.println("Error saving fleet to file: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /** The resident entry of a slot, decoding it if needed; the caller enforces the budget once done with it. */
+    private Resident hydrate(int slot) {
+        Resident r = resident.get(slot);
+        if (r == null) {
+            Vehicle v = decode(slot);
+            if (v == null) {
+                return null;
+            }
+            r = new Resident(v, codec.encode(v));
+            admit(slot, r);
+        }
+        return r;
+    }
+
+    private void admit(int slot, Resident r) {
+        r.estimatedBytes = RESIDENT_BYTES + (r.cleanLine == null ? 0 : r.cleanLine.length());
+        residentBytes += r.estimatedBytes;
+        resident.put(slot, r);
+    }
+
+    /** Evicts the least recently used vehicles that are not pinned until the rest fit the budget. */
+    private void enforceBudget() {
+        Iterator<Map.Entry<Integer, Resident>> it = resident.entrySet().iterator();
+        while (residentBytes > memoryBudget && it.hasNext()) {
+            Map.Entry<Integer, Resident> eldest = it.next();
+            Resident r = eldest.getValue();
+            if (r.pins == 0) {
+                evict(eldest.getKey(), r);
+                residentBytes -= r.estimatedBytes;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Visits the vehicles whose type is assignable to the given one, in file
+     * order, without making them resident. Lines are read in one sequential
+     * pass rather than one positioned read per vehicle.
+     */
+    private void scan(Class<?> type, Consumer<Vehicle> action) {
+        try (SourceLines source = new SourceLines()) {
+            for (int slot = 0; slot < count; slot++) {
+                if (removed[slot] || !type.isAssignableFrom(types[slot].getVehicleClass())) {
+                    continue;
+                }
+                Resident r = resident.get(slot);
+                Vehicle v;
+                if (r != null) {
+                    v = r.vehicle;
+                } else if (overlay[slot] != null) {
+                    v = decode(overlay[slot]);
+                } else {
+                    v = decode(new String(source.read(slot), 0, lengths[slot], StandardCharsets.UTF_8));
+                }
+                if (v != null) {
+                    action.accept(v);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading fleet file: " + e.getMessage());
+        }
+    }
+
+    private Vehicle decode(int slot) {
+        try {
+            return decode(overlay[slot] != null ? overlay[slot] : readLine(slot));
+        } catch (IOException e) {
+            System.err.println("Error reading fleet file: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private Vehicle decode(String line) {
+        try {
+            return codec.decode(line);
+        } catch (Exception e) {
+            System.err.println("Skipping malformed line in " + file + ": " + line + " (" + e.getMessage() + ")");
+            return null;
+        }
+    }
+
+    private void evict(int slot, Resident r) {
+        String line = codec.encode(r.vehicle);
+        if (!line.equals(r.cleanLine)) {
+            overlay[slot] = line;
+        }
+    }
+
+    private String readLine(int slot) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(lengths[slot]);
+        long position = offsets[slot];
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Fleet file changed since it was opened.");
+            }
+        }
+        return new String(buffer.array(), StandardCharsets.UTF_8);
+    }
+
+    private void index() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        List<TypeName> typeNames = new ArrayList<>();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            long bufferOffset = 0;
+            int limit = 0;
+            int read;
+            while ((read = in.read(buffer, limit, buffer.length - limit)) >= 0 || limit > 0) {
+                limit += Math.max(read, 0);
+                int start = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (buffer[i] == '\n') {
+                        indexLine(buffer, start, i, bufferOffset + start, typeNames);
+                        start = i + 1;
+                    }
+                }
+                if (read < 0) {
+                    // Last line without a newline.
+                    indexLine(buffer, start, limit, bufferOffset + start, typeNames);
+                    break;
+                }
+                if (start == 0 && limit == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    continue;
+                }
+                System.arraycopy(buffer, start, buffer, 0, limit - start);
+                limit -= start;
+                bufferOffset += start;
+            }
+        }
+    }
+
+    private void indexLine(byte[] buffer, int start, int end, long offset, List<TypeName> typeNames) {
+        if (end > start && buffer[end - 1] == '\r') {
+            end--;
+        }
+        if (start == end) {
+            return;
+        }
+        int typeEnd = start;
+        while (typeEnd < end && buffer[typeEnd] != ',') {
+            typeEnd++;
+        }
+        int idEnd = typeEnd + 1;
+        while (idEnd < end && buffer[idEnd] != ',') {
+            idEnd++;
+        }
+        if (typeEnd + 1 >= idEnd) {
+            System.err.println("Skipping malformed line in " + file + ": "
+                    + new String(buffer, start, end - start, StandardCharsets.UTF_8));
+            return;
+        }
+        VehicleType<?> type = null;
+        for (TypeName known : typeNames) {
+            if (Arrays.equals(known.bytes, 0, known.bytes.length, buffer, start, typeEnd)) {
+                type = known.type;
+                break;
+            }
+        }
+        if (type == null) {
+            String typeName = new String(buffer, start, typeEnd - start, StandardCharsets.UTF_8);
+            type = registry.find(typeName);
+            if (type == null) {
+                System.err.println("Skipping malformed line in " + file + ": "
+                        + new String(buffer, start, end - start, StandardCharsets.UTF_8)
+                        + " (Unknown vehicle type in file: " + typeName + ")");
+                return;
+            }
+            typeNames.add(new TypeName(Arrays.copyOfRange(buffer, start, typeEnd), type));
+        }
+        int idLength = idEnd - typeEnd - 1;
+        if (keyScratch.length < idLength) {
+            keyScratch = new byte[idLength];
+        }
+        for (int i = 0; i < idLength; i++) {
+            keyScratch[i] = foldCase(buffer[typeEnd + 1 + i]);
+        }
+        if (findSlot(keyScratch, 0, idLength) >= 0) {
+            System.err.println("Skipping duplicate vehicle ID in " + file + ": "
+                    + new String(buffer, typeEnd + 1, idLength, StandardCharsets.UTF_8));
+            return;
+        }
+        newSlot(type, offset, end - start, keyScratch, 0, idLength);
+    }
+
+    /** Re-scans the file after it was rewritten, keeping resident vehicles resident. */
+    private void reindex() throws IOException {
+        List<Resident> keep = new ArrayList<>(resident.values());
+        channel.close();
+        resident.clear();
+        residentBytes = 0;
+        count = 0;
+        liveCount = 0;
+        idStarts[0] = 0;
+        Arrays.fill(table, 0);
+        Arrays.fill(overlay, null);
+        Arrays.fill(removed, false);
+        index();
+        for (Resident r : keep) {
+            int slot = findSlot(idKey(r.vehicle.getId()));
+            if (slot >= 0) {
+                // The same entry, so pins held by running operations carry over.
+                r.cleanLine = codec.encode(r.vehicle);
+                admit(slot, r);
+            }
+        }
+    }
+
+    private int newSlot(VehicleType<?> type, long offset, int length, byte[] id, int idFrom, int idTo) {
+        if (count == types.length) {
+            int capacity = count * 2;
+            types = Arrays.copyOf(types, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            overlay = Arrays.copyOf(overlay, capacity);
+            removed = Arrays.copyOf(removed, capacity);
+            idStarts = Arrays.copyOf(idStarts, capacity + 1);
+        }
+        int idLength = idTo - idFrom;
+        int idStart = idStarts[count];
+        if (idStart + idLength > idBytes.length) {
+            idBytes = Arrays.copyOf(idBytes, Math.max(idBytes.length * 2, idStart + idLength));
+        }
+        System.arraycopy(id, idFrom, idBytes, idStart, idLength);
+        idStarts[count + 1] = idStart + idLength;
+        types[count] = type;
+        offsets[count] = offset;
+        lengths[count] = length;
+        removed[count] = false;
+        overlay[count] = null;
+        if ((count + 1) * 2 > table.length) {
+            table = new int[table.length * 2];
+            for (int slot = 0; slot < count; slot++) {
+                insert(slot);
+            }
+        }
+        insert(count);
+        liveCount++;
+        return count++;
+    }
+
+    private void insert(int slot) {
+        int mask = table.length - 1;
+        int i = hash(idBytes, idStarts[slot], idStarts[slot + 1]) & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = slot + 1;
+    }
+
+    private int findSlot(byte[] key) {
+        return findSlot(key, 0, key.length);
+    }
+
+    /** The live slot with the given case-folded ID, or -1. */
+    private int findSlot(byte[] key, int from, int to) {
+        int mask = table.length - 1;
+        for (int i = hash(key, from, to) & mask; table[i] != 0; i = (i + 1) & mask) {
+            int slot = table[i] - 1;
+            if (!removed[slot] && Arrays.equals(idBytes, idStarts[slot], idStarts[slot + 1], key, from, to)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private static int hash(byte[] bytes, int from, int to) {
+        int h = 1;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + bytes[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /** IDs match case-insensitively, as in {@link FleetManager}; only ASCII letters are folded. */
+    private static byte[] idKey(String id) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < key.length; i++) {
+            key[i] = foldCase(key[i]);
+        }
+        return key;
+    }
+
+    private static byte foldCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    /** Reads the lines of untouched vehicles in slot order from one sequential stream over the source file. */
+    private final class SourceLines implements Closeable {
+
+        private final InputStream in = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE);
+        private long position;
+        private byte[] line = new byte[256];
+
+        SourceLines() throws IOException {
+        }
+
+        /** The bytes of a slot's line, valid until the next call. */
+        byte[] read(int slot) throws IOException {
+            while (position < offsets[slot]) {
+                long skipped = in.skip(offsets[slot] - position);
+                if (skipped <= 0) {
+                    throw new EOFException("Fleet file changed since it was opened.");
+                }
+                position += skipped;
+            }
+            if (line.length < lengths[slot]) {
+                line = new byte[lengths[slot]];
+            }
+            int done = 0;
+            while (done < lengths[slot]) {
+                int n = in.read(line, done, lengths[slot] - done);
+                if (n < 0) {
+                    throw new EOFException("Fleet file changed since it was opened.");
+                }
+                done += n;
+            }
+            position += done;
+            return line;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /** A type name as it appears in the file, so lines can be matched without decoding them. */
+    private static final class TypeName {
+
+        final byte[] bytes;
+        final VehicleType<?> type;
+
+        TypeName(byte[] bytes, VehicleType<?> type) {
+            this.bytes = bytes;
+            this.type = type;
+        }
+    }
+
+    private static final class Resident {
+
+        final Vehicle vehicle;
+        String cleanLine;
+        long estimatedBytes;
+        // Guarded by the fleet.
+        int pins;
+
+        Resident(Vehicle vehicle, String cleanLine) {
+            this.vehicle = vehicle;
+            this.cleanLine = cleanLine;
+        }
+    }
+}
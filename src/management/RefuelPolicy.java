@@ -0,0 +1,28 @@
+package management;
+
+/**
+ * Decides how much fuel a single vehicle should receive during a bulk refuel.
+ * A result of zero (or less) means the vehicle is skipped.
+ */
+public interface RefuelPolicy {
+
+    double amountFor(double fuelLevel, double fuelCapacity);
+
+    /** Fills every vehicle up to its tank capacity. */
+    static RefuelPolicy topUp() {
+        return (fuelLevel, fuelCapacity) -> fuelCapacity - fuelLevel;
+    }
+
+    /** Adds a fixed amount to every vehicle, never going past tank capacity. */
+    static RefuelPolicy fixedAmount(double amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Refuel amount must be positive.");
+        }
+        return (fuelLevel, fuelCapacity) -> Math.min(amount, fuelCapacity - fuelLevel);
+    }
+
+    /** Tops up only the vehicles whose fuel level is below the given threshold (L). */
+    static RefuelPolicy belowThreshold(double threshold) {
+        return (fuelLevel, fuelCapacity) -> fuelLevel < threshold ? fuelCapacity - fuelLevel : 0;
+    }
+}
@@ -0,0 +1,150 @@
+package management;
+
+import interfaces.FuelConsumable;
+import interfaces.Maintainable;
+import vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The numbers behind a fleet report. Aggregates from several fleets (for
+ * example the shards of a {@code cluster.ShardedFleetCoordinator}) can be
+ * merged and rendered as if they were one fleet.
+ */
+public class ReportAggregate {
+
+    private final Map<String, Long> countByType = new TreeMap<>();
+    private double efficiencySum;
+    private long efficiencyCount;
+    private double totalMileage;
+    private final List<MaintenanceEntry> needsMaintenance = new ArrayList<>();
+
+    public static ReportAggregate of(FleetSnapshot fleet) {
+        ReportAggregate aggregate = new ReportAggregate();
+        for (Vehicle v : fleet.getVehicles()) {
+            aggregate.add(v);
+        }
+        return aggregate;
+    }
+
+    public void add(Vehicle v) {
+        countByType.merge(v.getClass().getSimpleName(), 1L, Long::sum);
+        double efficiency = v.calculateFuelEfficiency();
+        if (v instanceof FuelConsumable && efficiency > 0) {
+            efficiencySum += efficiency;
+            efficiencyCount++;
+        }
+        totalMileage += v.getCurrentMileage();
+        if (v instanceof Maintainable && ((Maintainable) v).needsMaintenance()) {
+            needsMaintenance.add(new MaintenanceEntry(v.getId(), v.getCurrentMileage()));
+        }
+    }
+
+    public ReportAggregate merge(ReportAggregate other) {
+        other.countByType.forEach((type, count) -> countByType.merge(type, count, Long::sum));
+        efficiencySum += other.efficiencySum;
+        efficiencyCount += other.efficiencyCount;
+        totalMileage += other.totalMileage;
+        needsMaintenance.addAll(other.needsMaintenance);
+        return this;
+    }
+
+    public long getVehicleCount() {
+        long total = 0;
+        for (long count : countByType.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    public Map<String, Long> getCountByType() {
+        return Collections.unmodifiableMap(countByType);
+    }
+
+    public double getEfficiencySum() {
+        return efficiencySum;
+    }
+
+    public long getEfficiencyCount() {
+        return efficiencyCount;
+    }
+
+    public double getAverageEfficiency() {
+        return efficiencyCount == 0 ? 0.0 : efficiencySum / efficiencyCount;
+    }
+
+    public double getTotalMileage() {
+        return totalMileage;
+    }
+
+    public List<MaintenanceEntry> getNeedsMaintenance() {
+        return Collections.unmodifiableList(needsMaintenance);
+    }
+
+    public void addTypeCount(String type, long count) {
+        countByType.merge(type, count, Long::sum);
+    }
+
+    public void addEfficiency(double sum, long count) {
+        efficiencySum += sum;
+        efficiencyCount += count;
+    }
+
+    public void addMileage(double mileage) {
+        totalMileage += mileage;
+    }
+
+    public void addMaintenanceEntry(String id, double mileage) {
+        needsMaintenance.add(new MaintenanceEntry(id, mileage));
+    }
+
+    public String render() {
+        long vehicleCount = getVehicleCount();
+        if (vehicleCount == 0) {
+            return "Fleet Report: The fleet is currently empty.";
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append("================ FLEET REPORT ================\n");
+        report.append("Total Vehicles: ").append(vehicleCount).append("\n\n");
+
+        report.append("Vehicles by Type:\n");
+        countByType.forEach((type, count) -> report.append(String.format("  - %s: %d\n", type, count)));
+
+        report.append(String.format("\nAverage Fuel Efficiency: %.2f km/l\n", getAverageEfficiency()));
+        report.append(String.format("Total Fleet Mileage: %.1f km\n\n", totalMileage));
+
+        report.append("Maintenance Status:\n");
+        if (needsMaintenance.isEmpty()) {
+            report.append("  All vehicles are in good condition.\n");
+        } else {
+            report.append("  Vehicles needing maintenance: ").append(needsMaintenance.size()).append("\n");
+            needsMaintenance.forEach(e -> report.append(String.format("    - ID: %s, Mileage: %.1f km\n", e.getId(), e.getMileage())));
+        }
+        report.append("==============================================");
+        return report.toString();
+    }
+
+    public static class MaintenanceEntry {
+
+        private final String id;
+        private final double mileage;
+
+        public MaintenanceEntry(String id, double mileage) {
+            this.id = id;
+            this.mileage = mileage;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public double getMileage() {
+            return mileage;
+        }
+    }
+}
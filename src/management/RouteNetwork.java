@@ -0,0 +1,288 @@
+package management;
+
+import exceptions.InvalidOperationException;
+import vehicles.Vehicle;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Weighted graph of depots and ports, stored as compressed adjacency arrays
+ * (one offsets array, then parallel target/distance/domain arrays).
+ *
+ * Route files have one edge per line: {@code FROM,TO,DISTANCE_KM,DOMAINS},
+ * where DOMAINS is a {@code |}-separated list such as {@code LAND|AIR}.
+ * Edges are two-way. Blank lines and lines starting with {@code #} are ignored.
+ *
+ * Shortest distances are computed with Dijkstra per travel domain and the
+ * most recent origin/destination pairs are kept in an LRU cache.
+ */
+public class RouteNetwork {
+
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    private final Map<String, Integer> nodeIndex;
+    private final String[] nodeNames;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] distances;
+    private final byte[] domainMasks;
+    private final Map<Long, Double> cache;
+
+    private RouteNetwork(Map<String, Integer> nodeIndex, String[] nodeNames, int[] offsets,
+                         int[] targets, double[] distances, byte[] domainMasks, int cacheSize) {
+        this.nodeIndex = nodeIndex;
+        this.nodeNames = nodeNames;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.distances = distances;
+        this.domainMasks = domainMasks;
+        this.cache = new LinkedHashMap<Long, Double>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Double> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public static RouteNetwork loadFromFile(String filename) throws IOException {
+        return loadFromFile(filename, DEFAULT_CACHE_SIZE);
+    }
+
+    public static RouteNetwork loadFromFile(String filename, int cacheSize) throws IOException {
+        Map<String, Integer> nodeIndex = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        List<int[]> edges = new ArrayList<>();
+        List<Double> edgeDistances = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] data = line.split(",");
+                if (data.length != 4) {
+                    throw new IOException("Malformed route on line " + lineNumber + " of " + filename + ": " + line);
+                }
+                int from = nodeIndex.computeIfAbsent(data[0].trim(), name -> { names.add(name); return names.size() - 1; });
+                int to = nodeIndex.computeIfAbsent(data[1].trim(), name -> { names.add(name); return names.size() - 1; });
+                double distance;
+                int mask = 0;
+                try {
+                    distance = Double.parseDouble(data[2].trim());
+                    for (String domain : data[3].split("\\|")) {
+                        mask |= TravelDomain.valueOf(domain.trim().toUpperCase()).mask();
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Malformed route on line " + lineNumber + " of " + filename + ": " + line);
+                }
+                if (distance < 0) {
+                    throw new IOException("Negative distance on line " + lineNumber + " of " + filename);
+                }
+                edges.add(new int[]{from, to, mask});
+                edgeDistances.add(distance);
+            }
+        }
+
+        int nodeCount = names.size();
+        int[] offsets = new int[nodeCount + 1];
+        for (int[] edge : edges) {
+            offsets[edge[0] + 1]++;
+            offsets[edge[1] + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] cursor = Arrays.copyOf(offsets, nodeCount);
+        int[] targets = new int[offsets[nodeCount]];
+        double[] distances = new double[targets.length];
+        byte[] masks = new byte[targets.length];
+        for (int i = 0; i < edges.size(); i++) {
+            int[] edge = edges.get(i);
+            double distance = edgeDistances.get(i);
+            int slot = cursor[edge[0]]++;
+            targets[slot] = edge[1];
+            distances[slot] = distance;
+            masks[slot] = (byte) edge[2];
+            slot = cursor[edge[1]]++;
+            targets[slot] = edge[0];
+            distances[slot] = distance;
+            masks[slot] = (byte) edge[2];
+        }
+        return new RouteNetwork(nodeIndex, names.toArray(new String[0]), offsets, targets, distances, masks, cacheSize);
+    }
+
+    public int getNodeCount() {
+        return nodeNames.length;
+    }
+
+    public boolean hasNode(String name) {
+        return nodeIndex.containsKey(name);
+    }
+
+    /** Shortest distance in km between two nodes using only edges open to the given domain. */
+    public double shortestDistance(TravelDomain domain, String from, String to) throws InvalidOperationException {
+        int source = node(from);
+        int target = node(to);
+        long key = ((long) domain.ordinal() << 62) | ((long) source << 31) | target;
+        synchronized (cache) {
+            Double cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        double distance = dijkstra(domain.mask(), source, target);
+        if (Double.isInfinite(distance)) {
+            throw new InvalidOperationException("No " + domain + " route from " + from + " to " + to + ".");
+        }
+        synchronized (cache) {
+            cache.put(key, distance);
+        }
+        return distance;
+    }
+
+    public double shortestDistance(Vehicle vehicle, String from, String to) throws InvalidOperationException {
+        return shortestDistance(TravelDomain.of(vehicle), from, to);
+    }
+
+    public double estimateJourneyTime(Vehicle vehicle, String from, String to) throws InvalidOperationException {
+        return vehicle.estimateJourneyTime(shortestDistance(vehicle, from, to));
+    }
+
+    /**
+     * Journey time for each vehicle on the same trip. The route is resolved once
+     * per travel domain; vehicles with no route get {@code Double.NaN}.
+     */
+    public double[] estimateJourneyTimes(List<Vehicle> vehicles, String from, String to) {
+        double[] perDomain = new double[TravelDomain.values().length];
+        Arrays.fill(perDomain, -1);
+        double[] times = new double[vehicles.size()];
+        for (int i = 0; i < times.length; i++) {
+            Vehicle vehicle = vehicles.get(i);
+            int domain = TravelDomain.of(vehicle).ordinal();
+            if (perDomain[domain] < 0) {
+                try {
+                    perDomain[domain] = shortestDistance(TravelDomain.values()[domain], from, to);
+                } catch (InvalidOperationException e) {
+                    perDomain[domain] = Double.NaN;
+                }
+            }
+            times[i] = vehicle.estimateJourneyTime(perDomain[domain]);
+        }
+        return times;
+    }
+
+    private int node(String name) throws InvalidOperationException {
+        Integer index = nodeIndex.get(name);
+        if (index == null) {
+            throw new InvalidOperationException("Unknown depot or port: " + name);
+        }
+        return index;
+    }
+
+    private double dijkstra(int domainMask, int source, int target) {
+        double[] best = new double[nodeNames.length];
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+        best[source] = 0;
+        MinHeap heap = new MinHeap(nodeNames.length);
+        heap.push(source, 0);
+        while (!heap.isEmpty()) {
+            double distance = heap.peekDistance();
+            int node = heap.pop();
+            if (node == target) {
+                return distance;
+            }
+            if (distance > best[node]) {
+                continue;
+            }
+            for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                if ((domainMasks[e] & domainMask) == 0) {
+                    continue;
+                }
+                double candidate = distance + distances[e];
+                if (candidate < best[targets[e]]) {
+                    best[targets[e]] = candidate;
+                    heap.push(targets[e], candidate);
+                }
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /** Binary heap of (node, distance) pairs kept in parallel primitive arrays. */
+    private static final class MinHeap {
+
+        private int[] nodes;
+        private double[] keys;
+        private int size;
+
+        MinHeap(int capacity) {
+            this.nodes = new int[Math.max(4, capacity)];
+            this.keys = new double[nodes.length];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        double peekDistance() {
+            return keys[0];
+        }
+
+        void push(int node, double key) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                keys[i] = keys[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            keys[i] = key;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            size--;
+            int lastNode = nodes[size];
+            double lastKey = keys[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= lastKey) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                keys[i] = keys[child];
+                i = child;
+            }
+            nodes[i] = lastNode;
+            keys[i] = lastKey;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package management;
+
+import exceptions.InvalidOperationException;
+import exceptions.OverloadException;
+import interfaces.PassengerCarrier;
+import vehicles.Vehicle;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrent seat booking for passenger carriers.
+ * Each vehicle has a lock-free counter of unreserved seats. A booking is a
+ * hold (seats taken off the counter with a CAS) followed by a confirm
+ * (passengers actually boarded) or a release (seats handed back). Holds that
+ * are neither confirmed nor released within the timeout are reclaimed.
+ */
+public class SeatReservationSystem {
+
+    private static final int HELD = 0;
+    private static final int CONFIRMED = 1;
+    private static final int RELEASED = 2;
+
+    private final Map<String, SeatInventory> inventories = new ConcurrentHashMap<>();
+    private final long holdTimeoutNanos;
+
+    public SeatReservationSystem(long holdTimeout, TimeUnit unit) {
+        if (holdTimeout <= 0) {
+            throw new IllegalArgumentException("Hold timeout must be positive.");
+        }
+        this.holdTimeoutNanos = unit.toNanos(holdTimeout);
+    }
+
+    public void register(Vehicle vehicle) throws InvalidOperationException {
+        if (!(vehicle instanceof PassengerCarrier)) {
+            throw new InvalidOperationException("Vehicle " + vehicle.getId() + " does not carry passengers.");
+        }
+        inventories.putIfAbsent(key(vehicle.getId()), new SeatInventory(vehicle));
+    }
+
+    public void registerAll(List<Vehicle> vehicles) {
+        for (Vehicle vehicle : vehicles) {
+            if (vehicle instanceof PassengerCarrier) {
+                inventories.putIfAbsent(key(vehicle.getId()), new SeatInventory(vehicle));
+            }
+        }
+    }
+
+    public int getAvailableSeats(String vehicleId) throws InvalidOperationException {
+        return inventory(vehicleId).remaining.get();
+    }
+
+    public Hold hold(String vehicleId, int seats) throws InvalidOperationException, OverloadException {
+        if (seats <= 0) {
+            throw new InvalidOperationException("Number of seats must be positive.");
+        }
+        SeatInventory inventory = inventory(vehicleId);
+        long now = System.nanoTime();
+        // Trimming the head of the hold queue here keeps it bounded by the timeout window.
+        inventory.reclaimExpired(now);
+        if (!inventory.tryAcquire(seats)) {
+            throw new OverloadException("Not enough free seats on vehicle " + vehicleId + ".");
+        }
+        Hold hold = new Hold(inventory, seats, now + holdTimeoutNanos);
+        inventory.holds.add(hold);
+        return hold;
+    }
+
+    public void confirm(Hold hold) throws InvalidOperationException {
+        if (hold.isExpired(System.nanoTime())) {
+            release(hold);
+        }
+        if (!hold.state.compareAndSet(HELD, CONFIRMED)) {
+            throw new InvalidOperationException("Hold has expired or was already released or confirmed.");
+        }
+        try {
+            hold.inventory.carrier.boardPassengers(hold.seats);
+        } catch (OverloadException e) {
+            // Passengers boarded outside the reservation system took the seats.
+            hold.state.set(RELEASED);
+            hold.inventory.credit(hold.seats);
+            throw new InvalidOperationException("Could not board held passengers: " + e.getMessage());
+        }
+    }
+
+    public void release(Hold hold) {
+        if (hold.state.compareAndSet(HELD, RELEASED)) {
+            hold.inventory.remaining.addAndGet(hold.seats);
+        }
+    }
+
+    public void disembark(String vehicleId, int count) throws InvalidOperationException {
+        SeatInventory inventory = inventory(vehicleId);
+        inventory.carrier.disembarkPassengers(count);
+        inventory.credit(count);
+    }
+
+    /** Releases every hold that has passed its timeout. Returns how many seats were reclaimed. */
+    public int releaseExpired() {
+        long now = System.nanoTime();
+        int reclaimed = 0;
+        for (SeatInventory inventory : inventories.values()) {
+            reclaimed += inventory.reclaimExpired(now);
+        }
+        return reclaimed;
+    }
+
+    private SeatInventory inventory(String vehicleId) throws InvalidOperationException {
+        SeatInventory inventory = inventories.get(key(vehicleId));
+        if (inventory == null) {
+            throw new InvalidOperationException("Vehicle with ID " + vehicleId + " is not registered for booking.");
+        }
+        return inventory;
+    }
+
+    private static String key(String vehicleId) {
+        return vehicleId.toLowerCase();
+    }
+
+    public static final class Hold {
+
+        private final SeatInventory inventory;
+        private final int seats;
+        private final long expiresAtNanos;
+        private final AtomicInteger state = new AtomicInteger(HELD);
+
+        private Hold(SeatInventory inventory, int seats, long expiresAtNanos) {
+            this.inventory = inventory;
+            this.seats = seats;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        public String getVehicleId() {
+            return inventory.vehicleId;
+        }
+
+        public int getSeats() {
+            return seats;
+        }
+
+        public boolean isActive() {
+            return state.get() == HELD;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAtNanos > 0;
+        }
+    }
+
+    private final class SeatInventory {
+
+        private final String vehicleId;
+        private final PassengerCarrier carrier;
+        private final AtomicInteger remaining;
+        // Holds share one timeout, so this queue is ordered by expiry.
+        private final Queue<Hold> holds = new ConcurrentLinkedQueue<>();
+
+        SeatInventory(Vehicle vehicle) {
+            this.vehicleId = vehicle.getId();
+            this.carrier = (PassengerCarrier) vehicle;
+            this.remaining = new AtomicInteger(carrier.getPassengerCapacity() - carrier.getCurrentPassengers());
+        }
+
+        boolean tryAcquire(int seats) {
+            while (true) {
+                int free = remaining.get();
+                if (free < seats) {
+                    return false;
+                }
+                if (remaining.compareAndSet(free, free - seats)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Hands seats back, but never more than the vehicle has free:
+         * passengers who boarded outside the system and leave through
+         * {@link #disembark} must not create seats that are not there.
+         */
+        void credit(int seats) {
+            while (true) {
+                int free = remaining.get();
+                int limit = carrier.getPassengerCapacity() - carrier.getCurrentPassengers();
+                int next = Math.max(free, Math.min(free + seats, limit));
+                if (next == free || remaining.compareAndSet(free, next)) {
+                    return;
+                }
+            }
+        }
+
+        int reclaimExpired(long now) {
+            int reclaimed = 0;
+            Hold head;
+            while ((head = holds.peek()) != null && (!head.isActive() || head.isExpired(now))) {
+                if (holds.remove(head) && head.state.compareAndSet(HELD, RELEASED)) {
+                    remaining.addAndGet(head.seats);
+                    reclaimed += head.seats;
+                }
+            }
+            return reclaimed;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package management;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a bulk upsert or synchronization changed in the fleet. Unchanged
+ * vehicles are only counted; the other outcomes also list the vehicle IDs.
+ */
+public class SyncSummary {
+
+    private final List<String> added = new ArrayList<>();
+    private final List<String> updated = new ArrayList<>();
+    private final List<String> replaced = new ArrayList<>();
+    private final List<String> removed = new ArrayList<>();
+    private final List<String> notFound = new ArrayList<>();
+    private final List<String> duplicates = new ArrayList<>();
+    private long unchanged;
+
+    void added(String id) {
+        added.add(id);
+    }
+
+    void updated(String id) {
+        updated.add(id);
+    }
+
+    void replaced(String id) {
+        replaced.add(id);
+    }
+
+    void removed(String id) {
+        removed.add(id);
+    }
+
+    void notFound(String id) {
+        notFound.add(id);
+    }
+
+    void duplicate(String id) {
+        duplicates.add(id);
+    }
+
+    void unchanged() {
+        unchanged++;
+    }
+
+    /** Vehicles that were not in the fleet before. */
+    public List<String> getAdded() {
+        return Collections.unmodifiableList(added);
+    }
+
+    /** Vehicles whose configuration changed; their runtime state was carried over. */
+    public List<String> getUpdated() {
+        return Collections.unmodifiableList(updated);
+    }
+
+    /** Vehicles whose type changed; they start over with fresh runtime state. */
+    public List<String> getReplaced() {
+        return Collections.unmodifiableList(replaced);
+    }
+
+    public List<String> getRemoved() {
+        return Collections.unmodifiableList(removed);
+    }
+
+    /** IDs asked to be deleted that were not in the fleet. */
+    public List<String> getNotFound() {
+        return Collections.unmodifiableList(notFound);
+    }
+
+    /** IDs that occurred more than once in the batch; the last record won. */
+    public List<String> getDuplicates() {
+        return Collections.unmodifiableList(duplicates);
+    }
+
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    public boolean hasChanges() {
+        return !added.isEmpty() || !updated.isEmpty() || !replaced.isEmpty() || !removed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d added, %d updated, %d replaced, %d removed, %d unchanged, %d not found, %d duplicates",
+                added.size(), updated.size(), replaced.size(), removed.size(), unchanged, notFound.size(),
+                duplicates.size());
+    }
+}
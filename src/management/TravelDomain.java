@@ -0,0 +1,27 @@
+package management;
+
+import vehicles.AirVehicle;
+import vehicles.Vehicle;
+import vehicles.WaterVehicle;
+
+/**
+ * The kind of route a vehicle can use. Every edge of a {@link RouteNetwork}
+ * is open to one or more domains.
+ */
+public enum TravelDomain {
+    LAND, AIR, WATER;
+
+    int mask() {
+        return 1 << ordinal();
+    }
+
+    public static TravelDomain of(Vehicle vehicle) {
+        if (vehicle instanceof AirVehicle) {
+            return AIR;
+        }
+        if (vehicle instanceof WaterVehicle) {
+            return WATER;
+        }
+        return LAND;
+    }
+}
@@ -0,0 +1,69 @@
+package registry;
+
+import vehicles.Vehicle;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Reads records written by a {@link BinaryVehicleWriter}. */
+public final class BinaryVehicleReader {
+
+    private final DataInput in;
+    private final VehicleTypeRegistry registry;
+    private final List<VehicleType<?>> types = new ArrayList<>();
+    private final FieldReader fields;
+
+    public BinaryVehicleReader(DataInput in) {
+        this(in, VehicleTypeRegistry.getDefault());
+    }
+
+    public BinaryVehicleReader(DataInput in, VehicleTypeRegistry registry) {
+        this.in = in;
+        this.registry = registry;
+        this.fields = new FieldReader() {
+            @Override
+            public boolean hasMore() {
+                return true;
+            }
+
+            @Override
+            public String readString() throws IOException {
+                return in.readUTF();
+            }
+
+            @Override
+            public double readDouble() throws IOException {
+                return in.readDouble();
+            }
+
+            @Override
+            public int readInt() throws IOException {
+                return in.readInt();
+            }
+
+            @Override
+            public boolean readBoolean() throws IOException {
+                return in.readBoolean();
+            }
+        };
+    }
+
+    public Vehicle read() throws IOException {
+        int tag = in.readUnsignedShort();
+        while (tag == BinaryVehicleWriter.DEFINE_TYPE) {
+            String name = in.readUTF();
+            VehicleType<?> type = registry.find(name);
+            if (type == null) {
+                throw new IOException("Unknown vehicle type in binary stream: " + name);
+            }
+            types.add(type);
+            tag = in.readUnsignedShort();
+        }
+        if (tag >= types.size()) {
+            throw new IOException("Undefined vehicle type index in binary stream: " + tag);
+        }
+        return types.get(tag).decode(fields);
+    }
+}
@@ -0,0 +1,72 @@
+package registry;
+
+import vehicles.Vehicle;
+import vehicles.VehicleState;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes vehicles as compact binary records. The first record of each type is
+ * preceded by a definition carrying the type name; after that the type is
+ * referred to by a two-byte index, so no names are repeated per record.
+ * Read back with a {@link BinaryVehicleReader} over the same stream.
+ */
+public final class BinaryVehicleWriter {
+
+    static final int DEFINE_TYPE = 0xFFFF;
+
+    private final DataOutput out;
+    private final VehicleTypeRegistry registry;
+    private final Map<VehicleType<?>, Integer> typeIds = new HashMap<>();
+    private final FieldWriter fields;
+
+    public BinaryVehicleWriter(DataOutput out) {
+        this(out, VehicleTypeRegistry.getDefault());
+    }
+
+    public BinaryVehicleWriter(DataOutput out, VehicleTypeRegistry registry) {
+        this.out = out;
+        this.registry = registry;
+        this.fields = new FieldWriter() {
+            @Override
+            public void writeString(String value) throws IOException {
+                out.writeUTF(value);
+            }
+
+            @Override
+            public void writeDouble(double value) throws IOException {
+                out.writeDouble(value);
+            }
+
+            @Override
+            public void writeInt(int value) throws IOException {
+                out.writeInt(value);
+            }
+
+            @Override
+            public void writeBoolean(boolean value) throws IOException {
+                out.writeBoolean(value);
+            }
+        };
+    }
+
+    public void write(Vehicle vehicle) throws IOException {
+        write(vehicle, vehicle.captureState());
+    }
+
+    public void write(Vehicle vehicle, VehicleState state) throws IOException {
+        VehicleType<?> type = registry.forVehicle(vehicle);
+        Integer id = typeIds.get(type);
+        if (id == null) {
+            id = typeIds.size();
+            typeIds.put(type, id);
+            out.writeShort(DEFINE_TYPE);
+            out.writeUTF(type.getName());
+        }
+        out.writeShort(id);
+        type.encode(vehicle, state, fields);
+    }
+}
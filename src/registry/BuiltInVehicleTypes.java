@@ -0,0 +1,94 @@
+package registry;
+
+import vehicles.Airplane;
+import vehicles.Bus;
+import vehicles.Car;
+import vehicles.CargoShip;
+import vehicles.Truck;
+import vehicles.Vehicle;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Descriptors for the vehicle types that ship with the application. Field
+ * order matches the CSV layout of earlier versions, so existing fleet files
+ * still load; mileage and the maintenance flag were added as optional
+ * trailing fields.
+ */
+public class BuiltInVehicleTypes implements VehicleTypeProvider {
+
+    // Record indices shared by every type.
+    public static final int ID = 0;
+    public static final int MODEL = 1;
+    public static final int MAX_SPEED = 2;
+    // Index of the first type-specific field.
+    public static final int EXTRA = 3;
+
+    @Override
+    public void registerTypes(VehicleTypeRegistry registry) {
+        registry.register(VehicleType.builder("Car", Car.class)
+                .addAll(identity())
+                .add(VehicleField.infoInt("numWheels", Car::getNumWheels))
+                .add(VehicleField.state("fuelLevel", StateProperty.FUEL_LEVEL))
+                .add(VehicleField.infoInt("passengerCapacity", Car::getPassengerCapacity))
+                .add(VehicleField.state("currentPassengers", StateProperty.CURRENT_PASSENGERS))
+                .addAll(trailing())
+                .build(r -> new Car(r.getString(ID), r.getString(MODEL), r.getDouble(MAX_SPEED))));
+
+        registry.register(VehicleType.builder("Truck", Truck.class)
+                .addAll(identity())
+                .add(VehicleField.infoInt("numWheels", Truck::getNumWheels))
+                .add(VehicleField.state("fuelLevel", StateProperty.FUEL_LEVEL))
+                .add(VehicleField.infoDouble("cargoCapacity", Truck::getCargoCapacity))
+                .add(VehicleField.state("currentCargo", StateProperty.CURRENT_CARGO))
+                .addAll(trailing())
+                .build(r -> new Truck(r.getString(ID), r.getString(MODEL), r.getDouble(MAX_SPEED))));
+
+        registry.register(VehicleType.builder("Bus", Bus.class)
+                .addAll(identity())
+                .add(VehicleField.infoInt("numWheels", Bus::getNumWheels))
+                .add(VehicleField.state("fuelLevel", StateProperty.FUEL_LEVEL))
+                .add(VehicleField.infoInt("passengerCapacity", Bus::getPassengerCapacity))
+                .add(VehicleField.state("currentPassengers", StateProperty.CURRENT_PASSENGERS))
+                .add(VehicleField.infoDouble("cargoCapacity", Bus::getCargoCapacity))
+                .add(VehicleField.state("currentCargo", StateProperty.CURRENT_CARGO))
+                .addAll(trailing())
+                .build(r -> new Bus(r.getString(ID), r.getString(MODEL), r.getDouble(MAX_SPEED))));
+
+        registry.register(VehicleType.builder("Airplane", Airplane.class)
+                .addAll(identity())
+                .add(VehicleField.configDouble("maxAltitude", "Enter Max Altitude (ft): ", Airplane::getMaxAltitude))
+                .add(VehicleField.state("fuelLevel", StateProperty.FUEL_LEVEL))
+                .add(VehicleField.infoInt("passengerCapacity", Airplane::getPassengerCapacity))
+                .add(VehicleField.state("currentPassengers", StateProperty.CURRENT_PASSENGERS))
+                .add(VehicleField.infoDouble("cargoCapacity", Airplane::getCargoCapacity))
+                .add(VehicleField.state("currentCargo", StateProperty.CURRENT_CARGO))
+                .addAll(trailing())
+                .build(r -> new Airplane(r.getString(ID), r.getString(MODEL), r.getDouble(MAX_SPEED), r.getDouble(EXTRA))));
+
+        registry.register(VehicleType.builder("CargoShip", CargoShip.class)
+                .addAll(identity())
+                .add(VehicleField.configBoolean("hasSail", "Does it have a sail? (true/false): ", CargoShip::hasSail))
+                .add(VehicleField.infoDouble("cargoCapacity", CargoShip::getCargoCapacity))
+                .add(VehicleField.state("currentCargo", StateProperty.CURRENT_CARGO))
+                .add(VehicleField.<CargoShip>state("fuelLevel", StateProperty.FUEL_LEVEL).optional())
+                .addAll(trailing())
+                .build(r -> new CargoShip(r.getString(ID), r.getString(MODEL), r.getDouble(MAX_SPEED), r.getBoolean(EXTRA))));
+    }
+
+    /** The id, model and max speed fields every type starts with. */
+    public static <V extends Vehicle> List<VehicleField<V>> identity() {
+        return Arrays.asList(
+                VehicleField.configString("id", "Enter ID: ", Vehicle::getId),
+                VehicleField.configString("model", "Enter Model: ", Vehicle::getModel),
+                VehicleField.configDouble("maxSpeed", "Enter Max Speed (km/h): ", Vehicle::getMaxSpeed));
+    }
+
+    /** Optional mileage and maintenance fields every type ends with. */
+    public static <V extends Vehicle> List<VehicleField<V>> trailing() {
+        return Arrays.asList(
+                VehicleField.<V>state("mileage", StateProperty.MILEAGE).optional(),
+                VehicleField.<V>state("maintenanceNeeded", StateProperty.MAINTENANCE_NEEDED).optional());
+    }
+}
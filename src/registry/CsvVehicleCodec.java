@@ -0,0 +1,144 @@
+package registry;
+
+import vehicles.Vehicle;
+import vehicles.VehicleState;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * One vehicle per comma-separated line: the type name, then the fields in
+ * declaration order. Lines written before a type gained optional fields
+ * still load.
+ */
+public final class CsvVehicleCodec {
+
+    private final VehicleTypeRegistry registry;
+
+    CsvVehicleCodec(VehicleTypeRegistry registry) {
+        this.registry = registry;
+    }
+
+    public String encode(Vehicle vehicle) {
+        VehicleType<?> type = registry.forVehicle(vehicle);
+        StringBuilder line = new StringBuilder(64).append(type.getName());
+        try {
+            type.encode(vehicle, new Writer(line));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Appends the line for a vehicle in an already captured state, without
+     * a line separator, so a caller can write vehicles as they were at an
+     * earlier point in time.
+     */
+    public void encode(Vehicle vehicle, VehicleState state, StringBuilder line) {
+        VehicleType<?> type = registry.forVehicle(vehicle);
+        line.append(type.getName());
+        try {
+            type.encode(vehicle, state, new Writer(line));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Vehicle decode(String line) throws IOException {
+        int comma = line.indexOf(',');
+        String name = comma < 0 ? line : line.substring(0, comma);
+        VehicleType<?> type = registry.find(name);
+        if (type == null) {
+            throw new IOException("Unknown vehicle type in file: " + name);
+        }
+        try {
+            return type.decode(new Reader(line, comma < 0 ? line.length() : comma + 1));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Malformed " + type.getName() + " record: " + e.getMessage(), e);
+        }
+    }
+
+    private static final class Writer implements FieldWriter {
+
+        private final StringBuilder line;
+
+        Writer(StringBuilder line) {
+            this.line = line;
+        }
+
+        @Override
+        public void writeString(String value) {
+            line.append(',').append(value);
+        }
+
+        @Override
+        public void writeDouble(double value) {
+            line.append(',').append(value);
+        }
+
+        @Override
+        public void writeInt(int value) {
+            line.append(',').append(value);
+        }
+
+        @Override
+        public void writeBoolean(boolean value) {
+            line.append(',').append(value);
+        }
+    }
+
+    /** Reads the fields straight out of the line, without splitting it into an array first. */
+    private static final class Reader implements FieldReader {
+
+        private final String line;
+        private int next;
+        private int end;
+
+        Reader(String line, int start) {
+            this.line = line;
+            this.next = start;
+        }
+
+        @Override
+        public boolean hasMore() {
+            return next < line.length();
+        }
+
+        @Override
+        public String readString() {
+            int start = advance();
+            return line.substring(start, end);
+        }
+
+        @Override
+        public double readDouble() {
+            int start = advance();
+            return Double.parseDouble(line.substring(start, end));
+        }
+
+        @Override
+        public int readInt() {
+            int start = advance();
+            return Integer.parseInt(line, start, end, 10);
+        }
+
+        @Override
+        public boolean readBoolean() {
+            int start = advance();
+            return end - start == 4 && line.regionMatches(true, start, "true", 0, 4);
+        }
+
+        /** Moves past the next field and returns where it starts; it ends at {@code end}. */
+        private int advance() {
+            if (next > line.length()) {
+                throw new IllegalArgumentException("record ends early");
+            }
+            int start = next;
+            int comma = line.indexOf(',', start);
+            end = comma < 0 ? line.length() : comma;
+            next = end + 1;
+            return start;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package registry;
+
+/** Value type of a {@link VehicleField}, which decides how formats read and write it. */
+public enum FieldKind {
+    STRING, DOUBLE, INT, BOOLEAN
+}
@@ -0,0 +1,13 @@
+package registry;
+
+import java.io.IOException;
+
+/** Source of the field values of one vehicle record, implemented once per format. */
+public interface FieldReader {
+    /** Whether another field follows; formats without optional fields always return true. */
+    boolean hasMore();
+    String readString() throws IOException;
+    double readDouble() throws IOException;
+    int readInt() throws IOException;
+    boolean readBoolean() throws IOException;
+}
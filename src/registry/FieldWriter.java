@@ -0,0 +1,11 @@
+package registry;
+
+import java.io.IOException;
+
+/** Sink for the field values of one vehicle record, implemented once per format. */
+public interface FieldWriter {
+    void writeString(String value) throws IOException;
+    void writeDouble(double value) throws IOException;
+    void writeInt(int value) throws IOException;
+    void writeBoolean(boolean value) throws IOException;
+}
@@ -0,0 +1,22 @@
+package registry;
+
+import vehicles.VehicleState;
+
+/** The part of a {@link VehicleState} that a state field carries. */
+public enum StateProperty {
+    MILEAGE(FieldKind.DOUBLE),
+    FUEL_LEVEL(FieldKind.DOUBLE),
+    CURRENT_CARGO(FieldKind.DOUBLE),
+    CURRENT_PASSENGERS(FieldKind.INT),
+    MAINTENANCE_NEEDED(FieldKind.BOOLEAN);
+
+    private final FieldKind kind;
+
+    StateProperty(FieldKind kind) {
+        this.kind = kind;
+    }
+
+    public FieldKind getKind() {
+        return kind;
+    }
+}
@@ -0,0 +1,203 @@
+package registry;
+
+import vehicles.Vehicle;
+import vehicles.VehicleState;
+
+import java.io.IOException;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * One column of a vehicle record.
+ * <ul>
+ *   <li>CONFIG fields are constructor arguments and are prompted for in the CLI.</li>
+ *   <li>INFO fields are written for readers of the file but ignored on load.</li>
+ *   <li>STATE fields carry runtime state and are restored after construction.</li>
+ * </ul>
+ * Optional fields may be missing at the end of older records.
+ * <p>
+ * Getters are typed by kind, and each field resolves once, when it is
+ * created, how its value is read and written, so encoding a record neither
+ * boxes values nor dispatches on the kind per field.
+ */
+public final class VehicleField<V extends Vehicle> {
+
+    public enum Role { CONFIG, INFO, STATE }
+
+    /** Writes one field of a record, resolved when the field is created. */
+    interface Writer<V> {
+        void write(V vehicle, VehicleState state, FieldWriter out) throws IOException;
+    }
+
+    /** Reads one field of a record into its slot. */
+    interface Reader {
+        void read(FieldReader in, VehicleRecord record, int index) throws IOException;
+    }
+
+    private final String name;
+    private final FieldKind kind;
+    private final Role role;
+    private final String label;
+    // A Function, ToDoubleFunction, ToIntFunction or Predicate matching the kind; null for STATE fields.
+    private final Object getter;
+    private final StateProperty property;
+    private final boolean optional;
+    private final Writer<V> writer;
+    private final Reader reader;
+
+    private VehicleField(String name, FieldKind kind, Role role, String label,
+                         Object getter, StateProperty property, boolean optional) {
+        this.name = name;
+        this.kind = kind;
+        this.role = role;
+        this.label = label;
+        this.getter = getter;
+        this.property = property;
+        this.optional = optional;
+        this.writer = role == Role.STATE ? stateWriter(property) : getterWriter(kind, getter);
+        this.reader = reader(kind);
+    }
+
+    public static <V extends Vehicle> VehicleField<V> configString(String name, String label,
+                                                                   Function<? super V, String> getter) {
+        return new VehicleField<>(name, FieldKind.STRING, Role.CONFIG, label, getter, null, false);
+    }
+
+    public static <V extends Vehicle> VehicleField<V> configDouble(String name, String label,
+                                                                   ToDoubleFunction<? super V> getter) {
+        return new VehicleField<>(name, FieldKind.DOUBLE, Role.CONFIG, label, getter, null, false);
+    }
+
+    public static <V extends Vehicle> VehicleField<V> configInt(String name, String label,
+                                                                ToIntFunction<? super V> getter) {
+        return new VehicleField<>(name, FieldKind.INT, Role.CONFIG, label, getter, null, false);
+    }
+
+    public static <V extends Vehicle> VehicleField<V> configBoolean(String name, String label,
+                                                                    Predicate<? super V> getter) {
+        return new VehicleField<>(name, FieldKind.BOOLEAN, Role.CONFIG, label, getter, null, false);
+    }
+
+    public static <V extends Vehicle> VehicleField<V> infoString(String name, Function<? super V, String> getter) {
+        return new VehicleField<>(name, FieldKind.STRING, Role.INFO, null, getter, null, false);
+    }
+
+    public static <V extends Vehicle> VehicleField<V> infoDouble(String name, ToDoubleFunction<? super V> getter) {
+        return new VehicleField<>(name, FieldKind.DOUBLE, Role.INFO, null, getter, null, false);
+    }
+
+    public static <V extends Vehicle> VehicleField<V> infoInt(String name, ToIntFunction<? super V> getter) {
+        return new VehicleField<>(name, FieldKind.INT, Role.INFO, null, getter, null, false);
+    }
+
+    public static <V extends Vehicle> VehicleField<V> infoBoolean(String name, Predicate<? super V> getter) {
+        return new VehicleField<>(name, FieldKind.BOOLEAN, Role.INFO, null, getter, null, false);
+    }
+
+    public static <V extends Vehicle> VehicleField<V> state(String name, StateProperty property) {
+        return new VehicleField<>(name, property.getKind(), Role.STATE, null, null, property, false);
+    }
+
+    public VehicleField<V> optional() {
+        return new VehicleField<>(name, kind, role, label, getter, property, true);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public FieldKind getKind() {
+        return kind;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    /** Prompt shown by the CLI for CONFIG fields. */
+    public String getLabel() {
+        return label;
+    }
+
+    public StateProperty getProperty() {
+        return property;
+    }
+
+    public boolean isOptional() {
+        return optional;
+    }
+
+    Writer<V> writer() {
+        return writer;
+    }
+
+    Reader reader() {
+        return reader;
+    }
+
+    /** Whether two vehicles have the same value in this CONFIG or INFO field. */
+    @SuppressWarnings("unchecked")
+    boolean sameValue(V a, V b) {
+        switch (kind) {
+            case STRING: {
+                Function<? super V, String> get = (Function<? super V, String>) getter;
+                return get.apply(a).equals(get.apply(b));
+            }
+            case DOUBLE: {
+                ToDoubleFunction<? super V> get = (ToDoubleFunction<? super V>) getter;
+                return Double.compare(get.applyAsDouble(a), get.applyAsDouble(b)) == 0;
+            }
+            case INT: {
+                ToIntFunction<? super V> get = (ToIntFunction<? super V>) getter;
+                return get.applyAsInt(a) == get.applyAsInt(b);
+            }
+            default: {
+                Predicate<? super V> get = (Predicate<? super V>) getter;
+                return get.test(a) == get.test(b);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Writer<V> getterWriter(FieldKind kind, Object getter) {
+        switch (kind) {
+            case STRING: {
+                Function<? super V, String> get = (Function<? super V, String>) getter;
+                return (v, s, out) -> out.writeString(get.apply(v));
+            }
+            case DOUBLE: {
+                ToDoubleFunction<? super V> get = (ToDoubleFunction<? super V>) getter;
+                return (v, s, out) -> out.writeDouble(get.applyAsDouble(v));
+            }
+            case INT: {
+                ToIntFunction<? super V> get = (ToIntFunction<? super V>) getter;
+                return (v, s, out) -> out.writeInt(get.applyAsInt(v));
+            }
+            default: {
+                Predicate<? super V> get = (Predicate<? super V>) getter;
+                return (v, s, out) -> out.writeBoolean(get.test(v));
+            }
+        }
+    }
+
+    private static <V> Writer<V> stateWriter(StateProperty property) {
+        switch (property) {
+            case MILEAGE: return (v, s, out) -> out.writeDouble(s.getMileage());
+            case FUEL_LEVEL: return (v, s, out) -> out.writeDouble(s.getFuelLevel());
+            case CURRENT_CARGO: return (v, s, out) -> out.writeDouble(s.getCurrentCargo());
+            case CURRENT_PASSENGERS: return (v, s, out) -> out.writeInt(s.getCurrentPassengers());
+            default: return (v, s, out) -> out.writeBoolean(s.isMaintenanceNeeded());
+        }
+    }
+
+    private static Reader reader(FieldKind kind) {
+        switch (kind) {
+            case STRING: return (in, record, i) -> record.setString(i, in.readString());
+            case DOUBLE: return (in, record, i) -> record.setDouble(i, in.readDouble());
+            case INT: return (in, record, i) -> record.setInt(i, in.readInt());
+            default: return (in, record, i) -> record.setBoolean(i, in.readBoolean());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package registry;
+
+/**
+ * Decoded field values of one vehicle, indexed in the order the fields were
+ * declared on the {@link VehicleType}. Numbers and flags are kept unboxed;
+ * a field that was never set (a missing optional field) is reported by
+ * {@link #has(int)}.
+ */
+public final class VehicleRecord {
+
+    private final String[] strings;
+    // Doubles, ints and booleans (as 0 or 1); every int is exact as a double.
+    private final double[] numbers;
+    private final boolean[] present;
+
+    public VehicleRecord(int size) {
+        this.strings = new String[size];
+        this.numbers = new double[size];
+        this.present = new boolean[size];
+    }
+
+    public boolean has(int index) {
+        return present[index];
+    }
+
+    public String getString(int index) {
+        return strings[index];
+    }
+
+    public double getDouble(int index) {
+        return numbers[index];
+    }
+
+    public int getInt(int index) {
+        return (int) numbers[index];
+    }
+
+    public boolean getBoolean(int index) {
+        return numbers[index] != 0;
+    }
+
+    public void setString(int index, String value) {
+        strings[index] = value;
+        present[index] = true;
+    }
+
+    public void setDouble(int index, double value) {
+        numbers[index] = value;
+        present[index] = true;
+    }
+
+    public void setInt(int index, int value) {
+        setDouble(index, value);
+    }
+
+    public void setBoolean(int index, boolean value) {
+        setDouble(index, value ? 1 : 0);
+    }
+}
@@ -0,0 +1,180 @@
+package registry;
+
+import vehicles.Vehicle;
+import vehicles.VehicleState;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Descriptor of a vehicle type: its record name, its fields and how to build
+ * one from decoded values. The writers and readers of the fields are
+ * gathered into arrays when the type is built; encoding and decoding run
+ * through them and hand each unboxed value to a format-specific
+ * {@link FieldWriter} or {@link FieldReader}, so a new type works in every
+ * format without per-format code.
+ */
+public final class VehicleType<V extends Vehicle> {
+
+    public interface Factory<V> {
+        V create(VehicleRecord record);
+    }
+
+    private final String name;
+    private final Class<V> vehicleClass;
+    private final List<VehicleField<V>> fields;
+    private final Factory<V> factory;
+    private final VehicleField.Writer<V>[] writers;
+    private final VehicleField.Reader[] readers;
+    // Number of leading fields every record has; the rest are optional.
+    private final int required;
+    // Index of the field carrying each StateProperty, or -1 if the type has none.
+    private final int[] stateIndex = new int[StateProperty.values().length];
+    private final boolean hasState;
+
+    @SuppressWarnings("unchecked")
+    public VehicleType(String name, Class<V> vehicleClass, List<VehicleField<V>> fields, Factory<V> factory) {
+        this.name = name;
+        this.vehicleClass = vehicleClass;
+        this.fields = Collections.unmodifiableList(new ArrayList<>(fields));
+        this.factory = factory;
+
+        this.writers = (VehicleField.Writer<V>[]) new VehicleField.Writer<?>[this.fields.size()];
+        this.readers = new VehicleField.Reader[this.fields.size()];
+
+        Arrays.fill(stateIndex, -1);
+        int required = 0;
+        boolean state = false;
+        for (int i = 0; i < this.fields.size(); i++) {
+            VehicleField<V> field = this.fields.get(i);
+            if (!field.isOptional()) {
+                if (required < i) {
+                    throw new IllegalArgumentException("Optional fields of " + name + " must come last.");
+                }
+                required++;
+            }
+            writers[i] = field.writer();
+            readers[i] = field.reader();
+            if (field.getRole() == VehicleField.Role.STATE) {
+                stateIndex[field.getProperty().ordinal()] = i;
+                state = true;
+            }
+        }
+        this.required = required;
+        this.hasState = state;
+    }
+
+    public static <V extends Vehicle> Builder<V> builder(String name, Class<V> vehicleClass) {
+        return new Builder<>(name, vehicleClass);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<V> getVehicleClass() {
+        return vehicleClass;
+    }
+
+    public List<VehicleField<V>> getFields() {
+        return fields;
+    }
+
+    public void encode(Vehicle vehicle, FieldWriter out) throws IOException {
+        encode(vehicle, hasState ? vehicle.captureState() : null, out);
+    }
+
+    /** Encodes using an already captured state, so callers can record exactly what was written. */
+    public void encode(Vehicle vehicle, VehicleState state, FieldWriter out) throws IOException {
+        V v = vehicleClass.cast(vehicle);
+        for (VehicleField.Writer<V> writer : writers) {
+            writer.write(v, state, out);
+        }
+    }
+
+    public V decode(FieldReader in) throws IOException {
+        VehicleRecord record = new VehicleRecord(readers.length);
+        for (int i = 0; i < readers.length; i++) {
+            if (!in.hasMore()) {
+                if (i >= required) {
+                    break;
+                }
+                throw new IOException("Missing field '" + fields.get(i).getName() + "' in " + name + " record.");
+            }
+            readers[i].read(in, record, i);
+        }
+        return create(record);
+    }
+
+    /**
+     * Whether two vehicles of this type were built from the same CONFIG values,
+     * i.e. would be written identically apart from INFO and STATE fields.
+     */
+    public boolean sameConfig(Vehicle a, Vehicle b) {
+        V first = vehicleClass.cast(a);
+        V second = vehicleClass.cast(b);
+        for (VehicleField<V> field : fields) {
+            if (field.getRole() == VehicleField.Role.CONFIG && !field.sameValue(first, second)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Builds a vehicle from a record, then restores whatever state fields the record has. */
+    public V create(VehicleRecord record) {
+        V vehicle = factory.create(record);
+        if (hasState) {
+            VehicleState base = vehicle.captureState();
+            vehicle.restoreState(new VehicleState(
+                    pickDouble(record, StateProperty.MILEAGE, base.getMileage()),
+                    pickDouble(record, StateProperty.FUEL_LEVEL, base.getFuelLevel()),
+                    pickDouble(record, StateProperty.CURRENT_CARGO, base.getCurrentCargo()),
+                    has(record, StateProperty.CURRENT_PASSENGERS)
+                            ? record.getInt(stateIndex[StateProperty.CURRENT_PASSENGERS.ordinal()])
+                            : base.getCurrentPassengers(),
+                    has(record, StateProperty.MAINTENANCE_NEEDED)
+                            ? record.getBoolean(stateIndex[StateProperty.MAINTENANCE_NEEDED.ordinal()])
+                            : base.isMaintenanceNeeded()));
+        }
+        return vehicle;
+    }
+
+    private boolean has(VehicleRecord record, StateProperty property) {
+        int index = stateIndex[property.ordinal()];
+        return index >= 0 && record.has(index);
+    }
+
+    private double pickDouble(VehicleRecord record, StateProperty property, double fallback) {
+        return has(record, property) ? record.getDouble(stateIndex[property.ordinal()]) : fallback;
+    }
+
+    public static final class Builder<V extends Vehicle> {
+
+        private final String name;
+        private final Class<V> vehicleClass;
+        private final List<VehicleField<V>> fields = new ArrayList<>();
+
+        private Builder(String name, Class<V> vehicleClass) {
+            this.name = name;
+            this.vehicleClass = vehicleClass;
+        }
+
+        public Builder<V> add(VehicleField<V> field) {
+            fields.add(field);
+            return this;
+        }
+
+        public Builder<V> addAll(List<VehicleField<V>> more) {
+            fields.addAll(more);
+            return this;
+        }
+
+        public VehicleType<V> build(Factory<V> factory) {
+            return new VehicleType<>(name, vehicleClass, fields, factory);
+        }
+    }
+}
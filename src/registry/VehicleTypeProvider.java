@@ -0,0 +1,11 @@
+package registry;
+
+/**
+ * Service interface for plugging extra vehicle types into the default
+ * registry. Implementations are found with {@link java.util.ServiceLoader},
+ * so a jar only needs a
+ * {@code META-INF/services/registry.VehicleTypeProvider} entry.
+ */
+public interface VehicleTypeProvider {
+    void registerTypes(VehicleTypeRegistry registry);
+}
@@ -0,0 +1,102 @@
+package registry;
+
+import interfaces.CargoCarrier;
+import interfaces.FuelConsumable;
+import interfaces.Maintainable;
+import interfaces.PassengerCarrier;
+import vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * All vehicle types the application knows about, looked up by record name
+ * (case-insensitive) or by class. The default registry holds the built-in
+ * types plus any supplied by a {@link VehicleTypeProvider} on the class path.
+ */
+public final class VehicleTypeRegistry {
+
+    private static final VehicleTypeRegistry DEFAULT = createDefault();
+
+    private final Map<String, VehicleType<?>> byName = new ConcurrentHashMap<>();
+    // Types under the exact name they were registered with, so records that
+    // spell it that way are looked up without lower-casing the name.
+    private final Map<String, VehicleType<?>> byExactName = new ConcurrentHashMap<>();
+    private final Map<Class<?>, VehicleType<?>> byClass = new ConcurrentHashMap<>();
+    private final List<VehicleType<?>> types = new CopyOnWriteArrayList<>();
+    private final Map<String, Class<?>> capabilities = new ConcurrentHashMap<>();
+    private final CsvVehicleCodec csv = new CsvVehicleCodec(this);
+
+    public static VehicleTypeRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    private static VehicleTypeRegistry createDefault() {
+        VehicleTypeRegistry registry = new VehicleTypeRegistry();
+        registry.registerCapability(FuelConsumable.class);
+        registry.registerCapability(CargoCarrier.class);
+        registry.registerCapability(PassengerCarrier.class);
+        registry.registerCapability(Maintainable.class);
+        new BuiltInVehicleTypes().registerTypes(registry);
+        for (VehicleTypeProvider provider : ServiceLoader.load(VehicleTypeProvider.class)) {
+            provider.registerTypes(registry);
+        }
+        return registry;
+    }
+
+    public synchronized void register(VehicleType<?> type) {
+        String key = key(type.getName());
+        if (byName.containsKey(key) || capabilities.containsKey(key)) {
+            throw new IllegalArgumentException("A vehicle type named " + type.getName() + " is already registered.");
+        }
+        if (byClass.containsKey(type.getVehicleClass())) {
+            throw new IllegalArgumentException(type.getVehicleClass().getName() + " is already registered.");
+        }
+        byName.put(key, type);
+        byExactName.put(type.getName(), type);
+        byClass.put(type.getVehicleClass(), type);
+        types.add(type);
+    }
+
+    /** Makes an interface searchable by its simple name, e.g. "FuelConsumable". */
+    public void registerCapability(Class<?> capability) {
+        capabilities.put(key(capability.getSimpleName()), capability);
+    }
+
+    /** The type registered under the given name, or null. */
+    public VehicleType<?> find(String name) {
+        VehicleType<?> type = byExactName.get(name);
+        return type != null ? type : byName.get(key(name));
+    }
+
+    public VehicleType<?> forVehicle(Vehicle vehicle) {
+        VehicleType<?> type = byClass.get(vehicle.getClass());
+        if (type == null) {
+            throw new IllegalArgumentException("No vehicle type registered for " + vehicle.getClass().getName());
+        }
+        return type;
+    }
+
+    public List<VehicleType<?>> getTypes() {
+        return Collections.unmodifiableList(new ArrayList<>(types));
+    }
+
+    /** A vehicle class or capability interface by name, for searching the fleet; null if unknown. */
+    public Class<?> resolveSearchType(String name) {
+        VehicleType<?> type = find(name);
+        return type != null ? type.getVehicleClass() : capabilities.get(key(name));
+    }
+
+    public CsvVehicleCodec csv() {
+        return csv;
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase();
+    }
+}
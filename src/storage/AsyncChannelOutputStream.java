@@ -0,0 +1,110 @@
+package storage;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Writes to an {@link AsynchronousFileChannel} from the start of the file,
+ * filling one buffer while the previous one is being written, so the
+ * thread producing the bytes and the disk work at the same time. Closing
+ * writes out the rest, forces it to disk and closes the channel.
+ */
+public class AsyncChannelOutputStream extends OutputStream {
+
+    private static final int BUFFER_SIZE = 1 << 18;
+
+    private final AsynchronousFileChannel channel;
+    private ByteBuffer filling = ByteBuffer.allocate(BUFFER_SIZE);
+    private ByteBuffer writing = ByteBuffer.allocate(BUFFER_SIZE);
+    private Future<Integer> pending;
+    private long position;
+    private boolean closed;
+
+    public AsyncChannelOutputStream(AsynchronousFileChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        filling.put((byte) b);
+        if (!filling.hasRemaining()) {
+            swap();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int n = Math.min(len, filling.remaining());
+            filling.put(b, off, n);
+            off += n;
+            len -= n;
+            if (!filling.hasRemaining()) {
+                swap();
+            }
+        }
+    }
+
+    /** Starts writing what has been buffered and waits until all of it is written. */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (filling.position() > 0) {
+            swap();
+        }
+        await();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+            channel.force(true);
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    /** Waits for the write in flight, then hands it the filled buffer and carries on with the other. */
+    private void swap() throws IOException {
+        await();
+        filling.flip();
+        ByteBuffer full = filling;
+        filling = writing;
+        filling.clear();
+        writing = full;
+        pending = channel.write(writing, position);
+    }
+
+    private void await() throws IOException {
+        while (pending != null) {
+            try {
+                position += pending.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while writing.");
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+            }
+            // A write may be partial; the rest goes out before the buffer is reused.
+            pending = writing.hasRemaining() ? channel.write(writing, position) : null;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed.");
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package storage;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Replaces a file in one step: the content goes to a temporary file next to
+ * it, is synced to disk and then renamed over the target. A failed or
+ * interrupted write leaves the previous file untouched.
+ */
+public final class AtomicFile {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Writes the content of a file; it may close the stream it is given. */
+    public interface Content {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private AtomicFile() {
+    }
+
+    public static void write(Path target, Content content) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (FileOutputStream fileOut = new FileOutputStream(temp.toFile())) {
+                OutputStream out = new BufferedOutputStream(fileOut, BUFFER_SIZE);
+                content.writeTo(new FilterOutputStream(out) {
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        out.write(b, off, len);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        // The file is synced and closed once the content is done.
+                        flush();
+                    }
+                });
+                out.flush();
+                fileOut.getFD().sync();
+            }
+            replace(temp, target);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Moves a completely written and synced file over the target, in one
+     * step where the file system supports it.
+     */
+    public static void replace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
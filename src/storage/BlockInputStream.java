@@ -0,0 +1,189 @@
+package storage;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads what a {@link BlockOutputStream} wrote, checking every block's
+ * CRC32C as it goes. End of stream is only reported once the trailer has
+ * been read and matches the blocks before it, so a reader that consumes
+ * the whole stream without an {@link IOException} has seen the complete,
+ * undamaged file.
+ */
+public class BlockInputStream extends InputStream {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final DataInputStream in;
+    private final String source;
+    private final int blockSize;
+    private final byte[] block;
+    private final byte[] compressed;
+    private final Inflater inflater = new Inflater(true);
+    private final CRC32C crc = new CRC32C();
+    private int position;
+    private int limit;
+    private long totalBytes;
+    private int blockCount;
+    private boolean finished;
+
+    /** {@code source} names the stream in error messages. */
+    public BlockInputStream(InputStream in, String source) throws IOException {
+        this.in = new DataInputStream(in);
+        this.source = source;
+        try {
+            if (this.in.readInt() != BlockOutputStream.MAGIC) {
+                throw new IOException(source + " is not a block file.");
+            }
+            this.blockSize = this.in.readInt();
+        } catch (EOFException e) {
+            throw new IOException(source + " is truncated: the header is incomplete.");
+        }
+        if (blockSize <= 0 || blockSize > BlockOutputStream.MAX_BLOCK_SIZE) {
+            throw new IOException(source + " is corrupt: invalid block size " + blockSize + ".");
+        }
+        this.block = new byte[blockSize];
+        this.compressed = new byte[blockSize];
+    }
+
+    /**
+     * Opens a file for reading, through a {@code BlockInputStream} if it
+     * starts with the block header and as plain buffered bytes otherwise.
+     */
+    public static InputStream open(Path file) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE);
+        try {
+            in.mark(4);
+            int magic = 0;
+            int read = 0;
+            for (int b; read < 4 && (b = in.read()) != -1; read++) {
+                magic = (magic << 8) | b;
+            }
+            in.reset();
+            return read == 4 && magic == BlockOutputStream.MAGIC ? new BlockInputStream(in, file.toString()) : in;
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == limit && !nextBlock()) {
+            return -1;
+        }
+        return block[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position == limit && !nextBlock()) {
+            return -1;
+        }
+        int n = Math.min(len, limit - position);
+        System.arraycopy(block, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        in.close();
+    }
+
+    private boolean nextBlock() throws IOException {
+        if (finished) {
+            return false;
+        }
+        try {
+            int raw = in.readInt();
+            if (raw == BlockOutputStream.END_OF_BLOCKS) {
+                readTrailer();
+                return false;
+            }
+            if (raw <= 0 || raw > blockSize) {
+                throw corrupt("invalid block length " + raw);
+            }
+            int stored = in.readInt();
+            int expected = in.readInt();
+            if (stored < 0) {
+                if (-stored != raw) {
+                    throw corrupt("invalid stored length " + stored);
+                }
+                in.readFully(block, 0, raw);
+            } else {
+                if (stored == 0 || stored > blockSize) {
+                    throw corrupt("invalid stored length " + stored);
+                }
+                in.readFully(compressed, 0, stored);
+                inflate(stored, raw);
+            }
+            crc.reset();
+            crc.update(block, 0, raw);
+            if ((int) crc.getValue() != expected) {
+                throw corrupt("checksum mismatch");
+            }
+            position = 0;
+            limit = raw;
+            totalBytes += raw;
+            blockCount++;
+            return true;
+        } catch (EOFException e) {
+            throw new IOException(source + " is truncated after " + blockCount + " blocks ("
+                    + totalBytes + " bytes); it was not completely written.");
+        }
+    }
+
+    private void inflate(int stored, int raw) throws IOException {
+        inflater.reset();
+        inflater.setInput(compressed, 0, stored);
+        try {
+            int n = 0;
+            while (n < raw && !inflater.finished()) {
+                int inflated = inflater.inflate(block, n, raw - n);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += inflated;
+            }
+            if (n != raw || !inflater.finished()) {
+                throw corrupt("block does not inflate to " + raw + " bytes");
+            }
+        } catch (DataFormatException e) {
+            throw corrupt("invalid deflate data");
+        }
+    }
+
+    private void readTrailer() throws IOException {
+        long total = in.readLong();
+        int count = in.readInt();
+        if (in.readInt() != BlockOutputStream.MAGIC || total != totalBytes || count != blockCount) {
+            throw corrupt("trailer does not match the blocks read");
+        }
+        if (in.read() != -1) {
+            throw corrupt("unexpected data after the trailer");
+        }
+        finished = true;
+    }
+
+    private IOException corrupt(String reason) {
+        return new IOException(source + " is corrupt at block " + blockCount + ": " + reason + ".");
+    }
+}
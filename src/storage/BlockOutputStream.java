@@ -0,0 +1,147 @@
+package storage;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32C;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a stream as a sequence of independently deflated blocks, each with
+ * a CRC32C of its uncompressed bytes. Layout:
+ * <pre>
+ * header   MAGIC, block size
+ * block    raw length, stored length, CRC32C, stored bytes
+ *          (a negative stored length means the block is stored uncompressed)
+ * trailer  END_OF_BLOCKS, total raw length, block count, MAGIC
+ * </pre>
+ * A file cut short anywhere is missing its trailer, so
+ * {@link BlockInputStream} tells it apart from a complete one.
+ * {@link #flush()} only pushes out whole blocks; {@link #close()} writes
+ * the last partial block and the trailer.
+ */
+public class BlockOutputStream extends OutputStream {
+
+    public static final int MAGIC = 0x46424B31; // "FBK1"
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 18;
+    static final int MAX_BLOCK_SIZE = 1 << 24;
+    static final int END_OF_BLOCKS = -1;
+
+    private final DataOutputStream out;
+    private final byte[] block;
+    private final byte[] compressed;
+    private final Deflater deflater;
+    private final CRC32C crc = new CRC32C();
+    private int position;
+    private long totalBytes;
+    private int blockCount;
+    private boolean closed;
+
+    public BlockOutputStream(OutputStream out) throws IOException {
+        this(out, Deflater.BEST_SPEED, DEFAULT_BLOCK_SIZE);
+    }
+
+    /** A level of {@link Deflater#NO_COMPRESSION} stores every block as is, checksummed only. */
+    public BlockOutputStream(OutputStream out, int level, int blockSize) throws IOException {
+        if (blockSize <= 0 || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size must be between 1 and " + MAX_BLOCK_SIZE + ".");
+        }
+        this.out = new DataOutputStream(out);
+        this.block = new byte[blockSize];
+        this.deflater = level == Deflater.NO_COMPRESSION ? null : new Deflater(level, true);
+        this.compressed = deflater == null ? null : new byte[blockSize];
+        this.out.writeInt(MAGIC);
+        this.out.writeInt(blockSize);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        block[position++] = (byte) b;
+        if (position == block.length) {
+            writeBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int n = Math.min(len, block.length - position);
+            System.arraycopy(b, off, block, position, n);
+            position += n;
+            off += n;
+            len -= n;
+            if (position == block.length) {
+                writeBlock();
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (position > 0) {
+                writeBlock();
+            }
+            out.writeInt(END_OF_BLOCKS);
+            out.writeLong(totalBytes);
+            out.writeInt(blockCount);
+            out.writeInt(MAGIC);
+        } finally {
+            closed = true;
+            if (deflater != null) {
+                deflater.end();
+            }
+            out.close();
+        }
+    }
+
+    public long getTotalBytes() {
+        return totalBytes + position;
+    }
+
+    private void writeBlock() throws IOException {
+        crc.reset();
+        crc.update(block, 0, position);
+        int stored = -position;
+        if (deflater != null) {
+            deflater.reset();
+            deflater.setInput(block, 0, position);
+            deflater.finish();
+            int n = 0;
+            while (!deflater.finished() && n < compressed.length) {
+                n += deflater.deflate(compressed, n, compressed.length - n);
+            }
+            // Incompressible data is stored as is rather than grown.
+            if (deflater.finished() && n < position) {
+                stored = n;
+            }
+        }
+        out.writeInt(position);
+        out.writeInt(stored);
+        out.writeInt((int) crc.getValue());
+        if (stored > 0) {
+            out.write(compressed, 0, stored);
+        } else {
+            out.write(block, 0, position);
+        }
+        totalBytes += position;
+        blockCount++;
+        position = 0;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed.");
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package telemetry;
+
+import management.FleetManager;
+import management.FleetSnapshot;
+import vehicles.Vehicle;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Applies a stream of telemetry records to the vehicles of a fleet. Each
+ * record is one line:
+ * <pre>vehicleId,timestampMillis,odometerKm,fuelLiters</pre>
+ * The fuel column may be left empty when a vehicle reports no fuel reading.
+ * Vehicle IDs must match the fleet exactly.
+ * <p>
+ * Readings are not applied one by one. Within each window of record time
+ * only the latest reading per vehicle is kept, and when the window closes
+ * those readings are applied in one batch. Memory use is one slot per fleet
+ * vehicle plus a fixed read buffer, however fast records arrive. Readings
+ * older than one already seen for the same vehicle are dropped.
+ * <p>
+ * An ingestor is used by one reading thread at a time.
+ */
+public class TelemetryIngestor {
+
+    public static final long DEFAULT_WINDOW_MILLIS = 1000;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    private final FleetManager fleetManager;
+    private final long windowMillis;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    // One slot per fleet vehicle, found through an open-addressing table on
+    // the raw ID bytes so that no String is created per record.
+    private long fleetVersion = -1;
+    private byte[][] ids = new byte[0][];
+    private Vehicle[] vehicles = new Vehicle[0];
+    private long[] timestamps = new long[0];
+    private double[] odometers = new double[0];
+    private double[] fuelLevels = new double[0];
+    private boolean[] pending = new boolean[0];
+    private int[] pendingSlots = new int[0];
+    private int pendingCount;
+    private int[] table = new int[1];
+
+    private long windowEnd = Long.MIN_VALUE;
+    private int cursor;
+    private final Stats stats = new Stats();
+
+    public TelemetryIngestor(FleetManager fleetManager) {
+        this(fleetManager, DEFAULT_WINDOW_MILLIS);
+    }
+
+    public TelemetryIngestor(FleetManager fleetManager, long windowMillis) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("Window must be positive.");
+        }
+        this.fleetManager = fleetManager;
+        this.windowMillis = windowMillis;
+        refreshVehicles();
+    }
+
+    public Stats getStats() {
+        return stats;
+    }
+
+    public Stats ingestFile(String filename) throws IOException {
+        try (InputStream in = new FileInputStream(filename)) {
+            return ingest(in);
+        }
+    }
+
+    /** Accepts a single connection on a loopback port and ingests it until the sender closes it. */
+    public Stats ingestSocket(int port) throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(port, 1, InetAddress.getLoopbackAddress());
+             Socket socket = serverSocket.accept()) {
+            return ingest(socket.getInputStream());
+        }
+    }
+
+    /** Reads records until the end of the stream, then applies whatever is still pending. */
+    public Stats ingest(InputStream in) throws IOException {
+        int limit = 0;
+        boolean skipping = false;
+        try {
+            while (true) {
+                int read = in.read(buffer, limit, buffer.length - limit);
+                if (read < 0) {
+                    if (limit > 0 && !skipping) {
+                        processLine(0, limit);
+                    }
+                    break;
+                }
+                limit += read;
+                int pos = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (buffer[i] == '\n') {
+                        if (skipping) {
+                            skipping = false;
+                        } else {
+                            processLine(pos, i);
+                        }
+                        pos = i + 1;
+                    }
+                }
+                if (pos == 0 && limit == buffer.length) {
+                    // A line longer than the whole buffer: drop it up to its end.
+                    if (!skipping) {
+                        stats.malformed++;
+                    }
+                    skipping = true;
+                    limit = 0;
+                } else {
+                    System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+                    limit -= pos;
+                }
+            }
+        } finally {
+            flush();
+        }
+        return stats;
+    }
+
+    /** Applies the latest pending reading of every vehicle that has one. */
+    public void flush() {
+        for (int i = 0; i < pendingCount; i++) {
+            int slot = pendingSlots[i];
+            vehicles[slot].applyTelemetry(odometers[slot], fuelLevels[slot]);
+            pending[slot] = false;
+        }
+        stats.applied += pendingCount;
+        if (pendingCount > 0) {
+            stats.batches++;
+        }
+        pendingCount = 0;
+        if (fleetManager.snapshot().getVersion() != fleetVersion) {
+            refreshVehicles();
+        }
+    }
+
+    private void processLine(int start, int end) {
+        if (end > start && buffer[end - 1] == '\r') {
+            end--;
+        }
+        if (start == end || buffer[start] == '#') {
+            return;
+        }
+        stats.records++;
+        try {
+            int idEnd = indexOf(',', start, end);
+            long timestamp = parseLong(idEnd + 1, indexOf(',', idEnd + 1, end));
+            double odometer = parseDouble(cursor + 1, indexOf(',', cursor + 1, end));
+            double fuel = cursor < end ? parseDouble(cursor + 1, end) : Double.NaN;
+
+            if (timestamp >= windowEnd) {
+                if (windowEnd != Long.MIN_VALUE) {
+                    flush();
+                }
+                windowEnd = timestamp - Math.floorMod(timestamp, windowMillis) + windowMillis;
+            }
+            int slot = lookup(start, idEnd - start);
+            if (slot < 0) {
+                stats.unknownVehicle++;
+            } else if (timestamp < timestamps[slot]) {
+                stats.stale++;
+            } else {
+                timestamps[slot] = timestamp;
+                if (!pending[slot]) {
+                    pending[slot] = true;
+                    pendingSlots[pendingCount++] = slot;
+                    odometers[slot] = odometer;
+                    fuelLevels[slot] = fuel;
+                } else {
+                    // A record missing a reading must not discard an earlier one in the same window.
+                    if (!Double.isNaN(odometer)) {
+                        odometers[slot] = odometer;
+                    }
+                    if (!Double.isNaN(fuel)) {
+                        fuelLevels[slot] = fuel;
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            stats.malformed++;
+        }
+    }
+
+    /** Index of the next separator, or {@code end} if there is none; also stored in {@link #cursor}. */
+    private int indexOf(char separator, int from, int end) {
+        int i = from;
+        while (i < end && buffer[i] != separator) {
+            i++;
+        }
+        cursor = i;
+        return i;
+    }
+
+    private long parseLong(int from, int to) {
+        if (from >= to) {
+            throw new NumberFormatException("Missing number.");
+        }
+        int i = from;
+        boolean negative = buffer[i] == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == to || to - i > 18) {
+            return Long.parseLong(text(from, to));
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Not a number: " + text(from, to));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses plain decimals of up to 15 significant digits directly; both the
+     * digits and the power of ten are then exact doubles, so the division is
+     * correctly rounded. Anything else goes through {@link Double#parseDouble}.
+     */
+    private double parseDouble(int from, int to) {
+        if (from >= to) {
+            return Double.NaN;
+        }
+        int i = from;
+        boolean negative = buffer[i] == '-';
+        if (negative) {
+            i++;
+        }
+        long digits = 0;
+        int count = 0;
+        int scale = 0;
+        boolean point = false;
+        for (; i < to; i++) {
+            byte b = buffer[i];
+            if (b >= '0' && b <= '9') {
+                if (++count > 15) {
+                    return Double.parseDouble(text(from, to));
+                }
+                digits = digits * 10 + (b - '0');
+                if (point) {
+                    scale++;
+                }
+            } else if (b == '.' && !point) {
+                point = true;
+            } else {
+                return Double.parseDouble(text(from, to));
+            }
+        }
+        if (count == 0) {
+            throw new NumberFormatException("Not a number: " + text(from, to));
+        }
+        double value = digits / POW10[scale];
+        return negative ? -value : value;
+    }
+
+    private String text(int from, int to) {
+        return new String(buffer, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    private int lookup(int offset, int length) {
+        int mask = table.length - 1;
+        for (int i = hash(buffer, offset, length) & mask; ; i = (i + 1) & mask) {
+            int slot = table[i] - 1;
+            if (slot < 0) {
+                return -1;
+            }
+            byte[] id = ids[slot];
+            if (Arrays.equals(id, 0, id.length, buffer, offset, offset + length)) {
+                return slot;
+            }
+        }
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        int h = 0x811c9dc5;
+        for (int i = offset; i < offset + length; i++) {
+            h = (h ^ bytes[i]) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /** Rebuilds the slots from the current fleet, keeping each vehicle's last seen timestamp. */
+    private void refreshVehicles() {
+        FleetSnapshot snapshot = fleetManager.snapshot();
+        List<Vehicle> fleet = snapshot.getVehicles();
+        int n = fleet.size();
+        byte[][] oldIds = ids;
+        long[] oldTimestamps = timestamps;
+        int[] oldTable = table;
+
+        byte[][] newIds = new byte[n][];
+        long[] newTimestamps = new long[n];
+        int[] newTable = new int[Integer.highestOneBit(Math.max(1, n) * 2 - 1) << 1];
+        int mask = newTable.length - 1;
+        for (int slot = 0; slot < n; slot++) {
+            byte[] id = fleet.get(slot).getId().getBytes(StandardCharsets.UTF_8);
+            newIds[slot] = id;
+            newTimestamps[slot] = Long.MIN_VALUE;
+            int i = hash(id, 0, id.length) & mask;
+            while (newTable[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            newTable[i] = slot + 1;
+        }
+        // Carry timestamps over so stale readings stay rejected across fleet changes.
+        int oldMask = oldTable.length - 1;
+        for (int slot = 0; slot < n; slot++) {
+            byte[] id = newIds[slot];
+            for (int i = hash(id, 0, id.length) & oldMask; oldTable[i] != 0; i = (i + 1) & oldMask) {
+                int old = oldTable[i] - 1;
+                if (Arrays.equals(oldIds[old], id)) {
+                    newTimestamps[slot] = oldTimestamps[old];
+                    break;
+                }
+            }
+        }
+
+        ids = newIds;
+        vehicles = fleet.toArray(new Vehicle[0]);
+        timestamps = newTimestamps;
+        odometers = new double[n];
+        fuelLevels = new double[n];
+        pending = new boolean[n];
+        pendingSlots = new int[n];
+        table = newTable;
+        fleetVersion = snapshot.getVersion();
+    }
+
+    /** Running counts for everything an ingestor has read. */
+    public static final class Stats {
+
+        private long records;
+        private long applied;
+        private long batches;
+        private long stale;
+        private long unknownVehicle;
+        private long malformed;
+
+        public long getRecords() {
+            return records;
+        }
+
+        /** Vehicle updates actually applied, i.e. records left after coalescing. */
+        public long getApplied() {
+            return applied;
+        }
+
+        public long getBatches() {
+            return batches;
+        }
+
+        public long getStale() {
+            return stale;
+        }
+
+        public long getUnknownVehicle() {
+            return unknownVehicle;
+        }
+
+        public long getMalformed() {
+            return malformed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d records, %d updates applied in %d batches, %d stale, %d unknown vehicle, %d malformed",
+                    records, applied, batches, stale, unknownVehicle, malformed);
+        }
+    }
+
+    /**
+     * Usage: {@code java telemetry.TelemetryIngestor <fleet.csv> <telemetry.csv | port> [windowMillis]}.
+     * Loads the fleet, ingests the telemetry, and saves the updated fleet back.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java telemetry.TelemetryIngestor <fleet.csv> <telemetry.csv | port> [windowMillis]");
+            System.exit(1);
+        }
+        FleetManager fleetManager = new FleetManager();
+        fleetManager.loadFromFile(args[0]);
+        TelemetryIngestor ingestor = new TelemetryIngestor(fleetManager,
+                args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_WINDOW_MILLIS);
+        long start = System.nanoTime();
+        Stats stats = args[1].matches("\\d+")
+                ? ingestor.ingestSocket(Integer.parseInt(args[1]))
+                : ingestor.ingestFile(args[1]);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Ingested %s in %.2f s (%.0f records/s).\n", stats, seconds, stats.getRecords() / seconds);
+        fleetManager.saveToFile(args[0]);
+    }
+}
@@ -0,0 +1,512 @@
+package tenancy;
+
+import exceptions.InvalidOperationException;
+import management.FleetExecutor;
+import management.FleetManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Hosts many independent fleets, one {@link FleetManager} per tenant, in
+ * one process. Each tenant has its own vehicles and ID index; nothing is
+ * shared between tenants except the host's worker threads and the
+ * process-wide {@link FleetExecutor#shared() executor}.
+ * <p>
+ * Tenants are loaded on first use from a fleet image in the host's
+ * directory, or start empty if they have none. When the estimated memory
+ * of all loaded tenants exceeds the budget, the least recently used ones
+ * that are not in use are written back to their images and dropped, and
+ * {@link #evictIdle(long)} does the same for tenants idle for a while.
+ * Images are replaced atomically, so a crash never leaves a tenant with a
+ * half-written image.
+ * <p>
+ * Bulk operations submitted with {@link #submit(String, TenantOperation)}
+ * are queued per tenant and run by a fixed set of workers that take the
+ * tenants in turn, one operation each. A tenant with a long backlog
+ * therefore delays only itself, and runs at most one bulk operation at a
+ * time. {@link #withTenant(String, TenantOperation)} runs short operations
+ * directly on the calling thread.
+ */
+public class TenantFleetHost implements AutoCloseable {
+
+    /** Work on one tenant's fleet. */
+    public interface TenantOperation<T> {
+        T apply(FleetManager fleet) throws InvalidOperationException;
+    }
+
+    /** A queued operation, which is either run by a worker or rejected. */
+    private interface Job {
+        void run();
+
+        void reject(RuntimeException reason);
+    }
+
+    static final String IMAGE_SUFFIX = ".img";
+    // Measured heap cost of an empty manager and of each vehicle in it, including its index entries.
+    static final long MANAGER_BYTES = 24 * 1024;
+    static final long VEHICLE_BYTES = 320;
+    static final int MAX_QUEUED_PER_TENANT = 1024;
+    // Eviction goes a little below the budget, so the next few loads do not each trigger another pass.
+    static final double EVICTION_TARGET = 0.9;
+
+    private static final Pattern TENANT_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final Path directory;
+    private final long memoryBudget;
+    private final FleetExecutor executor = FleetExecutor.shared();
+    private final Map<String, Tenant> tenants = new ConcurrentHashMap<>();
+    private final AtomicLong residentBytes = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    // Tenants with queued operations, each at most once, served round-robin.
+    private final ArrayDeque<Tenant> ready = new ArrayDeque<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private boolean closed;
+
+    public TenantFleetHost(Path directory, long memoryBudget) throws IOException {
+        this(directory, memoryBudget, Runtime.getRuntime().availableProcessors());
+    }
+
+    public TenantFleetHost(Path directory, long memoryBudget, int workerCount) throws IOException {
+        if (memoryBudget <= 0 || workerCount <= 0) {
+            throw new IllegalArgumentException("Memory budget and worker count must be positive.");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.memoryBudget = memoryBudget;
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::runWorker, "tenant-worker-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Runs the operation on the calling thread with the tenant's fleet,
+     * loading it first if needed. The tenant is not evicted while it runs.
+     */
+    public <T> T withTenant(String tenantId, TenantOperation<T> operation) throws InvalidOperationException {
+        return runPinned(acquire(tenantId), operation);
+    }
+
+    /**
+     * Queues a bulk operation for the tenant. The future fails with
+     * {@link RejectedExecutionException} if the tenant already has
+     * {@value #MAX_QUEUED_PER_TENANT} operations waiting, the host is closed
+     * or the tenant is deleted before the operation runs.
+     */
+    public <T> CompletableFuture<T> submit(String tenantId, TenantOperation<T> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Tenant tenant;
+        try {
+            tenant = tenant(tenantId);
+        } catch (InvalidOperationException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        synchronized (ready) {
+            if (closed) {
+                result.completeExceptionally(new RejectedExecutionException("The tenant host is closed."));
+            } else if (tenant.queue.size() >= MAX_QUEUED_PER_TENANT) {
+                result.completeExceptionally(new RejectedExecutionException(
+                        "Tenant " + tenantId + " already has " + MAX_QUEUED_PER_TENANT + " operations queued."));
+            } else {
+                tenant.queue.add(new Job() {
+                    @Override
+                    public void run() {
+                        try {
+                            // Bound to this tenant, so a job outliving a delete cannot bring the tenant back.
+                            if (!pin(tenant)) {
+                                throw deleted(tenantId);
+                            }
+                            result.complete(runPinned(tenant, operation));
+                        } catch (Exception e) {
+                            result.completeExceptionally(e);
+                        }
+                    }
+
+                    @Override
+                    public void reject(RuntimeException reason) {
+                        result.completeExceptionally(reason);
+                    }
+                });
+                if (!tenant.scheduled) {
+                    tenant.scheduled = true;
+                    ready.add(tenant);
+                    ready.notify();
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Writes back and drops loaded tenants not used for the given time. Returns how many were evicted. */
+    public int evictIdle(long idleMillis) {
+        long cutoff = System.nanoTime() - idleMillis * 1_000_000;
+        int evicted = 0;
+        for (Tenant tenant : tenants.values()) {
+            if (tenant.lastUsed < cutoff && evict(tenant)) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /** Writes every loaded tenant that changed since it was last written, keeping it loaded. */
+    public void flush() throws IOException {
+        for (Tenant tenant : tenants.values()) {
+            synchronized (tenant) {
+                if (tenant.fleet != null && tenant.dirty) {
+                    tenant.fleet.writeImage(imageFile(tenant.id).toString());
+                    tenant.dirty = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the tenant and its image. Fails if the tenant is in use.
+     * Operations still queued for it fail with
+     * {@link RejectedExecutionException} instead of running against a new,
+     * empty fleet under the same ID.
+     */
+    public void deleteTenant(String tenantId) throws InvalidOperationException {
+        Tenant tenant = tenant(tenantId);
+        List<Job> dropped = new ArrayList<>();
+        try {
+            synchronized (tenant) {
+                if (tenant.pins > 0) {
+                    throw new InvalidOperationException("Tenant " + tenantId + " is in use.");
+                }
+                residentBytes.addAndGet(-tenant.estimatedBytes);
+                tenant.estimatedBytes = 0;
+                tenant.fleet = null;
+                tenant.dirty = false;
+                tenants.remove(tenantId, tenant);
+                synchronized (ready) {
+                    dropped.addAll(tenant.queue);
+                    tenant.queue.clear();
+                    if (ready.remove(tenant)) {
+                        tenant.scheduled = false;
+                    }
+                }
+                try {
+                    Files.deleteIfExists(imageFile(tenantId));
+                } catch (IOException e) {
+                    throw new InvalidOperationException("Could not delete the image of tenant " + tenantId + ": " + e.getMessage());
+                }
+            }
+        } finally {
+            // Completed outside the locks, since completing a future runs its dependents.
+            for (Job job : dropped) {
+                job.reject(deleted(tenantId));
+            }
+        }
+    }
+
+    public long getResidentBytes() {
+        return residentBytes.get();
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public FleetExecutor getExecutor() {
+        return executor;
+    }
+
+    /** The state of every tenant the host has seen, by ID. */
+    public List<TenantInfo> getTenants() {
+        List<TenantInfo> infos = new ArrayList<>();
+        for (Tenant tenant : tenants.values()) {
+            int queued;
+            synchronized (ready) {
+                queued = tenant.queue.size();
+            }
+            synchronized (tenant) {
+                infos.add(new TenantInfo(tenant.id, tenant.fleet != null, tenant.fleet != null ? tenant.fleet.snapshot().size() : 0,
+                        tenant.estimatedBytes, tenant.operations, tenant.loads, tenant.evictions, queued));
+            }
+        }
+        infos.sort(Comparator.comparing(TenantInfo::getTenantId));
+        return infos;
+    }
+
+    /** Stops the workers once the queued operations are done, then writes back every loaded tenant. */
+    @Override
+    public void close() throws IOException {
+        synchronized (ready) {
+            closed = true;
+            ready.notifyAll();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        flush();
+    }
+
+    private void runWorker() {
+        while (true) {
+            Tenant tenant;
+            Job job;
+            synchronized (ready) {
+                while (ready.isEmpty() && !closed) {
+                    try {
+                        ready.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (ready.isEmpty()) {
+                    return;
+                }
+                tenant = ready.poll();
+                job = tenant.queue.poll();
+            }
+            job.run();
+            synchronized (ready) {
+                if (tenant.queue.isEmpty()) {
+                    tenant.scheduled = false;
+                } else {
+                    ready.add(tenant);
+                    ready.notify();
+                }
+            }
+        }
+    }
+
+    private Tenant tenant(String tenantId) throws InvalidOperationException {
+        if (tenantId == null || !TENANT_ID.matcher(tenantId).matches()) {
+            throw new InvalidOperationException("Invalid tenant ID: " + tenantId
+                    + ". Use 1 to 64 letters, digits, '-' or '_'.");
+        }
+        return tenants.computeIfAbsent(tenantId, Tenant::new);
+    }
+
+    private Tenant acquire(String tenantId) throws InvalidOperationException {
+        while (true) {
+            Tenant tenant = tenant(tenantId);
+            // A tenant deleted meanwhile is replaced by a fresh entry on the next pass.
+            if (pin(tenant)) {
+                return tenant;
+            }
+        }
+    }
+
+    /** Loads the tenant if needed and keeps it from being evicted. Returns false if it was deleted. */
+    private boolean pin(Tenant tenant) throws InvalidOperationException {
+        synchronized (tenant) {
+            if (tenants.get(tenant.id) != tenant) {
+                return false;
+            }
+            if (tenant.fleet == null) {
+                load(tenant);
+            }
+            tenant.pins++;
+            tenant.lastUsed = System.nanoTime();
+        }
+        enforceBudget();
+        return true;
+    }
+
+    private <T> T runPinned(Tenant tenant, TenantOperation<T> operation) throws InvalidOperationException {
+        try {
+            return operation.apply(tenant.fleet);
+        } finally {
+            release(tenant);
+        }
+    }
+
+    private static RejectedExecutionException deleted(String tenantId) {
+        return new RejectedExecutionException("Tenant " + tenantId + " was deleted.");
+    }
+
+    private void release(Tenant tenant) {
+        synchronized (tenant) {
+            tenant.pins--;
+            tenant.operations++;
+            tenant.dirty = true;
+            tenant.lastUsed = System.nanoTime();
+            long estimate = estimate(tenant.fleet);
+            residentBytes.addAndGet(estimate - tenant.estimatedBytes);
+            tenant.estimatedBytes = estimate;
+        }
+        enforceBudget();
+    }
+
+    private void load(Tenant tenant) throws InvalidOperationException {
+        FleetManager fleet = new FleetManager(executor);
+        Path image = imageFile(tenant.id);
+        if (Files.exists(image)) {
+            try {
+                fleet.loadImage(image.toString());
+            } catch (IOException e) {
+                // The image stays as it is, so a damaged tenant can be repaired rather than overwritten.
+                throw new InvalidOperationException("Could not load tenant " + tenant.id + ": " + e.getMessage());
+            }
+        }
+        tenant.fleet = fleet;
+        tenant.dirty = false;
+        tenant.loads++;
+        tenant.estimatedBytes = estimate(fleet);
+        residentBytes.addAndGet(tenant.estimatedBytes);
+    }
+
+    /** Evicts least recently used tenants not in use until the loaded ones fit well within the budget. */
+    private void enforceBudget() {
+        if (residentBytes.get() <= memoryBudget || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            List<Tenant> candidates = new ArrayList<>();
+            for (Tenant tenant : tenants.values()) {
+                if (tenant.fleet != null && tenant.pins == 0) {
+                    candidates.add(tenant);
+                }
+            }
+            candidates.sort(Comparator.comparingLong(t -> t.lastUsed));
+            long target = (long) (memoryBudget * EVICTION_TARGET);
+            for (Tenant tenant : candidates) {
+                if (residentBytes.get() <= target) {
+                    break;
+                }
+                evict(tenant);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private boolean evict(Tenant tenant) {
+        synchronized (tenant) {
+            if (tenant.fleet == null || tenant.pins > 0) {
+                return false;
+            }
+            if (tenant.dirty) {
+                try {
+                    tenant.fleet.writeImage(imageFile(tenant.id).toString());
+                } catch (IOException e) {
+                    System.err.println("Error writing tenant " + tenant.id + ", keeping it loaded: " + e.getMessage());
+                    return false;
+                }
+            }
+            residentBytes.addAndGet(-tenant.estimatedBytes);
+            tenant.estimatedBytes = 0;
+            tenant.fleet = null;
+            tenant.dirty = false;
+            tenant.evictions++;
+            return true;
+        }
+    }
+
+    private Path imageFile(String tenantId) {
+        return directory.resolve(tenantId + IMAGE_SUFFIX);
+    }
+
+    private static long estimate(FleetManager fleet) {
+        return MANAGER_BYTES + VEHICLE_BYTES * fleet.snapshot().size();
+    }
+
+    private static final class Tenant {
+
+        final String id;
+        // Guarded by the host's ready queue lock.
+        final ArrayDeque<Job> queue = new ArrayDeque<>();
+        boolean scheduled;
+        // Guarded by this tenant.
+        FleetManager fleet;
+        int pins;
+        boolean dirty;
+        long estimatedBytes;
+        long operations;
+        long loads;
+        long evictions;
+        volatile long lastUsed = System.nanoTime();
+
+        Tenant(String id) {
+            this.id = id;
+        }
+    }
+
+    public static final class TenantInfo {
+
+        private final String tenantId;
+        private final boolean loaded;
+        private final int vehicles;
+        private final long estimatedBytes;
+        private final long operations;
+        private final long loads;
+        private final long evictions;
+        private final int queued;
+
+        TenantInfo(String tenantId, boolean loaded, int vehicles, long estimatedBytes,
+                   long operations, long loads, long evictions, int queued) {
+            this.tenantId = tenantId;
+            this.loaded = loaded;
+            this.vehicles = vehicles;
+            this.estimatedBytes = estimatedBytes;
+            this.operations = operations;
+            this.loads = loads;
+            this.evictions = evictions;
+            this.queued = queued;
+        }
+
+        public String getTenantId() {
+            return tenantId;
+        }
+
+        public boolean isLoaded() {
+            return loaded;
+        }
+
+        /** Vehicles in the fleet while loaded, 0 otherwise. */
+        public int getVehicles() {
+            return vehicles;
+        }
+
+        public long getEstimatedBytes() {
+            return estimatedBytes;
+        }
+
+        public long getOperations() {
+            return operations;
+        }
+
+        public long getLoads() {
+            return loads;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public int getQueued() {
+            return queued;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %s, %d vehicles, ~%d KB, %d operations, %d loads, %d evictions, %d queued",
+                    tenantId, loaded ? "loaded" : "evicted", vehicles, estimatedBytes / 1024,
+                    operations, loads, evictions, queued);
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package ui;
+
+import management.FleetManager;
+import management.FleetSnapshot;
+import management.RefuelPolicy;
+import management.ReportAggregate;
+import registry.FieldKind;
+import registry.VehicleField;
+import registry.VehicleRecord;
+import registry.VehicleType;
+import registry.VehicleTypeRegistry;
+import vehicles.Vehicle;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Runs fleet commands from a script or standard input without the menu.
+ * One command per line, fields separated by commas as in the fleet file:
+ * <pre>
+ * add,Car,C-001,Toyota Camry,180     fields are the type's prompts in CLI order
+ * remove,C-001
+ * journey,100
+ * refuel                             top up; refuel,50 adds 50 L where it fits
+ * maintain
+ * report
+ * search,FuelConsumable
+ * save,my_fleet.csv
+ * load,my_fleet.csv
+ * </pre>
+ * Blank lines and lines starting with {@code #} are ignored.
+ * <p>
+ * Each command produces one tab-separated result line on standard output:
+ * line number, {@code OK} or {@code ERROR}, the command, then its result
+ * or error message. The usual console messages of the fleet go to standard
+ * error instead, or nowhere with {@code --quiet}, so the results stay
+ * machine-readable. Runs of consecutive adds or removes are applied to the
+ * fleet in one update each.
+ * <p>
+ * Usage: {@code java ui.BatchRunner [--quiet] [script]}
+ */
+public class BatchRunner {
+
+    private final FleetManager fleetManager;
+    private final PrintStream results;
+    private final VehicleTypeRegistry registry = VehicleTypeRegistry.getDefault();
+
+    // A run of adds or removes waiting to be applied together.
+    private final List<Integer> pendingLines = new ArrayList<>();
+    private final List<Vehicle> pendingAdds = new ArrayList<>();
+    private final List<String> pendingRemoves = new ArrayList<>();
+
+    private long succeeded;
+    private long failed;
+
+    public BatchRunner(FleetManager fleetManager, PrintStream results) {
+        this.fleetManager = fleetManager;
+        this.results = results;
+    }
+
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void run(Reader script) throws IOException {
+        BufferedReader reader = new BufferedReader(script, 1 << 16);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            execute(lineNumber, line.split("\\s*,\\s*"));
+        }
+        flushPending();
+        results.flush();
+    }
+
+    private void execute(int lineNumber, String[] args) {
+        String command = args[0].toLowerCase();
+        if (!command.equals("add")) {
+            flushAdds();
+        }
+        if (!command.equals("remove")) {
+            flushRemoves();
+        }
+        try {
+            switch (command) {
+                case "add":
+                    pendingAdds.add(parseVehicle(args));
+                    pendingLines.add(lineNumber);
+                    break;
+                case "remove":
+                    require(args, 2, "remove,<id>");
+                    pendingLines.add(lineNumber);
+                    pendingRemoves.add(args[1]);
+                    break;
+                case "journey":
+                    require(args, 2, "journey,<km>");
+                    int completed = fleetManager.startAllJourneys(Double.parseDouble(args[1]));
+                    ok(lineNumber, command, "completed=" + completed + " of=" + fleetManager.snapshot().size());
+                    break;
+                case "refuel":
+                    RefuelPolicy policy = args.length > 1
+                            ? RefuelPolicy.fixedAmount(Double.parseDouble(args[1]))
+                            : RefuelPolicy.topUp();
+                    ok(lineNumber, command, String.format("liters=%.2f", fleetManager.refuelAll(policy)));
+                    break;
+                case "maintain":
+                    ok(lineNumber, command, "maintained=" + fleetManager.maintainAll());
+                    break;
+                case "report":
+                    ok(lineNumber, command, summarize(ReportAggregate.of(fleetManager.snapshot())));
+                    break;
+                case "search":
+                    require(args, 2, "search,<type>");
+                    Class<?> type = registry.resolveSearchType(args[1]);
+                    if (type == null) {
+                        error(lineNumber, command, "Unknown or unsupported type for searching: " + args[1]);
+                        break;
+                    }
+                    List<Vehicle> found = fleetManager.searchByType(type);
+                    ok(lineNumber, command, "count=" + found.size() + " ids="
+                            + found.stream().map(Vehicle::getId).collect(Collectors.joining(";")));
+                    break;
+                case "save":
+                    require(args, 2, "save,<file>");
+                    FleetSnapshot saved = fleetManager.snapshot();
+                    try {
+                        fleetManager.writeCsv(args[1]);
+                        ok(lineNumber, command, "file=" + args[1] + " vehicles=" + saved.size());
+                    } catch (IOException e) {
+                        error(lineNumber, command, "Could not save " + args[1] + ": " + describe(e));
+                    }
+                    break;
+                case "load":
+                    require(args, 2, "load,<file>");
+                    try {
+                        int loaded = fleetManager.readCsv(args[1]);
+                        ok(lineNumber, command, "file=" + args[1] + " vehicles=" + loaded);
+                    } catch (IOException e) {
+                        error(lineNumber, command, "Could not load " + args[1] + ": " + describe(e));
+                    }
+                    break;
+                default:
+                    error(lineNumber, command, "Unknown command.");
+            }
+        } catch (IllegalArgumentException e) {
+            // Includes NumberFormatException from malformed numbers.
+            // Report the run before this line first so results stay in line order.
+            flushPending();
+            error(lineNumber, command, e.getMessage());
+        }
+    }
+
+    /** Builds a vehicle from its type name followed by the type's CONFIG fields. */
+    private Vehicle parseVehicle(String[] args) {
+        require(args, 2, "add,<type>,<fields...>");
+        VehicleType<?> type = registry.find(args[1]);
+        if (type == null) {
+            throw new IllegalArgumentException("Invalid vehicle type: " + args[1]);
+        }
+        List<? extends VehicleField<?>> fields = type.getFields();
+        VehicleRecord record = new VehicleRecord(fields.size());
+        int next = 2;
+        for (int i = 0; i < fields.size(); i++) {
+            VehicleField<?> field = fields.get(i);
+            if (field.getRole() != VehicleField.Role.CONFIG) {
+                continue;
+            }
+            if (next >= args.length) {
+                throw new IllegalArgumentException("Missing field '" + field.getName() + "' for " + type.getName() + ".");
+            }
+            parseValue(field.getKind(), args[next++], record, i);
+        }
+        return type.create(record);
+    }
+
+    private static void parseValue(FieldKind kind, String text, VehicleRecord record, int index) {
+        switch (kind) {
+            case DOUBLE: record.setDouble(index, Double.parseDouble(text)); break;
+            case INT: record.setInt(index, Integer.parseInt(text)); break;
+            case BOOLEAN: record.setBoolean(index, Boolean.parseBoolean(text)); break;
+            default: record.setString(index, text); break;
+        }
+    }
+
+    /** A missing file is reported with only its path as the message. */
+    private static String describe(IOException e) {
+        return e instanceof NoSuchFileException ? "No such file." : e.getMessage();
+    }
+
+    private static void require(String[] args, int count, String usage) {
+        if (args.length < count) {
+            throw new IllegalArgumentException("Usage: " + usage);
+        }
+    }
+
+    private static String summarize(ReportAggregate report) {
+        return String.format("vehicles=%d avgEfficiency=%.2f mileage=%.1f needMaintenance=%d",
+                report.getVehicleCount(), report.getAverageEfficiency(), report.getTotalMileage(),
+                report.getNeedsMaintenance().size());
+    }
+
+    private void flushPending() {
+        flushAdds();
+        flushRemoves();
+    }
+
+    private void flushAdds() {
+        if (pendingAdds.isEmpty()) {
+            return;
+        }
+        fleetManager.addVehicles(pendingAdds);
+        for (int i = 0; i < pendingAdds.size(); i++) {
+            Vehicle vehicle = pendingAdds.get(i);
+            String id = vehicle.getId();
+            if (fleetManager.findVehicle(id) != vehicle) {
+                error(pendingLines.get(i), "add", "Duplicate vehicle ID: " + id);
+            } else {
+                ok(pendingLines.get(i), "add", "id=" + id);
+            }
+        }
+        pendingAdds.clear();
+        pendingLines.clear();
+    }
+
+    private void flushRemoves() {
+        if (pendingRemoves.isEmpty()) {
+            return;
+        }
+        List<String> missing = fleetManager.removeVehicles(pendingRemoves);
+        // Only the first remove of an ID in the run can succeed, so match misses from the end.
+        boolean[] notFound = new boolean[pendingRemoves.size()];
+        for (int i = notFound.length - 1; i >= 0; i--) {
+            notFound[i] = missing.remove(pendingRemoves.get(i));
+        }
+        for (int i = 0; i < pendingRemoves.size(); i++) {
+            String id = pendingRemoves.get(i);
+            if (notFound[i]) {
+                error(pendingLines.get(i), "remove", "Vehicle with ID " + id + " not found.");
+            } else {
+                ok(pendingLines.get(i), "remove", "id=" + id);
+            }
+        }
+        pendingRemoves.clear();
+        pendingLines.clear();
+    }
+
+    private void ok(int lineNumber, String command, String result) {
+        succeeded++;
+        results.append(Integer.toString(lineNumber)).append("\tOK\t").append(command).append('\t').append(result).append('\n');
+    }
+
+    private void error(int lineNumber, String command, String message) {
+        failed++;
+        results.append(Integer.toString(lineNumber)).append("\tERROR\t").append(command).append('\t')
+                .append(String.valueOf(message)).append('\n');
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean quiet = args.length > 0 && args[0].equals("--quiet");
+        String script = args.length > (quiet ? 1 : 0) ? args[quiet ? 1 : 0] : null;
+
+        PrintStream results = new PrintStream(new BufferedOutputStream(
+                new FileOutputStream(FileDescriptor.out), 1 << 16), false, StandardCharsets.UTF_8);
+        PrintStream chatter = quiet
+                ? new PrintStream(OutputStream.nullOutputStream())
+                : new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.err), 1 << 16),
+                        false, StandardCharsets.UTF_8);
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        System.setOut(chatter);
+        System.setErr(chatter);
+
+        BatchRunner runner = new BatchRunner(new FleetManager(), results);
+        long start = System.nanoTime();
+        try (Reader in = new InputStreamReader(script == null ? System.in : new FileInputStream(script),
+                StandardCharsets.UTF_8)) {
+            runner.run(in);
+        } finally {
+            chatter.flush();
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%d commands succeeded, %d failed in %.2f s\n",
+                runner.getSucceeded(), runner.getFailed(), seconds);
+        if (runner.getFailed() > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -1,26 +1,71 @@
 package ui;
 
 import exceptions.InvalidOperationException;
-import interfaces.*;
 import management.FleetManager;
+import management.FleetReportWriter;
+import management.RefuelPolicy;
+import registry.FieldKind;
+import registry.VehicleField;
+import registry.VehicleRecord;
+import registry.VehicleType;
+import registry.VehicleTypeRegistry;
 import vehicles.*;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.InputMismatchException;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 public class Main {
 
+    static final String DEFAULT_IMAGE = "my_fleet.img";
+
     private static final FleetManager fleetManager = new FleetManager();
     private static final Scanner scanner = new Scanner(System.in);
+    private static final FleetReportWriter infoWriter = new FleetReportWriter();
+    private static CompletableFuture<?> pendingSave = CompletableFuture.completedFuture(null);
 
+    /**
+     * Options:
+     * <ul>
+     *   <li>{@code --fast-start [image]} skips the demo and restores the fleet from a binary image.</li>
+     *   <li>{@code --write-image [image]} runs the demo and writes its fleet as an image, then exits.</li>
+     * </ul>
+     * See {@link StartupBenchmark} for measuring the difference.
+     */
     public static void main(String[] args) {
+        String option = args.length > 0 ? args[0] : "";
+        String image = args.length > 1 ? args[1] : DEFAULT_IMAGE;
         System.out.println("Welcome to the Transportation Fleet Management System!");
-        setupDemo();
+        if (option.equals("--fast-start")) {
+            restoreImage(image);
+        } else if (option.equals("--write-image")) {
+            setupDemo();
+            fleetManager.saveImage(image);
+            return;
+        } else {
+            setupDemo();
+        }
         runCLI();
         scanner.close();
     }
 
+    private static void restoreImage(String image) {
+        if (!new File(image).exists()) {
+            System.out.println("No fleet image at " + image + "; starting with an empty fleet.");
+            return;
+        }
+        try {
+            fleetManager.loadImage(image);
+            System.out.println("Fleet restored from " + image + ".");
+        } catch (IOException e) {
+            System.err.println("Error restoring fleet image: " + e.getMessage());
+        }
+    }
+
     private static void setupDemo() {
         System.out.println("\n--- Setting up a demonstration fleet... ---");
         try {
@@ -72,6 +117,8 @@ public class Main {
             }
             System.out.println();
         }
+        // Let a background save finish before the JVM exits.
+        pendingSave.exceptionally(error -> null).join();
         System.out.println("Thank you for using the Fleet Management System. Goodbye!");
     }
 
@@ -92,45 +139,28 @@ public class Main {
     }
 
     private static void handleAddVehicle() {
+        VehicleTypeRegistry registry = VehicleTypeRegistry.getDefault();
         try {
-            System.out.print("Enter vehicle type (Car, Truck, Bus, Airplane, CargoShip): ");
-            String type = scanner.nextLine();
-            System.out.print("Enter ID: ");
-            String id = scanner.nextLine();
-            System.out.print("Enter Model: ");
-            String model = scanner.nextLine();
-            System.out.print("Enter Max Speed (km/h): ");
-            double maxSpeed = scanner.nextDouble();
-            scanner.nextLine();
+            String typeNames = registry.getTypes().stream()
+                    .map(VehicleType::getName)
+                    .collect(Collectors.joining(", "));
+            System.out.print("Enter vehicle type (" + typeNames + "): ");
+            VehicleType<?> type = registry.find(scanner.nextLine());
+            if (type == null) {
+                System.out.println("Invalid vehicle type.");
+                return;
+            }
 
-            Vehicle vehicle;
-            switch (type.toLowerCase()) {
-                case "car":
-                    vehicle = new Car(id, model, maxSpeed);
-                    break;
-                case "truck":
-                    vehicle = new Truck(id, model, maxSpeed);
-                    break;
-                case "bus":
-                    vehicle = new Bus(id, model, maxSpeed);
-                    break;
-                case "airplane":
-                    System.out.print("Enter Max Altitude (ft): ");
-                    double maxAltitude = scanner.nextDouble();
-                    scanner.nextLine();
-                    vehicle = new Airplane(id, model, maxSpeed, maxAltitude);
-                    break;
-                case "cargoship":
-                    System.out.print("Does it have a sail? (true/false): ");
-                    boolean hasSail = scanner.nextBoolean();
-                    scanner.nextLine();
-                    vehicle = new CargoShip(id, model, maxSpeed, hasSail);
-                    break;
-                default:
-                    System.out.println("Invalid vehicle type.");
-                    return;
+            List<? extends VehicleField<?>> fields = type.getFields();
+            VehicleRecord record = new VehicleRecord(fields.size());
+            for (int i = 0; i < fields.size(); i++) {
+                VehicleField<?> field = fields.get(i);
+                if (field.getRole() == VehicleField.Role.CONFIG) {
+                    System.out.print(field.getLabel());
+                    readValue(field.getKind(), record, i);
+                }
             }
-            fleetManager.addVehicle(vehicle);
+            fleetManager.addVehicle(type.create(record));
         } catch (InputMismatchException e) {
             System.out.println("Invalid numeric input. Please try again.");
             scanner.nextLine();
@@ -139,6 +169,16 @@ public class Main {
         }
     }
 
+    private static void readValue(FieldKind kind, VehicleRecord record, int index) {
+        switch (kind) {
+            case STRING: record.setString(index, scanner.nextLine()); return;
+            case DOUBLE: record.setDouble(index, scanner.nextDouble()); break;
+            case INT: record.setInt(index, scanner.nextInt()); break;
+            default: record.setBoolean(index, scanner.nextBoolean()); break;
+        }
+        scanner.nextLine();
+    }
+
     private static void handleRemoveVehicle() {
         try {
             System.out.print("Enter the ID of the vehicle to remove: ");
@@ -163,19 +203,13 @@ public class Main {
 
     private static void handleRefuelAll() {
         try {
-            System.out.print("Enter amount of fuel to add (L): ");
+            System.out.print("Enter amount of fuel to add (L, 0 to fill every tank): ");
             double amount = scanner.nextDouble();
             scanner.nextLine();
 
-            List<Vehicle> fuelVehicles = fleetManager.searchByType(FuelConsumable.class);
-            for (Vehicle v : fuelVehicles) {
-                try {
-                    ((FuelConsumable) v).refuel(amount);
-                } catch (InvalidOperationException e) {
-                    System.err.printf("Could not refuel vehicle %s: %s\n", v.getId(), e.getMessage());
-                }
-            }
-            System.out.println("Refueling complete.");
+            RefuelPolicy policy = amount > 0 ? RefuelPolicy.fixedAmount(amount) : RefuelPolicy.topUp();
+            double dispensed = fleetManager.refuelAll(policy);
+            System.out.printf("Refueling complete. %.1f L dispensed.\n", dispensed);
         } catch (InputMismatchException e) {
             System.out.println("Invalid amount entered. Please enter a number.");
             scanner.nextLine();
@@ -183,36 +217,35 @@ public class Main {
     }
 
     private static void handleSaveFleet() {
-        fleetManager.saveToFile("my_fleet.csv");
+        pendingSave = fleetManager.saveAsync("my_fleet.csv").whenComplete((count, error) -> {
+            if (error == null) {
+                System.out.println("Fleet successfully saved to my_fleet.csv (" + count + " vehicles).");
+            } else {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                System.err.println("Error saving fleet to file: " + cause.getMessage());
+            }
+        });
+        System.out.println("Saving fleet to my_fleet.csv in the background...");
     }
 
     private static void handleLoadFleet() {
+        // Load what the last save wrote, not the file from before it.
+        pendingSave.exceptionally(error -> null).join();
         fleetManager.loadFromFile("my_fleet.csv");
     }
 
     private static void handleSearchByType() {
         System.out.print("Enter type to search for (e.g., Car, Truck, FuelConsumable): ");
         String typeStr = scanner.nextLine();
-        Class<?> typeClass;
-
-        switch(typeStr.toLowerCase()) {
-            case "car": typeClass = Car.class; break;
-            case "truck": typeClass = Truck.class; break;
-            case "bus": typeClass = Bus.class; break;
-            case "airplane": typeClass = Airplane.class; break;
-            case "cargoship": typeClass = CargoShip.class; break;
-            case "fuelconsumable": typeClass = FuelConsumable.class; break;
-            case "cargocarrier": typeClass = CargoCarrier.class; break;
-            case "passengercarrier": typeClass = PassengerCarrier.class; break;
-            case "maintainable": typeClass = Maintainable.class; break;
-            default:
-                System.out.println("Unknown or unsupported type for searching.");
-                return;
+        Class<?> typeClass = VehicleTypeRegistry.getDefault().resolveSearchType(typeStr);
+        if (typeClass == null) {
+            System.out.println("Unknown or unsupported type for searching.");
+            return;
         }
 
         List<Vehicle> results = fleetManager.searchByType(typeClass);
         System.out.printf("--- Found %d vehicle(s) of type %s ---\n", results.size(), typeStr);
-        results.forEach(Vehicle::displayInfo);
+        printInfo(results);
     }
 
     private static void handleListMaintenance() {
@@ -221,7 +254,15 @@ public class Main {
             System.out.println("No vehicles currently need maintenance.");
         } else {
             System.out.printf("--- %d vehicle(s) need maintenance ---\n", maintenanceList.size());
-            maintenanceList.forEach(Vehicle::displayInfo);
+            printInfo(maintenanceList);
+        }
+    }
+
+    private static void printInfo(List<Vehicle> vehicles) {
+        StringBuilder out = new StringBuilder();
+        for (Vehicle v : vehicles) {
+            infoWriter.appendInfo(out, v);
         }
+        System.out.print(out);
     }
 }
@@ -0,0 +1,155 @@
+package ui;
+
+import exceptions.InvalidOperationException;
+import exceptions.OverloadException;
+import interfaces.PassengerCarrier;
+import management.SeatReservationSystem;
+import vehicles.Airplane;
+import vehicles.Bus;
+import vehicles.Car;
+import vehicles.Vehicle;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures {@link SeatReservationSystem} throughput with many threads
+ * booking at once. Each thread repeatedly holds 1-4 seats on a random
+ * vehicle and then releases the hold (most bookings) or confirms it and
+ * lets the passengers off again, so the fleet never fills up for good.
+ * A run over few vehicles shows the cost of contention on the seat
+ * counters; one over many vehicles shows the uncontended rate.
+ * <p>
+ * After each run the free seats of every vehicle are checked against its
+ * capacity and passengers on board, so an oversold seat fails the run.
+ * <p>
+ * Run with {@code java -cp <classes> ui.SeatReservationBenchmark [seconds]
+ * [thread counts...]}; the defaults are 3 seconds per run and 1, 2, 4, 8
+ * and 16 threads, each over 16 and over 100,000 vehicles.
+ */
+public class SeatReservationBenchmark {
+
+    private static final int[] VEHICLE_COUNTS = { 16, 100_000 };
+    private static final int RUNS = 3;
+    // One booking in this many is confirmed and disembarked rather than released.
+    private static final int CONFIRM_EVERY = 8;
+
+    public static void main(String[] args) throws InterruptedException {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 3;
+        int[] threadCounts = args.length > 1
+                ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[] { 1, 2, 4, 8, 16 };
+
+        // Vehicles report boardings on standard out; that is not what is being measured.
+        PrintStream results = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            results.printf("Seat reservations per second, best of %d runs of %.1f s (%d processors):\n",
+                    RUNS, seconds, Runtime.getRuntime().availableProcessors());
+            results.printf("  %8s %10s %14s %14s\n", "threads", "vehicles", "bookings/s", "rejected/s");
+            for (int vehicles : VEHICLE_COUNTS) {
+                for (int threads : threadCounts) {
+                    double best = 0;
+                    double rejected = 0;
+                    for (int run = 0; run < RUNS; run++) {
+                        double[] rates = run(threads, vehicles, (long) (seconds * 1e9));
+                        if (rates[0] > best) {
+                            best = rates[0];
+                            rejected = rates[1];
+                        }
+                    }
+                    results.printf("  %8d %10d %14.0f %14.0f\n", threads, vehicles, best, rejected);
+                }
+            }
+        } finally {
+            System.setOut(results);
+        }
+    }
+
+    /** Returns completed and rejected bookings per second. */
+    private static double[] run(int threads, int vehicleCount, long durationNanos) throws InterruptedException {
+        List<Vehicle> vehicles = new ArrayList<>(vehicleCount);
+        for (int i = 0; i < vehicleCount; i++) {
+            switch (i % 3) {
+                case 0: vehicles.add(new Bus("B-" + i, "Bench Coach", 120)); break;
+                case 1: vehicles.add(new Airplane("A-" + i, "Bench Jet", 850, 35000)); break;
+                default: vehicles.add(new Car("C-" + i, "Bench Sedan", 160));
+            }
+        }
+        SeatReservationSystem system = new SeatReservationSystem(1, TimeUnit.MINUTES);
+        system.registerAll(vehicles);
+        String[] ids = vehicles.stream().map(Vehicle::getId).toArray(String[]::new);
+
+        LongAdder booked = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long[] deadline = new long[1];
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom random = new SplittableRandom(t);
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    long ok = 0;
+                    long full = 0;
+                    while (true) {
+                        // Checking the clock every 256 bookings keeps it out of the measurement.
+                        if ((ok + full & 0xFF) == 0 && System.nanoTime() > deadline[0]) {
+                            break;
+                        }
+                        String id = ids[random.nextInt(ids.length)];
+                        try {
+                            SeatReservationSystem.Hold hold = system.hold(id, 1 + random.nextInt(4));
+                            if (random.nextInt(CONFIRM_EVERY) == 0) {
+                                system.confirm(hold);
+                                system.disembark(id, hold.getSeats());
+                            } else {
+                                system.release(hold);
+                            }
+                            ok++;
+                        } catch (OverloadException e) {
+                            full++;
+                        }
+                    }
+                    booked.add(ok);
+                    rejected.add(full);
+                } catch (InterruptedException | InvalidOperationException e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    done.countDown();
+                }
+            }, "booking-" + t);
+            thread.start();
+        }
+        long begin = System.nanoTime();
+        deadline[0] = begin + durationNanos;
+        start.countDown();
+        done.await();
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+        verify(system, vehicles);
+        return new double[] { booked.sum() / elapsed, rejected.sum() / elapsed };
+    }
+
+    private static void verify(SeatReservationSystem system, List<Vehicle> vehicles) {
+        for (Vehicle vehicle : vehicles) {
+            PassengerCarrier carrier = (PassengerCarrier) vehicle;
+            try {
+                int free = system.getAvailableSeats(vehicle.getId());
+                if (free != carrier.getPassengerCapacity() - carrier.getCurrentPassengers()) {
+                    throw new IllegalStateException("Seat count of " + vehicle.getId() + " is off: " + free
+                            + " free, " + carrier.getCurrentPassengers() + " of " + carrier.getPassengerCapacity()
+                            + " on board.");
+                }
+            } catch (InvalidOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
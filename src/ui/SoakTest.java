@@ -0,0 +1,697 @@
+package ui;
+
+import exceptions.InsufficientFuelException;
+import exceptions.InvalidOperationException;
+import exceptions.OverloadException;
+import interfaces.CargoCarrier;
+import interfaces.FuelConsumable;
+import interfaces.Maintainable;
+import interfaces.PassengerCarrier;
+import management.FleetManager;
+import management.FleetSnapshot;
+import vehicles.*;
+
+import com.sun.management.GcInfo;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a {@link FleetManager} with a realistic mix of operations from
+ * many threads for a long time, to find where throughput, latency, heap or
+ * GC give out before production does.
+ * <p>
+ * Each worker draws its operations from its own random generator seeded
+ * from {@code --seed}, so the same seed replays the same sequence per
+ * thread; only the interleaving between threads varies. Operations are
+ * paced to a total target rate, and latency is measured from when an
+ * operation was due rather than when it started, so a stalled manager shows
+ * up as latency instead of silently lowering the rate. The fleet is saved
+ * every {@code --save-every} seconds alongside the workers.
+ * <p>
+ * Every {@code --interval} seconds a line with throughput, latency
+ * percentiles, heap and GC figures is printed and appended to the timeline
+ * file. At the end a summary with the configuration and per-operation
+ * results is written as sorted {@code key = value} lines, so two runs can
+ * be compared with a plain diff.
+ * <p>
+ * Usage: {@code java ui.SoakTest [--seed n] [--threads n] [--rate ops/s]
+ * [--duration s] [--vehicles n] [--interval s] [--save-every s]
+ * [--summary file] [--timeline file] [--fleet-file file]}. A rate of 0
+ * runs unthrottled.
+ */
+public class SoakTest {
+
+    enum Operation {
+        ADD(6), REMOVE(6), JOURNEY(30), REFUEL(16), CARGO(14), PASSENGERS(14), MAINTAIN(10), REPORT(4), SAVE(0);
+
+        final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final int TOTAL_WEIGHT = Arrays.stream(OPERATIONS).mapToInt(o -> o.weight).sum();
+    // Picks that skip vehicles lacking the needed capability before settling for any vehicle.
+    private static final int CAPABLE_PICK_ATTEMPTS = 8;
+    private static final int MAX_RECORDED_ERRORS = 10;
+
+    private final long seed;
+    private final int threads;
+    private final double rate;
+    private final long durationNanos;
+    private final int initialVehicles;
+    private final long intervalNanos;
+    private final long saveEveryNanos;
+    private final String fleetFile;
+
+    private final FleetManager fleetManager = new FleetManager();
+    private final List<Worker> workers = new ArrayList<>();
+    private final Recorder saves = new Recorder();
+    private final Histogram[] total = newHistograms();
+    private final long[][] totalOutcomes = new long[OPERATIONS.length][Outcome.values().length];
+    private final List<String> errors = new ArrayList<>();
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+
+    private volatile boolean running = true;
+    private long lastSampleNanos;
+    private long lastGcCount;
+    private long lastGcMillis;
+    private long peakHeapUsed;
+    private long firstLiveHeap = -1;
+    private long lastLiveHeap;
+    private long maxIntervalGcMillis;
+    private double minIntervalRate = Double.MAX_VALUE;
+
+    enum Outcome { OK, REJECTED, ERROR }
+
+    SoakTest(Map<String, String> options) {
+        this.seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        this.threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+        this.rate = Double.parseDouble(options.getOrDefault("rate", "2000"));
+        this.durationNanos = seconds(options.getOrDefault("duration", "60"));
+        this.initialVehicles = Integer.parseInt(options.getOrDefault("vehicles", "10000"));
+        this.intervalNanos = seconds(options.getOrDefault("interval", "10"));
+        this.saveEveryNanos = seconds(options.getOrDefault("save-every", "60"));
+        this.fleetFile = options.getOrDefault("fleet-file", "soak-fleet.csv");
+        if (threads <= 0 || rate < 0 || durationNanos <= 0 || intervalNanos <= 0 || initialVehicles < 0) {
+            throw new IllegalArgumentException("threads, duration and interval must be positive; rate and vehicles not negative.");
+        }
+    }
+
+    private static long seconds(String value) {
+        return (long) (Double.parseDouble(value) * 1e9);
+    }
+
+    /** Runs the soak and returns the summary lines. */
+    List<String> run(PrintStream progress, PrintWriter timeline) throws InterruptedException {
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom setup = root.split();
+        List<Vehicle> fleet = new ArrayList<>(initialVehicles);
+        for (int i = 0; i < initialVehicles; i++) {
+            fleet.add(newVehicle("I-" + i, setup));
+        }
+        fleetManager.replaceFleet(fleet);
+
+        timeline.println("seconds,ops_per_sec,p50_us,p99_us,p999_us,max_us,errors,fleet_size,"
+                + "heap_used_mb,live_heap_mb,gc_count,gc_ms");
+        progress.printf("Soak: seed %d, %d threads, target %s ops/s, %d s, %d vehicles\n",
+                seed, threads, rate == 0 ? "unthrottled" : String.format(Locale.ROOT, "%.0f", rate),
+                durationNanos / 1_000_000_000L, initialVehicles);
+
+        CountDownLatch done = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        lastSampleNanos = start;
+        lastGcCount = gcCount();
+        lastGcMillis = gcMillis();
+        for (int t = 0; t < threads; t++) {
+            Worker worker = new Worker(t, root.split(), start, done);
+            workers.add(worker);
+            Thread thread = new Thread(worker, "soak-worker-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "soak-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (saveEveryNanos > 0) {
+            scheduler.scheduleAtFixedRate(this::save, saveEveryNanos, saveEveryNanos, TimeUnit.NANOSECONDS);
+        }
+        long end = start + durationNanos;
+        long nextSample = start + intervalNanos;
+        while (true) {
+            long now = System.nanoTime();
+            long wake = Math.min(nextSample, end);
+            if (wake > now) {
+                Thread.sleep((wake - now) / 1_000_000, (int) ((wake - now) % 1_000_000));
+                continue;
+            }
+            if (now >= end) {
+                break;
+            }
+            sample(now - start, progress, timeline);
+            nextSample += intervalNanos;
+        }
+        running = false;
+        done.await();
+        scheduler.shutdown();
+        scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+        sample(elapsed, progress, timeline);
+        return summarize(elapsed);
+    }
+
+    private void save() {
+        long started = System.nanoTime();
+        Outcome outcome = Outcome.OK;
+        try {
+            fleetManager.writeCsv(fleetFile);
+        } catch (IOException | RuntimeException e) {
+            // A runtime exception escaping would also cancel every later save.
+            outcome = Outcome.ERROR;
+            saves.error(Operation.SAVE + ": " + e);
+        }
+        saves.record(Operation.SAVE, System.nanoTime() - started, outcome);
+    }
+
+    private void sample(long elapsed, PrintStream progress, PrintWriter timeline) {
+        Histogram interval = new Histogram();
+        long[][] outcomes = new long[OPERATIONS.length][Outcome.values().length];
+        for (Worker worker : workers) {
+            worker.recorder.drainInto(interval, total, outcomes, errors);
+        }
+        saves.drainInto(interval, total, outcomes, errors);
+        long errorCount = 0;
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            for (int o = 0; o < outcomes[op].length; o++) {
+                totalOutcomes[op][o] += outcomes[op][o];
+            }
+            errorCount += outcomes[op][Outcome.ERROR.ordinal()];
+        }
+
+        long now = System.nanoTime();
+        double seconds = (now - lastSampleNanos) / 1e9;
+        lastSampleNanos = now;
+        double opsPerSecond = interval.getCount() / seconds;
+        minIntervalRate = Math.min(minIntervalRate, opsPerSecond);
+
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        peakHeapUsed = Math.max(peakHeapUsed, heapUsed);
+        long liveHeap = liveHeapAfterGc();
+        if (liveHeap > 0) {
+            if (firstLiveHeap < 0) {
+                firstLiveHeap = liveHeap;
+            }
+            lastLiveHeap = liveHeap;
+        }
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        long intervalGcMillis = gcMillis - lastGcMillis;
+        maxIntervalGcMillis = Math.max(maxIntervalGcMillis, intervalGcMillis);
+
+        String line = String.format(Locale.ROOT, "%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%d,%d,%.1f,%.1f,%d,%d",
+                elapsed / 1e9, opsPerSecond, micros(interval.percentile(0.50)), micros(interval.percentile(0.99)),
+                micros(interval.percentile(0.999)), micros(interval.getMax()), errorCount,
+                fleetManager.snapshot().size(), megabytes(heapUsed), megabytes(liveHeap),
+                gcCount - lastGcCount, intervalGcMillis);
+        timeline.println(line);
+        timeline.flush();
+        progress.printf(Locale.ROOT, "%6.0f s  %8.1f ops/s  p50 %8.1f us  p99 %9.1f us  max %10.1f us  "
+                        + "errors %d  fleet %d  heap %.0f MB  gc %d (%d ms)\n",
+                elapsed / 1e9, opsPerSecond, micros(interval.percentile(0.50)), micros(interval.percentile(0.99)),
+                micros(interval.getMax()), errorCount, fleetManager.snapshot().size(), megabytes(heapUsed),
+                gcCount - lastGcCount, intervalGcMillis);
+        lastGcCount = gcCount;
+        lastGcMillis = gcMillis;
+    }
+
+    private List<String> summarize(long elapsed) {
+        Map<String, String> summary = new HashMap<>();
+        summary.put("config.seed", Long.toString(seed));
+        summary.put("config.threads", Integer.toString(threads));
+        summary.put("config.rate", format(rate));
+        summary.put("config.duration", format(durationNanos / 1e9));
+        summary.put("config.vehicles", Integer.toString(initialVehicles));
+        summary.put("config.interval", format(intervalNanos / 1e9));
+        summary.put("config.save_every", format(saveEveryNanos / 1e9));
+        Histogram all = new Histogram();
+        long ops = 0;
+        long errorCount = 0;
+        for (Operation op : OPERATIONS) {
+            Histogram h = total[op.ordinal()];
+            all.add(h);
+            long[] outcomes = totalOutcomes[op.ordinal()];
+            ops += h.getCount();
+            errorCount += outcomes[Outcome.ERROR.ordinal()];
+            String prefix = "op." + op.name().toLowerCase(Locale.ROOT) + ".";
+            summary.put(prefix + "count", Long.toString(h.getCount()));
+            summary.put(prefix + "ok", Long.toString(outcomes[Outcome.OK.ordinal()]));
+            summary.put(prefix + "rejected", Long.toString(outcomes[Outcome.REJECTED.ordinal()]));
+            summary.put(prefix + "errors", Long.toString(outcomes[Outcome.ERROR.ordinal()]));
+            putLatencies(summary, prefix, h);
+        }
+        double seconds = elapsed / 1e9;
+        double achieved = ops / seconds;
+        summary.put("run.seconds", format(seconds));
+        summary.put("run.operations", Long.toString(ops));
+        summary.put("run.errors", Long.toString(errorCount));
+        summary.put("run.ops_per_sec", format(achieved));
+        summary.put("run.min_interval_ops_per_sec", format(minIntervalRate == Double.MAX_VALUE ? 0 : minIntervalRate));
+        // Below 95% of the target the manager could not keep up; the latencies then include the backlog.
+        summary.put("run.target_sustained", rate == 0 ? "unthrottled" : Boolean.toString(achieved >= 0.95 * rate));
+        summary.put("run.fleet_size_start", Integer.toString(initialVehicles));
+        summary.put("run.fleet_size_end", Integer.toString(fleetManager.snapshot().size()));
+        putLatencies(summary, "all.", all);
+        summary.put("heap.peak_used_mb", format(megabytes(peakHeapUsed)));
+        summary.put("heap.live_after_gc_first_mb", format(megabytes(Math.max(0, firstLiveHeap))));
+        summary.put("heap.live_after_gc_last_mb", format(megabytes(lastLiveHeap)));
+        summary.put("heap.max_mb", format(megabytes(Runtime.getRuntime().maxMemory())));
+        summary.put("gc.collections", Long.toString(gcCount()));
+        summary.put("gc.total_ms", Long.toString(gcMillis()));
+        summary.put("gc.percent_of_wall", format(100.0 * gcMillis() / (elapsed / 1e6)));
+        summary.put("gc.max_interval_ms", Long.toString(maxIntervalGcMillis));
+        for (int i = 0; i < errors.size(); i++) {
+            summary.put(String.format("errors.%02d", i), errors.get(i));
+        }
+
+        List<String> lines = new ArrayList<>();
+        summary.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> lines.add(e.getKey() + " = " + e.getValue()));
+        return lines;
+    }
+
+    private static void putLatencies(Map<String, String> summary, String prefix, Histogram h) {
+        summary.put(prefix + "p50_us", format(micros(h.percentile(0.50))));
+        summary.put(prefix + "p90_us", format(micros(h.percentile(0.90))));
+        summary.put(prefix + "p99_us", format(micros(h.percentile(0.99))));
+        summary.put(prefix + "p999_us", format(micros(h.percentile(0.999))));
+        summary.put(prefix + "max_us", format(micros(h.getMax())));
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1e3;
+    }
+
+    private static double megabytes(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+
+    private long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : collectors) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : collectors) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * Heap in use right after the most recent collection, or 0 before the
+     * first one or on a runtime without GC details. Growth of this over a
+     * run points at a leak; plain heap usage mostly shows allocation rate.
+     */
+    private long liveHeapAfterGc() {
+        GcInfo latest = null;
+        for (GarbageCollectorMXBean gc : collectors) {
+            if (gc instanceof com.sun.management.GarbageCollectorMXBean) {
+                GcInfo info = ((com.sun.management.GarbageCollectorMXBean) gc).getLastGcInfo();
+                if (info != null && (latest == null || info.getEndTime() > latest.getEndTime())) {
+                    latest = info;
+                }
+            }
+        }
+        if (latest == null) {
+            return 0;
+        }
+        long live = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage usage = pool.getType() == MemoryType.HEAP ? latest.getMemoryUsageAfterGc().get(pool.getName()) : null;
+            if (usage != null) {
+                live += usage.getUsed();
+            }
+        }
+        return live;
+    }
+
+    private static Vehicle newVehicle(String id, SplittableRandom random) {
+        Vehicle vehicle;
+        switch (random.nextInt(5)) {
+            case 0:
+                vehicle = new Car(id, "Soak Sedan", 160 + random.nextInt(60));
+                break;
+            case 1:
+                vehicle = new Truck(id, "Soak Hauler", 110 + random.nextInt(40));
+                break;
+            case 2:
+                vehicle = new Bus(id, "Soak Coach", 120 + random.nextInt(40));
+                break;
+            case 3:
+                vehicle = new Airplane(id, "Soak Jet", 800 + random.nextInt(150), 35000);
+                break;
+            default:
+                vehicle = new CargoShip(id, "Soak Carrier", 30 + random.nextInt(20), random.nextBoolean());
+        }
+        if (vehicle instanceof FuelConsumable) {
+            FuelConsumable fuel = (FuelConsumable) vehicle;
+            try {
+                fuel.refuel(fuel.getFuelCapacity() * (0.2 + 0.8 * random.nextDouble()));
+            } catch (InvalidOperationException e) {
+                // Sailing ships take no fuel.
+            }
+        }
+        return vehicle;
+    }
+
+    private static Histogram[] newHistograms() {
+        Histogram[] histograms = new Histogram[OPERATIONS.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+        return histograms;
+    }
+
+    private final class Worker implements Runnable {
+
+        private final int index;
+        private final long start;
+        private final CountDownLatch done;
+        private final Recorder recorder = new Recorder();
+        private final SplittableRandom random;
+        private long added;
+
+        Worker(int index, SplittableRandom random, long start, CountDownLatch done) {
+            this.index = index;
+            this.random = random;
+            this.start = start;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            try {
+                // Each worker owns an equal share of the rate, staggered so they do not fire together.
+                long period = rate == 0 ? 0 : (long) (threads * 1e9 / rate);
+                long due = start + period * index / threads;
+                while (running) {
+                    if (period > 0) {
+                        long wait = due - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                            continue;
+                        }
+                    } else {
+                        due = System.nanoTime();
+                    }
+                    Operation op = fleetManager.snapshot().isEmpty() ? Operation.ADD : nextOperation();
+                    Outcome outcome;
+                    try {
+                        perform(op);
+                        outcome = Outcome.OK;
+                    } catch (InsufficientFuelException | OverloadException | InvalidOperationException e) {
+                        outcome = Outcome.REJECTED;
+                    } catch (RuntimeException e) {
+                        outcome = Outcome.ERROR;
+                        recorder.error(op + ": " + e);
+                    }
+                    recorder.record(op, System.nanoTime() - due, outcome);
+                    due += period;
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private Operation nextOperation() {
+            int pick = random.nextInt(TOTAL_WEIGHT);
+            for (Operation op : OPERATIONS) {
+                pick -= op.weight;
+                if (pick < 0) {
+                    return op;
+                }
+            }
+            throw new IllegalStateException();
+        }
+
+        private void perform(Operation op) throws InsufficientFuelException, OverloadException, InvalidOperationException {
+            FleetSnapshot fleet = fleetManager.snapshot();
+            switch (op) {
+                case ADD:
+                    fleetManager.addVehicle(newVehicle("W" + index + "-" + added++, random));
+                    break;
+                case REMOVE:
+                    fleetManager.removeVehicle(pick(fleet, Vehicle.class).getId());
+                    break;
+                case JOURNEY:
+                    pick(fleet, Vehicle.class).move(10 + random.nextDouble() * 490);
+                    break;
+                case REFUEL: {
+                    FuelConsumable fuel = pick(fleet, FuelConsumable.class);
+                    fuel.refuel(Math.max(1, (fuel.getFuelCapacity() - fuel.getFuelLevel()) * random.nextDouble()));
+                    break;
+                }
+                case CARGO: {
+                    CargoCarrier carrier = pick(fleet, CargoCarrier.class);
+                    double weight = carrier.getCargoCapacity() * 0.3 * random.nextDouble() + 1;
+                    if (random.nextBoolean()) {
+                        carrier.loadCargo(weight);
+                    } else {
+                        carrier.unloadCargo(weight);
+                    }
+                    break;
+                }
+                case PASSENGERS: {
+                    PassengerCarrier carrier = pick(fleet, PassengerCarrier.class);
+                    int count = 1 + random.nextInt(Math.max(1, carrier.getPassengerCapacity() / 3));
+                    if (random.nextBoolean()) {
+                        carrier.boardPassengers(count);
+                    } else {
+                        carrier.disembarkPassengers(count);
+                    }
+                    break;
+                }
+                case MAINTAIN: {
+                    Maintainable maintainable = pick(fleet, Maintainable.class);
+                    if (maintainable.needsMaintenance()) {
+                        maintainable.performMaintenance();
+                    } else {
+                        maintainable.scheduleMaintenance();
+                    }
+                    break;
+                }
+                case REPORT:
+                    fleetManager.generateReport(fleet);
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected operation " + op);
+            }
+        }
+
+        /** A random vehicle of the given capability; throws InvalidOperationException if none turns up. */
+        private <T> T pick(FleetSnapshot fleet, Class<T> capability) throws InvalidOperationException {
+            for (int attempt = 0; attempt < CAPABLE_PICK_ATTEMPTS && !fleet.isEmpty(); attempt++) {
+                Vehicle vehicle = fleet.get(random.nextInt(fleet.size()));
+                if (capability.isInstance(vehicle)) {
+                    return capability.cast(vehicle);
+                }
+            }
+            throw new InvalidOperationException("No " + capability.getSimpleName() + " found.");
+        }
+    }
+
+    /**
+     * Latencies and outcomes of one thread since the last sample. The lock
+     * is only ever contended by the sampler, once per interval.
+     */
+    private static final class Recorder {
+
+        private final Histogram[] histograms = newHistograms();
+        private final long[][] outcomes = new long[OPERATIONS.length][Outcome.values().length];
+        private final List<String> errors = new ArrayList<>();
+
+        synchronized void record(Operation op, long nanos, Outcome outcome) {
+            histograms[op.ordinal()].record(nanos);
+            outcomes[op.ordinal()][outcome.ordinal()]++;
+        }
+
+        synchronized void error(String message) {
+            if (errors.size() < MAX_RECORDED_ERRORS) {
+                errors.add(message);
+            }
+        }
+
+        synchronized void drainInto(Histogram interval, Histogram[] total, long[][] intervalOutcomes,
+                                    List<String> allErrors) {
+            for (int op = 0; op < histograms.length; op++) {
+                interval.add(histograms[op]);
+                total[op].add(histograms[op]);
+                histograms[op].reset();
+                for (int o = 0; o < outcomes[op].length; o++) {
+                    intervalOutcomes[op][o] += outcomes[op][o];
+                    outcomes[op][o] = 0;
+                }
+            }
+            for (String error : errors) {
+                if (allErrors.size() < MAX_RECORDED_ERRORS) {
+                    allErrors.add(error);
+                }
+            }
+            errors.clear();
+        }
+    }
+
+    /**
+     * Log-linear latency histogram: 32 linear sub-buckets per power of two,
+     * so percentiles are within about 3% of the recorded values.
+     */
+    static final class Histogram {
+
+        private static final int SUB_BITS = 5;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+        private final long[] counts = new long[(64 - SUB_BITS + 1) * SUB_BUCKETS];
+        private long count;
+        private long max;
+
+        void record(long nanos) {
+            long value = Math.max(0, nanos);
+            counts[index(value)]++;
+            count++;
+            max = Math.max(max, value);
+        }
+
+        void add(Histogram other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            count += other.count;
+            max = Math.max(max, other.max);
+        }
+
+        void reset() {
+            Arrays.fill(counts, 0);
+            count = 0;
+            max = 0;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        long getMax() {
+            return max;
+        }
+
+        /** The upper bound of the bucket holding the given quantile, capped at the maximum. */
+        long percentile(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && counts[i] > 0) {
+                    return Math.min(max, upperBound(i));
+                }
+            }
+            return max;
+        }
+
+        private static int index(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        private static long upperBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+            long sub = index % SUB_BUCKETS;
+            return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                System.err.println("Usage: java ui.SoakTest [--seed n] [--threads n] [--rate ops/s] [--duration s] "
+                        + "[--vehicles n] [--interval s] [--save-every s] [--summary file] [--timeline file] "
+                        + "[--fleet-file file]");
+                System.exit(2);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        String summaryFile = options.getOrDefault("summary", "soak-summary.txt");
+        String timelineFile = options.getOrDefault("timeline", "soak-timeline.csv");
+
+        // The fleet manager and vehicles report every operation; that goes nowhere during the soak.
+        PrintStream progress = System.out;
+        PrintStream originalErr = System.err;
+        PrintStream chatter = new PrintStream(OutputStream.nullOutputStream());
+        List<String> summary;
+        try (PrintWriter timeline = new PrintWriter(new FileOutputStream(timelineFile), false, StandardCharsets.UTF_8)) {
+            SoakTest soak = new SoakTest(options);
+            System.setOut(chatter);
+            System.setErr(chatter);
+            try {
+                summary = soak.run(progress, timeline);
+            } finally {
+                System.setOut(progress);
+                System.setErr(originalErr);
+            }
+        }
+        try (PrintWriter out = new PrintWriter(new FileOutputStream(summaryFile), false, StandardCharsets.UTF_8)) {
+            for (String line : summary) {
+                out.println(line);
+            }
+        }
+        System.out.println("\n--- Soak summary (" + summaryFile + ") ---");
+        for (String line : summary) {
+            System.out.println(line);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package ui;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Measures time-to-first-command of {@link Main}: the wall time from
+ * launching a JVM until the menu is on screen. Three launches are compared:
+ * the normal one with the demo, {@code --fast-start} from a fleet image, and
+ * {@code --fast-start} with an AppCDS archive of the classes it loads.
+ * <p>
+ * Run with {@code java -cp <classes> ui.StartupBenchmark [runs]} from the
+ * directory the application runs in. The fleet image ({@value Main#DEFAULT_IMAGE})
+ * and the archive ({@value #ARCHIVE}) are created there first if missing, the
+ * same way a build would: {@code ui.Main --write-image}, then one training
+ * run with {@code -XX:ArchiveClassesAtExit}. Class data sharing only works
+ * for classes loaded from JARs, so a class directory on the class path is
+ * packed into {@value #JAR} first and all three launches use that.
+ */
+public class StartupBenchmark {
+
+    static final String ARCHIVE = "fleet.jsa";
+    static final String JAR = "fleet-app.jar";
+
+    private static final String MENU_READY = "11. Exit";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        String java = ProcessHandle.current().info().command().orElse("java");
+        String classPath = System.getProperty("java.class.path");
+        if (new File(classPath).isDirectory()) {
+            packJar(Paths.get(classPath), Paths.get(JAR));
+            classPath = JAR;
+        }
+
+        if (!new File(Main.DEFAULT_IMAGE).exists()) {
+            launch(Arrays.asList(java, "-cp", classPath, "ui.Main", "--write-image"));
+        }
+        if (!new File(ARCHIVE).exists()) {
+            launch(Arrays.asList(java, "-XX:ArchiveClassesAtExit=" + ARCHIVE, "-cp", classPath,
+                    "ui.Main", "--fast-start"));
+        }
+
+        System.out.printf("Time to first command over %d runs (median / best):\n", runs);
+        measure("normal", runs, Arrays.asList(java, "-cp", classPath, "ui.Main"));
+        measure("--fast-start", runs, Arrays.asList(java, "-cp", classPath, "ui.Main", "--fast-start"));
+        measure("--fast-start + AppCDS", runs, Arrays.asList(java, "-XX:SharedArchiveFile=" + ARCHIVE,
+                "-cp", classPath, "ui.Main", "--fast-start"));
+    }
+
+    private static void packJar(Path classes, Path jar) throws IOException {
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar));
+             Stream<Path> files = Files.walk(classes)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                out.putNextEntry(new JarEntry(classes.relativize(file).toString().replace(File.separatorChar, '/')));
+                Files.copy(file, out);
+                out.closeEntry();
+            }
+        }
+    }
+
+    private static void measure(String label, int runs, List<String> command) throws IOException, InterruptedException {
+        long[] millis = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            millis[i] = launch(command);
+        }
+        Arrays.sort(millis);
+        System.out.printf("  %-22s %5d ms / %5d ms\n", label, millis[runs / 2], millis[0]);
+    }
+
+    /** Starts the command, waits for the menu, exits the application and returns the time to the menu. */
+    private static long launch(List<String> command) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(new ArrayList<>(command))
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        InputStream out = process.getInputStream();
+        StringBuilder seen = new StringBuilder();
+        long elapsed = -1;
+        int c;
+        while ((c = out.read()) >= 0) {
+            seen.append((char) c);
+            if (c == '\n' && seen.indexOf(MENU_READY) >= 0) {
+                elapsed = (System.nanoTime() - start) / 1_000_000;
+                break;
+            }
+            if (c == '\n') {
+                seen.setLength(0);
+            }
+        }
+        try (OutputStream in = process.getOutputStream()) {
+            in.write("11\n".getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // Already exited, e.g. --write-image.
+        }
+        out.transferTo(OutputStream.nullOutputStream());
+        process.waitFor();
+        return elapsed;
+    }
+}
@@ -11,6 +11,7 @@ import interfaces.PassengerCarrier;
 public class Airplane extends AirVehicle implements FuelConsumable, PassengerCarrier, CargoCarrier, Maintainable {
 
     private double fuelLevel;
+    private final double fuelCapacity = 200000.0;
     private final int passengerCapacity = 200;
     private int currentPassengers;
     private final double cargoCapacity = 10000.0;
@@ -27,7 +28,22 @@ public class Airplane extends AirVehicle implements FuelConsumable, PassengerCar
 
     @Override
     public double calculateFuelEfficiency() {
-        return 5.0;
+        return modelEfficiency();
+    }
+
+    @Override
+    public double estimateFuelEfficiency(int passengers, double cargo) {
+        return modelEfficiency(loadRatio(passengers, cargo));
+    }
+
+    @Override
+    protected double getLoadRatio() {
+        return loadRatio(currentPassengers, currentCargo);
+    }
+
+    /** Passengers and cargo count equally towards the load. */
+    private double loadRatio(int passengers, double cargo) {
+        return ((double) passengers / passengerCapacity + cargo / cargoCapacity) / 2;
     }
 
     @Override
@@ -45,11 +61,19 @@ public class Airplane extends AirVehicle implements FuelConsumable, PassengerCar
     }
 
     @Override
-    public String toCsvString() {
-        return String.format("Airplane,%s,%s,%.1f,%.1f,%.1f,%d,%d,%.1f,%.1f",
-                getId(), getModel(), getMaxSpeed(), getMaxAltitude(),
-                getFuelLevel(), getPassengerCapacity(), getCurrentPassengers(),
-                getCargoCapacity(), getCurrentCargo());
+    public synchronized VehicleState captureState() {
+        return new VehicleState(getCurrentMileage(), fuelLevel, currentCargo, currentPassengers, maintenanceNeeded);
+    }
+
+    @Override
+    public synchronized void restoreState(VehicleState state) {
+        super.restoreState(state);
+        this.fuelLevel = state.getFuelLevel();
+        double before = getLoadRatio();
+        this.currentCargo = state.getCurrentCargo();
+        this.currentPassengers = state.getCurrentPassengers();
+        loadChanged(before);
+        this.maintenanceNeeded = state.isMaintenanceNeeded();
     }
 
     @Override
@@ -63,6 +87,9 @@ public class Airplane extends AirVehicle implements FuelConsumable, PassengerCar
     @Override
     public double getFuelLevel() { return this.fuelLevel; }
 
+    @Override
+    public double getFuelCapacity() { return this.fuelCapacity; }
+
     @Override
     public double consumeFuel(double distance) throws InsufficientFuelException {
         double consumed = distance / calculateFuelEfficiency();
@@ -74,33 +101,39 @@ public class Airplane extends AirVehicle implements FuelConsumable, PassengerCar
     }
 
     @Override
-    public void boardPassengers(int count) throws OverloadException {
+    public synchronized void boardPassengers(int count) throws OverloadException {
         if (currentPassengers + count > passengerCapacity) {
             throw new OverloadException("Passenger capacity exceeded.");
         }
+        double before = getLoadRatio();
         this.currentPassengers += count;
+        loadChanged(before);
     }
 
     @Override
-    public void disembarkPassengers(int count) throws InvalidOperationException {
+    public synchronized void disembarkPassengers(int count) throws InvalidOperationException {
         if (count > currentPassengers) {
             throw new InvalidOperationException("Cannot disembark more passengers than are on board.");
         }
+        double before = getLoadRatio();
         this.currentPassengers -= count;
+        loadChanged(before);
     }
 
     @Override
     public int getPassengerCapacity() { return this.passengerCapacity; }
 
     @Override
-    public int getCurrentPassengers() { return this.currentPassengers; }
+    public synchronized int getCurrentPassengers() { return this.currentPassengers; }
 
     @Override
     public void loadCargo(double weight) throws OverloadException {
         if (currentCargo + weight > cargoCapacity) {
             throw new OverloadException("Cargo capacity exceeded.");
         }
+        double before = getLoadRatio();
         this.currentCargo += weight;
+        loadChanged(before);
     }
 
     @Override
@@ -108,7 +141,9 @@ public class Airplane extends AirVehicle implements FuelConsumable, PassengerCar
         if (weight > currentCargo) {
             throw new InvalidOperationException("Cannot unload more cargo than is loaded.");
         }
+        double before = getLoadRatio();
         this.currentCargo -= weight;
+        loadChanged(before);
     }
 
     @Override
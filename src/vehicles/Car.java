@@ -10,6 +10,7 @@ import interfaces.PassengerCarrier;
 public class Car extends LandVehicle implements FuelConsumable, PassengerCarrier, Maintainable {
 
     private double fuelLevel;
+    private final double fuelCapacity = 60.0;
     private final int passengerCapacity = 5;
     private int currentPassengers;
     private boolean maintenanceNeeded;
@@ -23,7 +24,21 @@ public class Car extends LandVehicle implements FuelConsumable, PassengerCarrier
 
     @Override
     public double calculateFuelEfficiency() {
-        return 15.0;
+        return modelEfficiency();
+    }
+
+    @Override
+    public double estimateFuelEfficiency(int passengers, double cargo) {
+        return modelEfficiency(loadRatio(passengers));
+    }
+
+    @Override
+    protected double getLoadRatio() {
+        return loadRatio(currentPassengers);
+    }
+
+    private double loadRatio(int passengers) {
+        return (double) passengers / passengerCapacity;
     }
 
     @Override
@@ -41,10 +56,18 @@ public class Car extends LandVehicle implements FuelConsumable, PassengerCarrier
     }
 
     @Override
-    public String toCsvString() {
-        return String.format("Car,%s,%s,%.1f,%d,%.1f,%d,%d",
-                getId(), getModel(), getMaxSpeed(), getNumWheels(),
-                getFuelLevel(), getPassengerCapacity(), getCurrentPassengers());
+    public synchronized VehicleState captureState() {
+        return new VehicleState(getCurrentMileage(), fuelLevel, 0, currentPassengers, maintenanceNeeded);
+    }
+
+    @Override
+    public synchronized void restoreState(VehicleState state) {
+        super.restoreState(state);
+        this.fuelLevel = state.getFuelLevel();
+        double before = getLoadRatio();
+        this.currentPassengers = state.getCurrentPassengers();
+        loadChanged(before);
+        this.maintenanceNeeded = state.isMaintenanceNeeded();
     }
 
     @Override
@@ -61,6 +84,11 @@ public class Car extends LandVehicle implements FuelConsumable, PassengerCarrier
         return this.fuelLevel;
     }
 
+    @Override
+    public double getFuelCapacity() {
+        return this.fuelCapacity;
+    }
+
     @Override
     public double consumeFuel(double distance) throws InsufficientFuelException {
         double consumed = distance / calculateFuelEfficiency();
@@ -72,19 +100,23 @@ public class Car extends LandVehicle implements FuelConsumable, PassengerCarrier
     }
 
     @Override
-    public void boardPassengers(int count) throws OverloadException {
+    public synchronized void boardPassengers(int count) throws OverloadException {
         if (currentPassengers + count > passengerCapacity) {
             throw new OverloadException("Passenger capacity exceeded.");
         }
+        double before = getLoadRatio();
         this.currentPassengers += count;
+        loadChanged(before);
     }
 
     @Override
-    public void disembarkPassengers(int count) throws InvalidOperationException {
+    public synchronized void disembarkPassengers(int count) throws InvalidOperationException {
         if (count > currentPassengers) {
             throw new InvalidOperationException("Cannot disembark more passengers than are on board.");
         }
+        double before = getLoadRatio();
         this.currentPassengers -= count;
+        loadChanged(before);
     }
 
     @Override
@@ -93,7 +125,7 @@ public class Car extends LandVehicle implements FuelConsumable, PassengerCarrier
     }
 
     @Override
-    public int getCurrentPassengers() {
+    public synchronized int getCurrentPassengers() {
         return this.currentPassengers;
     }
 
@@ -13,6 +13,7 @@ public class CargoShip extends WaterVehicle implements CargoCarrier, Maintainabl
     private double currentCargo;
     private boolean maintenanceNeeded;
     private double fuelLevel;
+    private final double fuelCapacity = 50000.0;
 
     public CargoShip(String id, String model, double maxSpeed, boolean hasSail) {
         super(id, model, maxSpeed, hasSail);
@@ -23,7 +24,21 @@ public class CargoShip extends WaterVehicle implements CargoCarrier, Maintainabl
 
     @Override
     public double calculateFuelEfficiency() {
-        return hasSail() ? 0 : 4.0;
+        return hasSail() ? 0 : modelEfficiency();
+    }
+
+    @Override
+    public double estimateFuelEfficiency(int passengers, double cargo) {
+        return hasSail() ? 0 : modelEfficiency(loadRatio(cargo));
+    }
+
+    @Override
+    protected double getLoadRatio() {
+        return loadRatio(currentCargo);
+    }
+
+    private double loadRatio(double cargo) {
+        return cargo / cargoCapacity;
     }
 
     @Override
@@ -43,10 +58,18 @@ public class CargoShip extends WaterVehicle implements CargoCarrier, Maintainabl
     }
 
     @Override
-    public String toCsvString() {
-        return String.format("CargoShip,%s,%s,%.1f,%b,%.1f,%.1f",
-                getId(), getModel(), getMaxSpeed(), hasSail(),
-                getCargoCapacity(), getCurrentCargo());
+    public VehicleState captureState() {
+        return new VehicleState(getCurrentMileage(), fuelLevel, currentCargo, 0, maintenanceNeeded);
+    }
+
+    @Override
+    public void restoreState(VehicleState state) {
+        super.restoreState(state);
+        this.fuelLevel = state.getFuelLevel();
+        double before = getLoadRatio();
+        this.currentCargo = state.getCurrentCargo();
+        loadChanged(before);
+        this.maintenanceNeeded = state.isMaintenanceNeeded();
     }
 
     @Override
@@ -65,6 +88,11 @@ public class CargoShip extends WaterVehicle implements CargoCarrier, Maintainabl
         return this.fuelLevel;
     }
 
+    @Override
+    public double getFuelCapacity() {
+        return hasSail() ? 0 : this.fuelCapacity;
+    }
+
     @Override
     public double consumeFuel(double distance) throws InsufficientFuelException {
         if (hasSail()) {
@@ -83,7 +111,9 @@ public class CargoShip extends WaterVehicle implements CargoCarrier, Maintainabl
         if (currentCargo + weight > cargoCapacity) {
             throw new OverloadException("Cargo capacity exceeded.");
         }
+        double before = getLoadRatio();
         this.currentCargo += weight;
+        loadChanged(before);
     }
 
     @Override
@@ -91,7 +121,9 @@ public class CargoShip extends WaterVehicle implements CargoCarrier, Maintainabl
         if (weight > currentCargo) {
             throw new InvalidOperationException("Cannot unload more cargo than is loaded.");
         }
+        double before = getLoadRatio();
         this.currentCargo -= weight;
+        loadChanged(before);
     }
 
     @Override
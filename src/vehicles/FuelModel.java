@@ -0,0 +1,135 @@
+package vehicles;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Fuel efficiency (km/l) as a function of how loaded a vehicle is and how
+ * fast it cruises relative to its top speed. A model is built from two
+ * curves, one over the load ratio and one over the speed ratio, which are
+ * sampled once into lookup tables; evaluating the model is then two table
+ * reads and a multiplication, with no branches on the input.
+ * <p>
+ * Load ratios run from 0 (empty) to 1 (full) in {@value #LOAD_STEPS} steps.
+ * Step {@code i} covers ratios in {@code ((i-1)/n, i/n]} and uses the curve
+ * at {@code i/n}, so a step in the curve at a multiple of {@code 1/n} (such
+ * as a truck's heavy-load penalty above half load) is reproduced exactly.
+ * Speed ratios run from 0 to {@value #MAX_SPEED_RATIO} and are rounded to
+ * the nearest of {@value #SPEED_STEPS} steps. The speed table is normalised
+ * to 1 at the design cruise ratio, so a vehicle at its design cruise speed
+ * gets exactly the load curve's efficiency.
+ * <p>
+ * Every vehicle class has a default model ({@link #forType(Class)}), which
+ * can be replaced with {@link #setDefault(Class, FuelModel)} for vehicles
+ * created afterwards, or per vehicle with {@link Vehicle#setFuelModel(FuelModel)}.
+ */
+public final class FuelModel {
+
+    public static final int LOAD_STEPS = 64;
+    public static final int SPEED_STEPS = 96;
+    public static final double MAX_SPEED_RATIO = 1.5;
+
+    private static final double SPEED_SCALE = SPEED_STEPS / MAX_SPEED_RATIO;
+
+    private static final Map<Class<?>, FuelModel> defaults = new ConcurrentHashMap<>();
+
+    static {
+        defaults.put(Car.class, of(polynomial(15.0, -1.5), cruiseCurve(0.5, 1.2), 0.5));
+        defaults.put(Truck.class, of(step(0.5, 8.0, 8.0 * 0.90), cruiseCurve(0.6, 1.0), 0.6));
+        defaults.put(Bus.class, of(polynomial(10.0, -1.5), cruiseCurve(0.55, 1.0), 0.55));
+        defaults.put(Airplane.class, of(polynomial(5.0, -0.6), cruiseCurve(0.85, 2.0), 0.85));
+        defaults.put(CargoShip.class, of(polynomial(4.0, -0.8, 0.2), cruiseCurve(0.6, 1.5), 0.6));
+    }
+
+    private final double[] loadTable = new double[LOAD_STEPS + 1];
+    private final double[] speedTable = new double[SPEED_STEPS + 1];
+    private final double designCruiseRatio;
+
+    private FuelModel(DoubleUnaryOperator loadCurve, DoubleUnaryOperator speedCurve, double designCruiseRatio) {
+        if (!(designCruiseRatio > 0 && designCruiseRatio <= MAX_SPEED_RATIO)) {
+            throw new IllegalArgumentException("Design cruise ratio must be in (0, " + MAX_SPEED_RATIO + "].");
+        }
+        this.designCruiseRatio = designCruiseRatio;
+        for (int i = 0; i <= LOAD_STEPS; i++) {
+            loadTable[i] = Math.max(0, loadCurve.applyAsDouble((double) i / LOAD_STEPS));
+        }
+        double design = speedCurve.applyAsDouble(speedIndex(designCruiseRatio) / SPEED_SCALE);
+        if (!(design > 0)) {
+            throw new IllegalArgumentException("Speed curve must be positive at the design cruise ratio.");
+        }
+        for (int i = 0; i <= SPEED_STEPS; i++) {
+            speedTable[i] = Math.max(0, speedCurve.applyAsDouble(i / SPEED_SCALE) / design);
+        }
+    }
+
+    /**
+     * Builds a model from a load curve giving km/l at each load ratio and a
+     * speed curve giving a relative factor at each speed ratio.
+     */
+    public static FuelModel of(DoubleUnaryOperator loadCurve, DoubleUnaryOperator speedCurve, double designCruiseRatio) {
+        return new FuelModel(loadCurve, speedCurve, designCruiseRatio);
+    }
+
+    /** A model that ignores load and speed, like the old fixed efficiencies. */
+    public static FuelModel constant(double efficiency) {
+        return new FuelModel(r -> efficiency, s -> 1.0, 1.0);
+    }
+
+    /** c0 + c1 x + c2 x^2 + ... */
+    public static DoubleUnaryOperator polynomial(double... coefficients) {
+        double[] c = coefficients.clone();
+        return x -> {
+            double y = 0;
+            for (int i = c.length - 1; i >= 0; i--) {
+                y = y * x + c[i];
+            }
+            return y;
+        };
+    }
+
+    /** {@code below} up to and including the threshold, {@code above} beyond it. */
+    public static DoubleUnaryOperator step(double threshold, double below, double above) {
+        return x -> x > threshold ? above : below;
+    }
+
+    /**
+     * A parabola peaking at 1 at the optimum ratio and falling off with the
+     * given curvature on either side, never below a quarter.
+     */
+    public static DoubleUnaryOperator cruiseCurve(double optimum, double curvature) {
+        return s -> Math.max(0.25, 1 - curvature * (s - optimum) * (s - optimum));
+    }
+
+    /** The default model for a vehicle class, inherited from the nearest superclass that has one. */
+    public static FuelModel forType(Class<?> type) {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            FuelModel model = defaults.get(c);
+            if (model != null) {
+                return model;
+            }
+        }
+        return null;
+    }
+
+    public static void setDefault(Class<? extends Vehicle> type, FuelModel model) {
+        defaults.put(type, model);
+    }
+
+    public double getDesignCruiseRatio() {
+        return designCruiseRatio;
+    }
+
+    /** Efficiency in km/l at the given load ratio and cruise speed / top speed ratio. */
+    public double efficiency(double loadRatio, double speedRatio) {
+        return loadTable[loadIndex(loadRatio)] * speedTable[speedIndex(speedRatio)];
+    }
+
+    int loadIndex(double loadRatio) {
+        return Math.min(LOAD_STEPS, Math.max(0, (int) Math.ceil(loadRatio * LOAD_STEPS)));
+    }
+
+    static int speedIndex(double speedRatio) {
+        return Math.min(SPEED_STEPS, Math.max(0, (int) (speedRatio * SPEED_SCALE + 0.5)));
+    }
+}
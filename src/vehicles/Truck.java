@@ -10,6 +10,7 @@ import interfaces.Maintainable;
 public class Truck extends LandVehicle implements FuelConsumable, CargoCarrier, Maintainable {
 
     private double fuelLevel;
+    private final double fuelCapacity = 400.0;
     private final double cargoCapacity = 5000.0;
     private double currentCargo;
     private boolean maintenanceNeeded;
@@ -23,11 +24,22 @@ public class Truck extends LandVehicle implements FuelConsumable, CargoCarrier,
 
     @Override
     public double calculateFuelEfficiency() {
-        double baseEfficiency = 8.0;
-        if (currentCargo > cargoCapacity * 0.5) {
-            return baseEfficiency * 0.90;
-        }
-        return baseEfficiency;
+        // The default model keeps the 10% penalty above half load.
+        return modelEfficiency();
+    }
+
+    @Override
+    public double estimateFuelEfficiency(int passengers, double cargo) {
+        return modelEfficiency(loadRatio(cargo));
+    }
+
+    @Override
+    protected double getLoadRatio() {
+        return loadRatio(currentCargo);
+    }
+
+    private double loadRatio(double cargo) {
+        return cargo / cargoCapacity;
     }
 
     @Override
@@ -45,10 +57,16 @@ public class Truck extends LandVehicle implements FuelConsumable, CargoCarrier,
     }
 
     @Override
-    public String toCsvString() {
-        return String.format("Truck,%s,%s,%.1f,%d,%.1f,%.1f,%.1f",
-                getId(), getModel(), getMaxSpeed(), getNumWheels(),
-                getFuelLevel(), getCargoCapacity(), getCurrentCargo());
+    public VehicleState captureState() {
+        return new VehicleState(getCurrentMileage(), fuelLevel, currentCargo, 0, maintenanceNeeded);
+    }
+
+    @Override
+    public void restoreState(VehicleState state) {
+        super.restoreState(state);
+        this.fuelLevel = state.getFuelLevel();
+        setCurrentCargo(state.getCurrentCargo());
+        this.maintenanceNeeded = state.isMaintenanceNeeded();
     }
 
     @Override
@@ -64,6 +82,11 @@ public class Truck extends LandVehicle implements FuelConsumable, CargoCarrier,
         return this.fuelLevel;
     }
 
+    @Override
+    public double getFuelCapacity() {
+        return this.fuelCapacity;
+    }
+
     @Override
     public double consumeFuel(double distance) throws InsufficientFuelException {
         double consumed = distance / calculateFuelEfficiency();
@@ -79,7 +102,7 @@ public class Truck extends LandVehicle implements FuelConsumable, CargoCarrier,
         if (currentCargo + weight > cargoCapacity) {
             throw new OverloadException("Cargo capacity exceeded.");
         }
-        this.currentCargo += weight;
+        setCurrentCargo(currentCargo + weight);
     }
 
     @Override
@@ -87,7 +110,13 @@ public class Truck extends LandVehicle implements FuelConsumable, CargoCarrier,
         if (weight > currentCargo) {
             throw new InvalidOperationException("Cannot unload more cargo than is loaded.");
         }
-        this.currentCargo -= weight;
+        setCurrentCargo(currentCargo - weight);
+    }
+
+    private void setCurrentCargo(double cargo) {
+        double before = getLoadRatio();
+        this.currentCargo = cargo;
+        loadChanged(before);
     }
 
     @Override
@@ -2,13 +2,23 @@ package vehicles;
 
 import exceptions.InsufficientFuelException;
 import exceptions.InvalidOperationException;
+import interfaces.FuelConsumable;
 
 public abstract class Vehicle implements Comparable<Vehicle> {
 
+    /** Told when a vehicle's fuel efficiency may have changed, so cached fuel figures can be invalidated. */
+    public interface EfficiencyListener {
+        void efficiencyChanged(Vehicle vehicle);
+    }
+
     private final String id;
     private final String model;
     private final double maxSpeed;
     private double currentMileage;
+    private FuelModel fuelModel;
+    private double cruiseSpeed = Double.NaN; // NaN: the fuel model's design cruise speed
+    private double efficiency = Double.NaN; // fuelModel at the current load and cruise speed; NaN until looked up
+    private volatile EfficiencyListener efficiencyListener;
 
     public Vehicle(String id, String model, double maxSpeed) {
         if (id == null || id.trim().isEmpty()) {
@@ -18,12 +28,43 @@ public abstract class Vehicle implements Comparable<Vehicle> {
         this.model = model;
         this.maxSpeed = maxSpeed;
         this.currentMileage = 0.0;
+        FuelModel defaultModel = FuelModel.forType(getClass());
+        this.fuelModel = defaultModel != null ? defaultModel : FuelModel.constant(1.0);
     }
 
     public abstract void move(double distance) throws InvalidOperationException, InsufficientFuelException;
     public abstract double calculateFuelEfficiency();
     public abstract double estimateJourneyTime(double distance);
-    public abstract String toCsvString();
+    public abstract VehicleState captureState();
+
+    /**
+     * Fuel efficiency in km/l with the given passengers and cargo on board
+     * instead of the current load, at the current cruise speed. Load a
+     * vehicle cannot carry is ignored. Vehicles whose fuel use does not
+     * depend on their load return {@link #calculateFuelEfficiency()}.
+     */
+    public double estimateFuelEfficiency(int passengers, double cargo) {
+        return calculateFuelEfficiency();
+    }
+
+    public void restoreState(VehicleState state) {
+        this.currentMileage = state.getMileage();
+    }
+
+    /**
+     * Applies an odometer and fuel reading reported by the vehicle itself.
+     * Mileage never moves backwards; a NaN reading leaves that value unchanged.
+     */
+    public synchronized void applyTelemetry(double odometer, double fuelLevel) {
+        VehicleState state = captureState();
+        double mileage = Double.isNaN(odometer) ? state.getMileage() : Math.max(state.getMileage(), odometer);
+        double fuel = state.getFuelLevel();
+        if (!Double.isNaN(fuelLevel) && this instanceof FuelConsumable) {
+            fuel = Math.min(Math.max(fuelLevel, 0), ((FuelConsumable) this).getFuelCapacity());
+        }
+        restoreState(new VehicleState(mileage, fuel, state.getCurrentCargo(),
+                state.getCurrentPassengers(), state.isMaintenanceNeeded()));
+    }
 
     public void displayInfo() {
         System.out.println("--- Vehicle Info ---");
@@ -49,6 +90,82 @@ public abstract class Vehicle implements Comparable<Vehicle> {
         return model;
     }
 
+    /** The listener told about efficiency changes of this vehicle, or null for none. Set by the fleet holding it. */
+    public void setEfficiencyListener(EfficiencyListener listener) {
+        this.efficiencyListener = listener;
+    }
+
+    public EfficiencyListener getEfficiencyListener() {
+        return efficiencyListener;
+    }
+
+    public FuelModel getFuelModel() {
+        return fuelModel;
+    }
+
+    public void setFuelModel(FuelModel fuelModel) {
+        if (fuelModel == null) {
+            throw new IllegalArgumentException("Fuel model cannot be null.");
+        }
+        this.fuelModel = fuelModel;
+        efficiencyChanged();
+    }
+
+    /** Cruise speed in km/h; the fuel model's design cruise speed unless set. Not saved with the fleet. */
+    public double getCruiseSpeed() {
+        return Double.isNaN(cruiseSpeed) ? fuelModel.getDesignCruiseRatio() * maxSpeed : cruiseSpeed;
+    }
+
+    public void setCruiseSpeed(double cruiseSpeed) {
+        if (!(cruiseSpeed > 0 && cruiseSpeed <= maxSpeed)) {
+            throw new IllegalArgumentException("Cruise speed must be positive and at most the maximum speed.");
+        }
+        this.cruiseSpeed = cruiseSpeed;
+        efficiencyChanged();
+    }
+
+    /** How full the vehicle is, from 0 (empty) to 1 (full), as far as fuel consumption is concerned. */
+    protected double getLoadRatio() {
+        return 0;
+    }
+
+    /**
+     * Efficiency from the fuel model at the current load and cruise speed.
+     * It is looked up on first use after either changes and is a plain
+     * field read until the next change. Looking it up lazily also keeps
+     * {@link #getLoadRatio()} from being called before a subclass's
+     * constructor has set its fields.
+     */
+    protected double modelEfficiency() {
+        double value = efficiency;
+        if (Double.isNaN(value)) {
+            value = modelEfficiency(getLoadRatio());
+            efficiency = value;
+        }
+        return value;
+    }
+
+    /** Efficiency from the fuel model at the given load ratio and the current cruise speed. */
+    protected double modelEfficiency(double loadRatio) {
+        double speedRatio = Double.isNaN(cruiseSpeed) ? fuelModel.getDesignCruiseRatio() : cruiseSpeed / maxSpeed;
+        return fuelModel.efficiency(loadRatio, speedRatio);
+    }
+
+    /** Call after changing the load, with the load ratio from before the change. */
+    protected void loadChanged(double previousLoadRatio) {
+        if (fuelModel.loadIndex(previousLoadRatio) != fuelModel.loadIndex(getLoadRatio())) {
+            efficiencyChanged();
+        }
+    }
+
+    private void efficiencyChanged() {
+        efficiency = Double.NaN;
+        EfficiencyListener listener = efficiencyListener;
+        if (listener != null) {
+            listener.efficiencyChanged(this);
+        }
+    }
+
     protected void addMileage(double distance) {
         if (distance > 0) {
             this.currentMileage += distance;
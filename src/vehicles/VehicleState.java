@@ -0,0 +1,69 @@
+package vehicles;
+
+/**
+ * The runtime state of a vehicle, i.e. everything that is not fixed when it
+ * is constructed. Used to move vehicles between fleets without losing fuel,
+ * mileage or load. Fields a vehicle does not have are left at zero.
+ */
+public final class VehicleState {
+
+    private final double mileage;
+    private final double fuelLevel;
+    private final double currentCargo;
+    private final int currentPassengers;
+    private final boolean maintenanceNeeded;
+
+    public VehicleState(double mileage, double fuelLevel, double currentCargo,
+                        int currentPassengers, boolean maintenanceNeeded) {
+        this.mileage = mileage;
+        this.fuelLevel = fuelLevel;
+        this.currentCargo = currentCargo;
+        this.currentPassengers = currentPassengers;
+        this.maintenanceNeeded = maintenanceNeeded;
+    }
+
+    public double getMileage() {
+        return mileage;
+    }
+
+    public double getFuelLevel() {
+        return fuelLevel;
+    }
+
+    public double getCurrentCargo() {
+        return currentCargo;
+    }
+
+    public int getCurrentPassengers() {
+        return currentPassengers;
+    }
+
+    public boolean isMaintenanceNeeded() {
+        return maintenanceNeeded;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof VehicleState)) {
+            return false;
+        }
+        VehicleState other = (VehicleState) o;
+        return Double.compare(mileage, other.mileage) == 0
+                && Double.compare(fuelLevel, other.fuelLevel) == 0
+                && Double.compare(currentCargo, other.currentCargo) == 0
+                && currentPassengers == other.currentPassengers
+                && maintenanceNeeded == other.maintenanceNeeded;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Double.hashCode(mileage);
+        result = 31 * result + Double.hashCode(fuelLevel);
+        result = 31 * result + Double.hashCode(currentCargo);
+        result = 31 * result + currentPassengers;
+        return 31 * result + Boolean.hashCode(maintenanceNeeded);
+    }
+}
@@ -0,0 +1,218 @@
+package check;
+
+import exceptions.InsufficientFuelException;
+import exceptions.InvalidOperationException;
+import exceptions.OverloadException;
+import interfaces.CargoCarrier;
+import interfaces.FuelConsumable;
+import interfaces.PassengerCarrier;
+import management.DispatchEngine;
+import management.DispatchEngine.Assignment;
+import management.DispatchEngine.TripRequest;
+import vehicles.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Checks that what {@link DispatchEngine} assigns can actually be run. A
+ * mixed fleet with random fuel levels, some vehicles already partly loaded,
+ * gets a stream of random trip requests. Every assignment is executed, and
+ * the check fails if a trip throws, burns a different amount of fuel than
+ * estimated, or if a brute-force search over the whole fleet finds a
+ * cheaper capable vehicle than the one assigned. Vehicles are refuelled
+ * now and then and released after their trip.
+ * <p>
+ * The run starts with a truck that has the fuel for a long trip empty but
+ * not loaded: the trip with a heavy load must not be assigned to it, the
+ * empty trip must.
+ * <p>
+ * This is a check, not part of the application, so it lives under
+ * {@code tools/} rather than {@code src/}. Compile it against the
+ * application classes with {@code javac -cp <classes> -d <tools-classes>
+ * tools/check/DispatchCheck.java} and run it with {@code java -cp
+ * <classes>:<tools-classes> check.DispatchCheck [seed] [vehicles]
+ * [requests]}; the defaults are seed 1, 500 vehicles and 20,000 requests.
+ * Exits with status 1 if any check fails.
+ */
+public class DispatchCheck {
+
+    private static final double FUEL_TOLERANCE = 1e-9;
+    // One trip in this many refuels its vehicle before it is released.
+    private static final int REFUEL_EVERY = 4;
+
+    public static void main(String[] args) throws InvalidOperationException, OverloadException {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+        int vehicleCount = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int requestCount = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+
+        // Vehicles report every trip on standard out; only the results are of interest.
+        PrintStream results = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        List<String> failures = new ArrayList<>();
+        int assigned = 0;
+        try {
+            SplittableRandom random = new SplittableRandom(seed);
+            // Empty the truck needs 375 l for 3000 km, with 4 t on board 416.7 l.
+            Truck heavy = new Truck("T-HEAVY", "Check Hauler", 120);
+            heavy.refuel(390);
+            DispatchEngine single = new DispatchEngine(List.of(heavy));
+            if (single.dispatch(new TripRequest(3000, 0, 4000, 1000)) != null) {
+                failures.add("3000 km with 4000 kg went to a truck without the fuel for it loaded.");
+            }
+            if (single.dispatch(new TripRequest(3000, 0, 0, 1000)) == null) {
+                failures.add("3000 km empty was not assigned to a truck with the fuel for it.");
+            }
+
+            List<Vehicle> vehicles = new ArrayList<>(vehicleCount);
+            for (int i = 0; i < vehicleCount; i++) {
+                vehicles.add(randomVehicle(random, i));
+            }
+            DispatchEngine engine = new DispatchEngine(vehicles);
+
+            for (int i = 0; i < requestCount && failures.isEmpty(); i++) {
+                TripRequest request = randomRequest(random);
+                Vehicle cheapest = cheapest(engine, vehicles, request);
+                Assignment assignment = engine.dispatch(request);
+                if (assignment == null) {
+                    if (cheapest != null) {
+                        failures.add("Request " + i + " was not assigned, but " + cheapest.getId() + " can make it.");
+                    }
+                    continue;
+                }
+                assigned++;
+                Vehicle vehicle = assignment.getVehicle();
+                if (cheapest == null || fuelNeeded(cheapest, request) < assignment.getFuel() - FUEL_TOLERANCE) {
+                    failures.add("Request " + i + " went to " + vehicle.getId() + " for " + assignment.getFuel()
+                            + " l, but the cheapest capable vehicle is " + (cheapest == null ? "none" : cheapest.getId()) + ".");
+                }
+                double before = fuelLevel(vehicle);
+                try {
+                    assignment.execute();
+                } catch (InvalidOperationException | InsufficientFuelException | OverloadException e) {
+                    failures.add("Request " + i + " on " + vehicle.getId() + " failed: " + e.getMessage());
+                }
+                double burned = before - fuelLevel(vehicle);
+                if (failures.isEmpty() && Math.abs(burned - assignment.getFuel()) > FUEL_TOLERANCE * Math.max(1, burned)) {
+                    failures.add("Request " + i + " on " + vehicle.getId() + " burned " + burned + " l, estimated "
+                            + assignment.getFuel() + " l.");
+                }
+                if (vehicle instanceof FuelConsumable && random.nextInt(REFUEL_EVERY) == 0) {
+                    refuel(random, (FuelConsumable) vehicle);
+                }
+                engine.release(vehicle);
+            }
+        } finally {
+            System.setOut(results);
+        }
+        results.printf("%d requests, %d assigned and executed.\n", requestCount, assigned);
+        if (!failures.isEmpty()) {
+            failures.forEach(results::println);
+            System.exit(1);
+        }
+        results.println("All assigned trips ran on the fuel estimated for them.");
+    }
+
+    private static Vehicle randomVehicle(SplittableRandom random, int i)
+            throws InvalidOperationException, OverloadException {
+        Vehicle vehicle;
+        switch (random.nextInt(6)) {
+            case 0: vehicle = new Car("C-" + i, "Check Sedan", 140 + 20 * random.nextInt(3)); break;
+            case 1: vehicle = new Bus("B-" + i, "Check Coach", 100 + 20 * random.nextInt(2)); break;
+            case 2: vehicle = new Airplane("A-" + i, "Check Jet", 850, 35000); break;
+            case 3: vehicle = new CargoShip("S-" + i, "Check Freighter", 40, random.nextInt(4) == 0); break;
+            default: vehicle = new Truck("T-" + i, "Check Hauler", 100 + 20 * random.nextInt(2));
+        }
+        if (vehicle instanceof FuelConsumable) {
+            refuel(random, (FuelConsumable) vehicle);
+        }
+        // A few vehicles start partly loaded, so the load they already carry counts too.
+        if (random.nextInt(5) == 0) {
+            if (vehicle instanceof PassengerCarrier) {
+                PassengerCarrier carrier = (PassengerCarrier) vehicle;
+                carrier.boardPassengers(random.nextInt(carrier.getPassengerCapacity() / 2 + 1));
+            }
+            if (vehicle instanceof CargoCarrier) {
+                CargoCarrier carrier = (CargoCarrier) vehicle;
+                double weight = Math.floor(random.nextDouble() * carrier.getCargoCapacity() / 2);
+                if (weight > 0) {
+                    carrier.loadCargo(weight);
+                }
+            }
+        }
+        return vehicle;
+    }
+
+    private static TripRequest randomRequest(SplittableRandom random) {
+        double distance = 50 + random.nextInt(3000);
+        int passengers = random.nextInt(3) == 0 ? 0 : 1 + random.nextInt(random.nextInt(4) == 0 ? 150 : 5);
+        double cargo = random.nextInt(2) == 0 ? 0 : 100 * (1 + random.nextInt(random.nextInt(4) == 0 ? 300 : 40));
+        return new TripRequest(distance, passengers, cargo, 5 + random.nextInt(60));
+    }
+
+    private static void refuel(SplittableRandom random, FuelConsumable vehicle) throws InvalidOperationException {
+        double room = vehicle.getFuelCapacity() - vehicle.getFuelLevel();
+        double amount = Math.floor(random.nextDouble() * room);
+        if (amount > 0) {
+            vehicle.refuel(amount);
+        }
+    }
+
+    /** The vehicle a full scan of the available fleet finds cheapest for the trip, or null. */
+    private static Vehicle cheapest(DispatchEngine engine, List<Vehicle> vehicles, TripRequest request) {
+        Vehicle best = null;
+        double bestFuel = 0;
+        for (Vehicle vehicle : vehicles) {
+            if (engine.isAssigned(vehicle) || !canCarry(vehicle, request)
+                    || vehicle.estimateJourneyTime(request.getDistance()) > request.getDeadlineHours()) {
+                continue;
+            }
+            double fuel = fuelNeeded(vehicle, request);
+            if (fuel > fuelLevel(vehicle)) {
+                continue;
+            }
+            if (best == null || fuel < bestFuel) {
+                best = vehicle;
+                bestFuel = fuel;
+            }
+        }
+        return best;
+    }
+
+    private static boolean canCarry(Vehicle vehicle, TripRequest request) {
+        if (request.getPassengers() > 0) {
+            if (!(vehicle instanceof PassengerCarrier)) {
+                return false;
+            }
+            PassengerCarrier carrier = (PassengerCarrier) vehicle;
+            if (carrier.getCurrentPassengers() + request.getPassengers() > carrier.getPassengerCapacity()) {
+                return false;
+            }
+        }
+        if (request.getCargo() > 0) {
+            if (!(vehicle instanceof CargoCarrier)) {
+                return false;
+            }
+            CargoCarrier carrier = (CargoCarrier) vehicle;
+            return carrier.getCurrentCargo() + request.getCargo() <= carrier.getCargoCapacity();
+        }
+        return true;
+    }
+
+    private static double fuelNeeded(Vehicle vehicle, TripRequest request) {
+        if (!(vehicle instanceof FuelConsumable)) {
+            return 0;
+        }
+        int passengers = vehicle instanceof PassengerCarrier ? ((PassengerCarrier) vehicle).getCurrentPassengers() : 0;
+        double cargo = vehicle instanceof CargoCarrier ? ((CargoCarrier) vehicle).getCurrentCargo() : 0;
+        double efficiency = vehicle.estimateFuelEfficiency(passengers + request.getPassengers(), cargo + request.getCargo());
+        return efficiency > 0 ? request.getDistance() / efficiency : 0;
+    }
+
+    private static double fuelLevel(Vehicle vehicle) {
+        return vehicle instanceof FuelConsumable ? ((FuelConsumable) vehicle).getFuelLevel() : Double.POSITIVE_INFINITY;
+    }
+}